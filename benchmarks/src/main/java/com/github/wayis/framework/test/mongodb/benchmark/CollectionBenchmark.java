@@ -0,0 +1,176 @@
+package com.github.wayis.framework.test.mongodb.benchmark;
+
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.annotation.ClearMode;
+import com.github.wayis.framework.test.mongodb.annotation.InsertMode;
+import com.mongodb.BasicDBList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the operations run by the rules around each test: {@link MongoManager#initCollection(String, BasicDBList)},
+ * {@link MongoManager#clearCollection(String, ClearMode)} and {@link MongoManager#checkCollection(BasicDBList, String, String[])}.<br/>
+ * The collections are prepared before each invocation, out of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CollectionBenchmark {
+
+    private static final String INIT_COLLECTION = "init";
+    private static final String CLEAR_COLLECTION = "clear";
+    private static final String CHECK_COLLECTION = "check";
+    private static final String[] IGNORED_PROPERTIES = {"_id"};
+
+    /**
+     * The running manager, shared by all the benchmarks of the fork.
+     */
+    @State(Scope.Benchmark)
+    public static class Manager {
+
+        @Param({"10", "1000", "100000"})
+        int size;
+
+        MongoManager manager;
+
+        /**
+         * Starts the backend.
+         *
+         * @throws IOException If the backend cannot be started.
+         */
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            this.manager = MongoManager.getInstance();
+            this.manager.acquire();
+        }
+
+        /**
+         * Stops the backend.
+         */
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.manager.release();
+            this.manager.shutdownMongoDB();
+        }
+    }
+
+    /**
+     * Empty collection and new documents to insert.
+     */
+    @State(Scope.Thread)
+    public static class InitState {
+
+        BasicDBList documents;
+
+        /**
+         * Clears the collection and generates the documents.
+         *
+         * @param manager The running manager.
+         */
+        @Setup(Level.Invocation)
+        public void prepare(final Manager manager) {
+            manager.manager.clearCollection(INIT_COLLECTION);
+            this.documents = Fixtures.documents(manager.size);
+        }
+    }
+
+    /**
+     * Filled collection to clear, and the clear mode measured.
+     */
+    @State(Scope.Thread)
+    public static class ClearState {
+
+        @Param({"DROP", "REMOVE", "REMOVE_IF_DIRTY"})
+        ClearMode mode;
+
+        /**
+         * Fills the collection.
+         *
+         * @param manager The running manager.
+         */
+        @Setup(Level.Invocation)
+        public void prepare(final Manager manager) {
+            manager.manager.clearCollection(CLEAR_COLLECTION);
+            manager.manager.initCollection(CLEAR_COLLECTION, Fixtures.documents(manager.size), InsertMode.UNACKNOWLEDGED, 0);
+        }
+    }
+
+    /**
+     * Filled collection and expected documents to compare.
+     */
+    @State(Scope.Thread)
+    public static class CheckState {
+
+        int size;
+        BasicDBList expected;
+
+        /**
+         * Fills the collection once.
+         *
+         * @param manager The running manager.
+         */
+        @Setup(Level.Trial)
+        public void fill(final Manager manager) {
+            this.size = manager.size;
+            manager.manager.clearCollection(CHECK_COLLECTION);
+            manager.manager.initCollection(CHECK_COLLECTION, Fixtures.documents(this.size), InsertMode.UNACKNOWLEDGED, 0);
+        }
+
+        /**
+         * Generates the expected documents, as the check removes the ignored properties from them.
+         */
+        @Setup(Level.Invocation)
+        public void prepare() {
+            this.expected = Fixtures.documents(this.size);
+        }
+    }
+
+    /**
+     * Initializes a collection with the default insert mode and batch size.
+     *
+     * @param manager The running manager.
+     * @param state   The documents to insert.
+     */
+    @Benchmark
+    public void initCollection(final Manager manager, final InitState state) {
+        manager.manager.initCollection(INIT_COLLECTION, state.documents);
+    }
+
+    /**
+     * Clears a filled collection with each clear mode.
+     *
+     * @param manager The running manager.
+     * @param state   The filled collection and the clear mode.
+     */
+    @Benchmark
+    public void clearCollection(final Manager manager, final ClearState state) {
+        manager.manager.clearCollection(CLEAR_COLLECTION, state.mode);
+    }
+
+    /**
+     * Checks a collection equal to the expected documents.
+     *
+     * @param manager The running manager.
+     * @param state   The expected documents.
+     */
+    @Benchmark
+    public void checkCollection(final Manager manager, final CheckState state) {
+        manager.manager.checkCollection(state.expected, CHECK_COLLECTION, IGNORED_PROPERTIES);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.wayis.framework.test.mongodb.benchmark;
+
+import com.github.wayis.framework.test.mongodb.fixture.JsonFixtureReader;
+import com.mongodb.util.JSON;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the parsing of a JSON fixture, by {@link JSON#parse(String)} and by the streaming {@link JsonFixtureReader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FixtureParseBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private String json;
+
+    /**
+     * Generates the fixture.
+     */
+    @Setup
+    public void setUp() {
+        this.json = Fixtures.json(this.size);
+    }
+
+    /**
+     * Parses the whole fixture at once.
+     *
+     * @return The parsed list.
+     */
+    @Benchmark
+    public Object parse() {
+        return JSON.parse(this.json);
+    }
+
+    /**
+     * Parses the fixture document by document.
+     *
+     * @param blackhole The sink of the documents.
+     */
+    @Benchmark
+    public void stream(final Blackhole blackhole) {
+        final JsonFixtureReader reader = new JsonFixtureReader(new StringReader(this.json));
+        while (reader.hasNext()) {
+            blackhole.consume(reader.next());
+        }
+    }
+}
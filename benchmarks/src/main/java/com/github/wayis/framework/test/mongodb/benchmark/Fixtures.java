@@ -0,0 +1,47 @@
+package com.github.wayis.framework.test.mongodb.benchmark;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+/**
+ * Generation of the fixtures used by the benchmarks: users with a few fields and a nested address.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Generates a JSON array of users.
+     *
+     * @param size The number of users.
+     * @return The JSON array.
+     */
+    static String json(final int size) {
+        final StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("{lastname: 'LASTNAME").append(i).append("', firstname: 'Firstname").append(i)
+                    .append("', age: ").append(i % 100)
+                    .append(", address: {street: '").append(i).append(" Negra Arroyo Lane', city: 'Albuquerque'}}");
+        }
+        return json.append("\n]").toString();
+    }
+
+    /**
+     * Generates a list of users, equal to the parsed {@link Fixtures#json(int)}.
+     *
+     * @param size The number of users.
+     * @return The users.
+     */
+    static BasicDBList documents(final int size) {
+        final BasicDBList documents = new BasicDBList();
+        for (int i = 0; i < size; i++) {
+            documents.add(new BasicDBObject("lastname", "LASTNAME" + i).append("firstname", "Firstname" + i).append("age", i % 100)
+                    .append("address", new BasicDBObject("street", i + " Negra Arroyo Lane").append("city", "Albuquerque")));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.wayis.framework.test.mongodb.benchmark;
+
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the start and the stop of the backend by {@link MongoManager#runMongoDB()} and {@link MongoManager#shutdownMongoDB()}:
+ * the cost paid by each test class with the <i>class</i> lifecycle, and once per JVM with the <i>jvm</i> lifecycle.<br/>
+ * The first iteration includes the download and the extraction of mongod if they are not cached yet.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class LifecycleBenchmark {
+
+    /**
+     * Starts and stops the backend.
+     *
+     * @throws IOException If the backend cannot be started.
+     */
+    @Benchmark
+    public void runAndShutdown() throws IOException {
+        final MongoManager manager = MongoManager.getInstance();
+        manager.runMongoDB();
+        manager.shutdownMongoDB();
+    }
+}
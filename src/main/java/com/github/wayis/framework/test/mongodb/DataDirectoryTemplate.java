@@ -0,0 +1,150 @@
+package com.github.wayis.framework.test.mongodb;
+
+import com.github.wayis.framework.test.mongodb.annotation.InsertMode;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureLoader;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureReader;
+import com.github.wayis.framework.test.util.StreamUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.FileFilterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prebuilt mongod data directory, copied as the dbpath of each mongod process at startup.<br/>
+ * Large reference datasets are then available as soon as mongod is started, without any insertion.
+ * The template is configured by these properties of the mongodb.properties file:
+ * <ul>
+ * <li>mongodb.dbpath.template: the directory of the template.</li>
+ * <li>mongodb.dbpath.template.fixtures (optional): the JSON files used to build the template on the first run if the directory
+ * does not exist, as a comma separated list of <i>collection:/path/in/classpath.json</i>.</li>
+ * </ul>
+ * The template can also be built at build time with the {@link DataDirectoryTemplate#main(String[])} method,
+ * for example with the exec-maven-plugin.<br/>
+ * The template is copied, not linked: mongod writes into its data files, so a shared file would corrupt the template.
+ */
+public final class DataDirectoryTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataDirectoryTemplate.class);
+
+    private static final String MONGODB_DBPATH_TEMPLATE_PROPERTY = "mongodb.dbpath.template";
+    private static final String MONGODB_DBPATH_TEMPLATE_FIXTURES_PROPERTY = "mongodb.dbpath.template.fixtures";
+
+    private static final String MONGOD_LOCK_FILE = "mongod.lock";
+
+    private DataDirectoryTemplate() {
+    }
+
+    /**
+     * Builds a template from the command line.<br/>
+     * Usage: <i>templateDirectory collection:/path/in/classpath.json ...</i>
+     *
+     * @param args The template directory followed by the collections and their JSON files.
+     * @throws IOException If the template cannot be built.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: DataDirectoryTemplate templateDirectory [collection:/file.json ...]");
+        }
+        final Map<String, String> fixtures = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            fixtures.putAll(parseFixtures(args[i]));
+        }
+        build(new File(args[0]), fixtures);
+    }
+
+    /**
+     * Copies the configured template into a new temporary directory.<br/>
+     * If the template does not exist and fixtures are configured, it is built first.
+     *
+     * @return The temporary data directory, or null if no template is configured.
+     * @throws IOException If the template cannot be built or copied.
+     */
+    static File prepare() throws IOException {
+        final String templatePath = MongoProperties.getValue(MONGODB_DBPATH_TEMPLATE_PROPERTY);
+        if (templatePath.isEmpty()) {
+            return null;
+        }
+        return prepare(new File(templatePath), parseFixtures(MongoProperties.getValue(MONGODB_DBPATH_TEMPLATE_FIXTURES_PROPERTY)));
+    }
+
+    /**
+     * Copies a template into a new temporary directory, after building it if it does not exist.<br/>
+     * The mongod processes of a pool prepare their data directory in parallel: a lock of the template, held by a single thread
+     * of the JVM and by a single JVM at a time, prevents two of them from building it concurrently. See {@link FileLocks}.
+     *
+     * @param template The template directory.
+     * @param fixtures The JSON files in the classpath by collection name, used to build the template.
+     * @return The temporary data directory.
+     * @throws IOException If the template cannot be built or copied.
+     */
+    static File prepare(final File template, final Map<String, String> fixtures) throws IOException {
+        FileLocks.run(new File(template.getAbsolutePath() + ".lock"), new FileLocks.LockedAction() {
+            @Override
+            public void run() throws IOException {
+                if (!template.isDirectory()) {
+                    build(template, fixtures);
+                }
+            }
+        });
+        final File dbPath = MongodStorage.createDbPath();
+        final FileFilter withoutLock = FileFilterUtils.notFileFilter(FileFilterUtils.nameFileFilter(MONGOD_LOCK_FILE));
+        FileUtils.copyDirectory(template, dbPath, withoutLock);
+        LOGGER.info("Data directory template '" + template + "' copied to '" + dbPath + "'");
+        return dbPath;
+    }
+
+    /**
+     * Builds a template: a mongod process is started on the template directory, the collections are initialized with their JSON files
+     * into the mongodb.dbname database, then mongod is stopped so the data files are flushed.<br/>
+     * The template is built in a temporary sibling directory and moved at the end, so a failed build never leaves an incomplete template.
+     *
+     * @param template The template directory.
+     * @param fixtures The JSON files in the classpath by collection name.
+     * @throws IOException If a JSON file cannot be read or if mongod cannot be started.
+     */
+    public static void build(final File template, final Map<String, String> fixtures) throws IOException {
+        LOGGER.info("Building the data directory template '" + template + "'");
+        final File building = new File(template.getAbsolutePath() + ".building");
+        FileUtils.deleteQuietly(building);
+        FileUtils.forceMkdir(building);
+        final MongoManager manager = new MongoManager(0, building);
+        manager.runMongoDB();
+        try {
+            for (Map.Entry<String, String> fixture : fixtures.entrySet()) {
+                final FixtureReader documents = FixtureLoader.open(DataDirectoryTemplate.class, fixture.getValue());
+                try {
+                    manager.initCollection(fixture.getKey(), documents, InsertMode.UNACKNOWLEDGED, 0);
+                } finally {
+                    StreamUtils.closeQuietly(documents);
+                }
+            }
+        } finally {
+            manager.shutdownMongoDB();
+        }
+        FileUtils.deleteDirectory(template);
+        FileUtils.moveDirectory(building, template);
+    }
+
+    /**
+     * Parses a comma separated list of <i>collection:/path/in/classpath.json</i>.
+     *
+     * @param value The list to parse.
+     * @return The JSON files by collection name.
+     */
+    private static Map<String, String> parseFixtures(final String value) {
+        final Map<String, String> fixtures = new LinkedHashMap<>();
+        for (String fixture : value.split(",")) {
+            final int separator = fixture.indexOf(':');
+            if (separator > 0) {
+                fixtures.put(fixture.substring(0, separator).trim(), fixture.substring(separator + 1).trim());
+            }
+        }
+        return fixtures;
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.wayis.framework.test.mongodb;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive locks on files, shared by the threads of this JVM and by the other JVMs.<br/>
+ * A file lock is held by the whole JVM: a thread locking a file already locked by another thread of the JVM gets an
+ * OverlappingFileLockException instead of waiting. So the threads of the JVM first wait for an in-JVM lock of the file,
+ * and only its holder takes the file lock, which makes the other JVMs wait.
+ */
+final class FileLocks {
+
+    private static final ConcurrentMap<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private FileLocks() {
+    }
+
+    /**
+     * Action run while a file is locked.
+     */
+    interface LockedAction {
+
+        /**
+         * Runs the action.
+         *
+         * @throws IOException If the action fails.
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs an action while a file is locked, waiting for the other threads and the other JVMs holding it.
+     *
+     * @param lockFile The lock file, created if needed.
+     * @param action   The action to run.
+     * @throws IOException If the file cannot be locked or if the action fails.
+     */
+    static void run(final File lockFile, final LockedAction action) throws IOException {
+        FileUtils.forceMkdir(lockFile.getAbsoluteFile().getParentFile());
+        final ReentrantLock threadLock = getThreadLock(lockFile.getCanonicalPath());
+        threadLock.lock();
+        try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw"); FileLock lock = lockAccess.getChannel().lock()) {
+            action.run();
+        } finally {
+            threadLock.unlock();
+        }
+    }
+
+    private static ReentrantLock getThreadLock(final String path) {
+        ReentrantLock lock = LOCKS.get(path);
+        if (lock == null) {
+            lock = new ReentrantLock();
+            final ReentrantLock previous = LOCKS.putIfAbsent(path, lock);
+            if (previous != null) {
+                lock = previous;
+            }
+        }
+        return lock;
+    }
+}
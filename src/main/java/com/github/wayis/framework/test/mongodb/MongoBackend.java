@@ -0,0 +1,31 @@
+package com.github.wayis.framework.test.mongodb;
+
+import java.io.IOException;
+
+/**
+ * Server behind a {@link MongoManager}, serving the mongo wire protocol to the MongoClient of the manager and of the code under test.<br/>
+ * The backend is selected by the mongodb.backend property of the mongodb.properties file:
+ * <ul>
+ * <li><i>mongod</i> (default): a mongod process started with flapdoodle embed.mongo.</li>
+ * <li><i>memory</i>: a pure-Java server storing the collections in the memory of the JVM.
+ * See {@link com.github.wayis.framework.test.mongodb.memory.MemoryBackend}.</li>
+ * <li>the name of a class implementing this interface with a public constructor without arguments.</li>
+ * </ul>
+ * A backend instance is started at most once.
+ */
+public interface MongoBackend {
+
+    /**
+     * Starts the backend.
+     *
+     * @param host The host the clients connect to.
+     * @param port The port the backend must listen on.
+     * @throws IOException If the backend cannot be started.
+     */
+    void start(String host, int port) throws IOException;
+
+    /**
+     * Stops the backend and releases its resources. All data are lost, except for a fixed data directory.
+     */
+    void stop();
+}
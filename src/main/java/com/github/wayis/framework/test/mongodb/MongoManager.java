@@ -1,82 +1,297 @@
 package com.github.wayis.framework.test.mongodb;
 
+import com.github.wayis.framework.test.mongodb.annotation.CheckMode;
+import com.github.wayis.framework.test.mongodb.annotation.ClearMode;
+import com.github.wayis.framework.test.mongodb.annotation.Index;
+import com.github.wayis.framework.test.mongodb.annotation.InsertMode;
+import com.github.wayis.framework.test.mongodb.check.CollectionDiff;
+import com.github.wayis.framework.test.mongodb.check.DocumentMultiset;
+import com.github.wayis.framework.test.mongodb.check.FieldMask;
+import com.github.wayis.framework.test.mongodb.generator.DocumentTemplate;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
 import com.mongodb.*;
-import de.flapdoodle.embed.mongo.MongodExecutable;
-import de.flapdoodle.embed.mongo.MongodProcess;
-import de.flapdoodle.embed.mongo.MongodStarter;
-import de.flapdoodle.embed.mongo.config.MongodConfig;
-import de.flapdoodle.embed.mongo.distribution.Version;
+import com.mongodb.util.JSON;
 import de.flapdoodle.embed.process.runtime.Network;
 import org.junit.Assert;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ResourceBundle;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class to manage the Mongo DB.<br/>
  * Use {@link MongoManager#runMongoDB()} to start mongod process.<br/>
  * Use {@link MongoManager#shutdownMongoDB()} to stop it.<br/>
+ * Runners should use {@link MongoManager#acquire()} and {@link MongoManager#release()} instead, so the mongod process
+ * can be shared according to the configured lifecycle.<br/>
  * The manager needs a mongodb.properties file to get these properties:<br/>
  * <ul>
- * <li>mongodb.port</li>
+ * <li>mongodb.port: an empty value or 0 starts mongod on a free port.</li>
  * <li>mongodb.host</li>
  * <li>mongodb.dbname</li>
+ * <li>mongodb.lifecycle (optional): <i>jvm</i> (default) to start mongod once and stop it when the JVM exits,
+ * <i>class</i> to start and stop it around each test class.</li>
+ * <li>mongodb.pool.size (optional): the number of mongod processes leased to test classes running in parallel.
+ * See {@link MongodPool}.</li>
+ * <li>mongodb.isolation (optional): <i>none</i> (default) to use the mongodb.dbname database for all tests,
+ * <i>test</i> to use a generated database per test method, dropped in background after the test,
+ * <i>thread</i> to use a generated database per thread.</li>
+ * <li>mongodb.insert.batchSize (optional): the number of documents sent by insert to initialize a collection, 1000 by default.</li>
+ * <li>mongodb.insert.mode (optional): the default {@link InsertMode} to initialize a collection, ACKNOWLEDGED by default.</li>
+ * <li>mongodb.clear.mode (optional): the default {@link ClearMode} to clear a collection, REMOVE_IF_DIRTY by default.</li>
+ * <li>mongodb.generate.threads (optional): the number of threads generating a collection, 4 by default.
+ * See {@link MongoManager#generateCollection(String, DocumentTemplate, long, long, InsertMode, int, int)}.</li>
+ * <li>mongodb.seed.skipUnchanged (optional): <i>true</i> (default) to skip the clear and the initialization of a collection
+ * still holding the documents of the same fixture. See {@link MongoManager#isSeeded(String, String, ClearMode)}.</li>
+ * <li>mongodb.dbpath.template (optional): a prebuilt data directory copied as the dbpath of mongod. See {@link DataDirectoryTemplate}.</li>
+ * <li>mongodb.version, mongodb.artifacts.dir, mongodb.download.path, mongodb.executables.dir (optional): the mongod binary.
+ * See {@link MongodDistribution}.</li>
+ * <li>mongodb.storage, mongodb.storage.dir, mongodb.storage.engine (optional): the storage of mongod, for example a dbpath on a tmpfs.
+ * See {@link MongodStorage}.</li>
+ * <li>mongodb.backend (optional): <i>mongod</i> (default), <i>memory</i> or the class of a custom backend. See {@link MongoBackend}.</li>
+ * <li>mongodb.timing.report, mongodb.timing.report.top, mongodb.timing.jmx (optional): the timings of the phases.
+ * See {@link com.github.wayis.framework.test.mongodb.metrics.Timings}.</li>
  * </ul>
  * This file must be on classpath root.
  */
 public final class MongoManager {
 
-    private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("mongodb");
-
     private static final String MONGODB_PORT_PROPERTY = "mongodb.port";
     private static final String MONGODB_HOST_PROPERTY = "mongodb.host";
     private static final String MONGODB_DBNAME_PROPERTY = "mongodb.dbname";
+    private static final String MONGODB_LIFECYCLE_PROPERTY = "mongodb.lifecycle";
+    private static final String MONGODB_BACKEND_PROPERTY = "mongodb.backend";
+
+    private static final String MONGODB_ISOLATION_PROPERTY = "mongodb.isolation";
+    private static final String MONGODB_INSERT_BATCH_SIZE_PROPERTY = "mongodb.insert.batchSize";
+    private static final String MONGODB_INSERT_MODE_PROPERTY = "mongodb.insert.mode";
+    private static final String MONGODB_CLEAR_MODE_PROPERTY = "mongodb.clear.mode";
+    private static final String MONGODB_GENERATE_THREADS_PROPERTY = "mongodb.generate.threads";
+    private static final String MONGODB_SEED_SKIP_UNCHANGED_PROPERTY = "mongodb.seed.skipUnchanged";
+    private static final String MONGODB_CHECK_MODE_PROPERTY = "mongodb.check.mode";
+    private static final String MONGODB_CHECK_MAX_MISMATCHES_PROPERTY = "mongodb.check.maxMismatches";
+    private static final String MONGODB_CLIENT_CONNECTIONS_PER_HOST_PROPERTY = "mongodb.client.connectionsPerHost";
+    private static final String MONGODB_CLIENT_MAX_WAIT_TIME_PROPERTY = "mongodb.client.maxWaitTime";
+    private static final String MONGODB_CLIENT_CONNECT_TIMEOUT_PROPERTY = "mongodb.client.connectTimeout";
+    private static final String MONGODB_CLIENT_SOCKET_TIMEOUT_PROPERTY = "mongodb.client.socketTimeout";
+    private static final String MONGODB_CLIENT_SOCKET_KEEP_ALIVE_PROPERTY = "mongodb.client.socketKeepAlive";
+    private static final String MONGODB_CLIENT_WRITE_CONCERN_PROPERTY = "mongodb.client.writeConcern";
+    private static final String MONGODB_CLIENT_READ_PREFERENCE_PROPERTY = "mongodb.client.readPreference";
+
+    private static final int DEFAULT_INSERT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_CHECK_MAX_MISMATCHES = 10;
+    private static final int DEFAULT_GENERATE_THREADS = 4;
+
+    private static final DBObject ID_ONLY = new BasicDBObject("_id", 1);
+
+    private static final String SNAPSHOT_PREFIX = "snapshot.";
+    private static final String COPY_COLLECTION_FUNCTION = "function(source, target) {"
+            + " db[target].drop();"
+            + " db[source].find().forEach(function(document) { db[target].insert(document); });"
+            + " return db[target].count(); }";
+    private static final String CHECK_PREFIX = "check.";
+    private static final String EXPECTED_FIELD = "expected";
+    private static final String COMPARE_COLLECTIONS_FUNCTION = "function(actual, expected, projection, limit) {"
+            + " var canonical = function(value) {"
+            + "  if (value instanceof NumberLong || (typeof NumberInt !== 'undefined' && value instanceof NumberInt)) { value = value.toNumber(); }"
+            + "  if (typeof value === 'number') { return tojson(value === 0 ? 0 : value); }"
+            + "  if (value instanceof Array) { return '[' + value.map(canonical).join(',') + ']'; }"
+            + "  if (value !== null && typeof value === 'object' && value.constructor === Object) {"
+            + "   return '{' + Object.keys(value).sort().map(function(key) { return tojson(key) + ':' + canonical(value[key]); }).join(',') + '}'; }"
+            + "  return tojson(value); };"
+            + " var counts = {};"
+            + " db[expected].find().forEach(function(document) {"
+            + "  var key = canonical(document.expected); counts[key] = (counts[key] || 0) + 1; });"
+            + " var count = 0;"
+            + " var unexpected = [];"
+            + " db[actual].find({}, projection).forEach(function(document) {"
+            + "  var key = canonical(document); count++;"
+            + "  if (counts[key]) { counts[key]--; } else if (unexpected.length < limit) { unexpected.push(document); } });"
+            + " var missingCount = 0;"
+            + " var missing = [];"
+            + " db[expected].find().forEach(function(document) {"
+            + "  var key = canonical(document.expected);"
+            + "  if (counts[key] > 0) { counts[key]--; missingCount++; if (missing.length < limit) { missing.push(document.expected); } } });"
+            + " return {count: count, missingCount: missingCount, missing: missing, unexpected: unexpected}; }";
+
+    private static final String BACKEND_MONGOD = "mongod";
+    private static final String BACKEND_MEMORY = "memory";
+    private static final String MEMORY_BACKEND_CLASS = "com.github.wayis.framework.test.mongodb.memory.MemoryBackend";
+
+    private static final String LIFECYCLE_CLASS = "class";
+    private static final String ISOLATION_TEST = "test";
+    private static final String ISOLATION_THREAD = "thread";
 
     private static MongoManager instance = null;
 
-    private MongodExecutable mongodExe;
-    private MongodProcess mongod;
+    private MongoBackend backend;
     private DB db;
     private MongoClient mongoClient;
+    private int users;
+    private Thread shutdownHook;
+    private final int configuredPort;
+    private int port;
+    private final File fixedDbPath;
+    private final ThreadLocal<String> isolatedDbName = new ThreadLocal<>();
+    private final AtomicInteger isolatedDbCounter = new AtomicInteger();
+    private final Map<String, Seed> seeds = new ConcurrentHashMap<>();
+    private ExecutorService dropExecutor;
+    private ExecutorService generateExecutor;
+    private final AtomicInteger generateThreadCounter = new AtomicInteger();
+
+    /**
+     * Constructs a manager for one mongod process.
+     *
+     * @param configuredPort The port of the mongod process. 0 to use a free port chosen at startup.
+     */
+    MongoManager(final int configuredPort) {
+        this(configuredPort, null);
+    }
 
-    private MongoManager() {
+    /**
+     * Constructs a manager for one mongod process working on the given data directory.
+     *
+     * @param configuredPort The port of the mongod process. 0 to use a free port chosen at startup.
+     * @param fixedDbPath    The dbpath of the mongod process, kept after the shutdown. null to use a temporary one.
+     */
+    MongoManager(final int configuredPort, final File fixedDbPath) {
+        this.configuredPort = configuredPort;
+        this.fixedDbPath = fixedDbPath;
     }
 
     /**
-     * Gets the singleton instance of MongoManager.
+     * Gets the instance of MongoManager to use by the current thread.<br/>
+     * If the current thread holds an instance leased from the {@link MongodPool}, this instance is returned.
+     * Otherwise, the singleton bound to the mongodb.port property is returned.
      *
-     * @return The unique instance of MongoManager.
+     * @return The instance of MongoManager for the current thread.
+     * @see MongodPool#lease()
      */
-    public static MongoManager getInstance() {
+    public static synchronized MongoManager getInstance() {
+        final MongoManager leased = MongodPool.current();
+        if (leased != null) {
+            return leased;
+        }
         if (instance == null) {
-            instance = new MongoManager();
+            instance = new MongoManager(getConfiguredPort());
         }
         return instance;
     }
 
     /**
-     * Runs the mongod process from properties of the mongodb.properties.
+     * Runs the mongod process from properties of the mongodb.properties.<br/>
+     * The server is the backend configured by the mongodb.backend property, a mongod process by default.
+     * The MongoClient is built with the options of the mongodb.client.* properties and warmed by a ping,
+     * so the first test does not pay the connection handshake.
      *
      * @throws IOException If an error occurred during the initialization of all mongo processes.
+     * @throws MongoException If the server does not answer the ping: the backend is then stopped.
      * @see com.mongodb.MongoClient
      * @see de.flapdoodle.embed.mongo.runtime.Mongod
      * @see de.flapdoodle.embed.mongo.MongodExecutable
      * @see com.mongodb.DBCollection
      */
-    public void runMongoDB() throws IOException {
-        final int port = Integer.parseInt(getValue(MONGODB_PORT_PROPERTY));
-        final String host = getValue(MONGODB_HOST_PROPERTY);
-        final String dbName = getValue(MONGODB_DBNAME_PROPERTY);
+    public synchronized void runMongoDB() throws IOException {
+        if (isRunning()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        this.port = this.configuredPort > 0 ? this.configuredPort : Network.getFreeServerPort();
+        final String host = MongoProperties.getValue(MONGODB_HOST_PROPERTY);
+        final String dbName = MongoProperties.getValue(MONGODB_DBNAME_PROPERTY);
 
-        MongodStarter starter = MongodStarter.getDefaultInstance();
-        this.mongodExe = starter.prepare(new MongodConfig(Version.Main.DEVELOPMENT, port, Network
-                .localhostIsIPv6()));
-        this.mongod = this.mongodExe.start();
-        this.mongoClient = new MongoClient(host, port);
+        final MongoBackend newBackend = createBackend();
+        newBackend.start(host, this.port);
+        this.backend = newBackend;
+        this.mongoClient = new MongoClient(new ServerAddress(host, this.port), getClientOptions());
         this.db = this.mongoClient.getDB(dbName);
+        try {
+            this.db.command("ping").throwOnError();
+        } catch (MongoException e) {
+            this.mongoClient.close();
+            newBackend.stop();
+            this.mongoClient = null;
+            this.backend = null;
+            this.db = null;
+            throw e;
+        }
+        Timings.record(null, Phase.START, null, null, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Gets the port of the running mongod process.<br/>
+     * Application code under test must use it to connect when the port is chosen dynamically.
+     *
+     * @return The port of the mongod process.
+     */
+    public synchronized int getPort() {
+        return this.port;
+    }
+
+    /**
+     * Gets the MongoClient connected to the running mongod process.<br/>
+     * It is shared by the rules and by the application code under test, which should use it instead of opening its own connection pool.
+     * It must not be closed: it is closed when the mongod process is shutdowned.
+     *
+     * @return The MongoClient, or null if the mongod process is not running.
+     */
+    public synchronized MongoClient getMongoClient() {
+        return this.mongoClient;
+    }
+
+    /**
+     * Builds the options of the MongoClient from the mongodb.client.* properties.<br/>
+     * The options not set keep the defaults of the driver.
+     *
+     * @return The options.
+     * @throws IllegalArgumentException If the write concern or the read preference is unknown.
+     */
+    private static MongoClientOptions getClientOptions() {
+        final MongoClientOptions defaults = new MongoClientOptions.Builder().build();
+        final MongoClientOptions.Builder builder = new MongoClientOptions.Builder()
+                .connectionsPerHost(MongoProperties.getInt(MONGODB_CLIENT_CONNECTIONS_PER_HOST_PROPERTY, defaults.getConnectionsPerHost()))
+                .maxWaitTime(MongoProperties.getInt(MONGODB_CLIENT_MAX_WAIT_TIME_PROPERTY, defaults.getMaxWaitTime()))
+                .connectTimeout(MongoProperties.getInt(MONGODB_CLIENT_CONNECT_TIMEOUT_PROPERTY, defaults.getConnectTimeout()))
+                .socketTimeout(MongoProperties.getInt(MONGODB_CLIENT_SOCKET_TIMEOUT_PROPERTY, defaults.getSocketTimeout()))
+                .socketKeepAlive(MongoProperties.getBoolean(MONGODB_CLIENT_SOCKET_KEEP_ALIVE_PROPERTY, defaults.isSocketKeepAlive()));
+        final String writeConcern = MongoProperties.getValue(MONGODB_CLIENT_WRITE_CONCERN_PROPERTY);
+        if (!writeConcern.isEmpty()) {
+            builder.writeConcern(parseWriteConcern(writeConcern));
+        }
+        final String readPreference = MongoProperties.getValue(MONGODB_CLIENT_READ_PREFERENCE_PROPERTY);
+        if (!readPreference.isEmpty()) {
+            builder.readPreference(ReadPreference.valueOf(readPreference));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets a write concern from its name, as set in the mongodb.client.writeConcern property.
+     *
+     * @param name The name of a constant of {@link WriteConcern}, like JOURNALED, whatever its case.
+     * @return The write concern.
+     * @throws IllegalArgumentException If the write concern is unknown.
+     */
+    static WriteConcern parseWriteConcern(final String name) {
+        final WriteConcern concern = WriteConcern.valueOf(name.toUpperCase());
+        if (concern == null) {
+            throw new IllegalArgumentException("Unknown write concern '" + name + "' in the " + MONGODB_CLIENT_WRITE_CONCERN_PROPERTY + " property");
+        }
+        return concern;
     }
 
     /**
@@ -86,32 +301,649 @@ public final class MongoManager {
      * @see de.flapdoodle.embed.mongo.runtime.Mongod
      * @see de.flapdoodle.embed.mongo.MongodExecutable
      */
-    public void shutdownMongoDB() {
+    public synchronized void shutdownMongoDB() {
+        if (!isRunning()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        if (this.dropExecutor != null) {
+            this.dropExecutor.shutdownNow();
+            this.dropExecutor = null;
+        }
+        if (this.generateExecutor != null) {
+            this.generateExecutor.shutdownNow();
+            this.generateExecutor = null;
+        }
         this.mongoClient.close();
-        this.mongod.stop();
-        this.mongodExe.stop();
+        this.backend.stop();
+        this.mongoClient = null;
+        this.backend = null;
+        this.db = null;
+        Timings.record(null, Phase.SHUTDOWN, null, null, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Indicates if the mongod process is started.
+     *
+     * @return true if the mongod process is running.
+     */
+    public synchronized boolean isRunning() {
+        return this.backend != null;
+    }
+
+    /**
+     * Creates the backend configured by the mongodb.backend property.<br/>
+     * A manager working on a fixed data directory always uses a mongod process, as the data files must be written.
+     *
+     * @return The backend, not started.
+     * @throws IOException If the configured backend class cannot be instantiated.
+     */
+    private MongoBackend createBackend() throws IOException {
+        final String name = MongoProperties.getValue(MONGODB_BACKEND_PROPERTY);
+        if (this.fixedDbPath != null || name.isEmpty() || BACKEND_MONGOD.equalsIgnoreCase(name)) {
+            return new MongodBackend(this.fixedDbPath);
+        }
+        final String className = BACKEND_MEMORY.equalsIgnoreCase(name) ? MEMORY_BACKEND_CLASS : name;
+        try {
+            return (MongoBackend) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IOException("Unable to create the mongodb backend '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Registers a new user of the mongod process and starts it if needed.<br/>
+     * With the <i>jvm</i> lifecycle, the process is started once and stopped by a shutdown hook when the JVM exits.
+     *
+     * @throws IOException If an error occurred during the start of the mongod process.
+     * @see MongoManager#release()
+     */
+    public synchronized void acquire() throws IOException {
+        runMongoDB();
+        this.users++;
+        if (!isClassLifecycle() && this.shutdownHook == null) {
+            final Runnable shutdown = new Runnable() {
+                @Override
+                public void run() {
+                    shutdownMongoDB();
+                }
+            };
+            this.shutdownHook = new Thread(shutdown, "mongodb-unit-test-shutdown");
+            Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+            // The timing report is written by another hook: it stops the process first so the SHUTDOWN phase is reported
+            Timings.addShutdownTask(shutdown);
+        }
+    }
+
+    /**
+     * Unregisters a user of the mongod process.<br/>
+     * With the <i>class</i> lifecycle, the process is stopped when its last user releases it.
+     * With the <i>jvm</i> lifecycle, the process keeps running until the JVM exits.
+     *
+     * @see MongoManager#acquire()
+     */
+    public synchronized void release() {
+        if (this.users > 0) {
+            this.users--;
+        }
+        if (this.users == 0 && isClassLifecycle()) {
+            shutdownMongoDB();
+        }
+    }
+
+    /**
+     * Indicates if the mongod process must be stopped after each test class.
+     *
+     * @return true if the <i>class</i> lifecycle is configured.
+     */
+    private boolean isClassLifecycle() {
+        return LIFECYCLE_CLASS.equalsIgnoreCase(MongoProperties.getValue(MONGODB_LIFECYCLE_PROPERTY));
+    }
+
+    /**
+     * Indicates if the tests use generated databases instead of the mongodb.dbname one.
+     *
+     * @return true if the <i>test</i> or <i>thread</i> isolation is configured.
+     */
+    public boolean isDatabaseIsolated() {
+        final String isolation = MongoProperties.getValue(MONGODB_ISOLATION_PROPERTY);
+        return ISOLATION_TEST.equalsIgnoreCase(isolation) || ISOLATION_THREAD.equalsIgnoreCase(isolation);
+    }
+
+    /**
+     * Binds a generated database to the current thread, according to the mongodb.isolation property.<br/>
+     * With the <i>thread</i> isolation, the same database is kept for all the tests of the thread.
+     *
+     * @see MongoManager#closeIsolatedDatabase()
+     */
+    public void openIsolatedDatabase() {
+        final String isolation = MongoProperties.getValue(MONGODB_ISOLATION_PROPERTY);
+        final String dbName = MongoProperties.getValue(MONGODB_DBNAME_PROPERTY);
+        if (ISOLATION_TEST.equalsIgnoreCase(isolation)) {
+            this.isolatedDbName.set(dbName + "_" + this.isolatedDbCounter.incrementAndGet());
+        } else if (ISOLATION_THREAD.equalsIgnoreCase(isolation) && this.isolatedDbName.get() == null) {
+            this.isolatedDbName.set(dbName + "_thread" + Thread.currentThread().getId());
+        }
+    }
+
+    /**
+     * Unbinds the generated database of the current thread.<br/>
+     * With the <i>test</i> isolation, the database is dropped in background, out of the critical path of the tests.
+     *
+     * @see MongoManager#openIsolatedDatabase()
+     */
+    public void closeIsolatedDatabase() {
+        final String dbName = this.isolatedDbName.get();
+        if (dbName == null || !ISOLATION_TEST.equalsIgnoreCase(MongoProperties.getValue(MONGODB_ISOLATION_PROPERTY))) {
+            return;
+        }
+        this.isolatedDbName.remove();
+        final DB isolatedDb = getDB(dbName);
+        if (isolatedDb != null) {
+            getDropExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    isolatedDb.dropDatabase();
+                }
+            });
+        }
+    }
+
+    /**
+     * Wraps a task to run it on another thread with the context of the current thread:
+     * the instance leased from the {@link MongodPool} and the generated database, so {@link MongoManager#getInstance()}
+     * and {@link MongoManager#getDB()} return the same objects in the task.
+     *
+     * @param task The task.
+     * @param <T>  The type of the result of the task.
+     * @return The task running in the context of the current thread.
+     */
+    public <T> Callable<T> withCurrentContext(final Callable<T> task) {
+        final MongoManager leased = MongodPool.current();
+        final String dbName = this.isolatedDbName.get();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                final MongoManager previousLeased = MongodPool.current();
+                final String previousDbName = isolatedDbName.get();
+                MongodPool.bind(leased);
+                setIsolatedDbName(dbName);
+                try {
+                    return task.call();
+                } finally {
+                    MongodPool.bind(previousLeased);
+                    setIsolatedDbName(previousDbName);
+                }
+            }
+        };
+    }
+
+    /**
+     * Binds a generated database to the current thread.
+     *
+     * @param dbName The name of the database, or null to use the mongodb.dbname one.
+     */
+    private void setIsolatedDbName(final String dbName) {
+        if (dbName == null) {
+            this.isolatedDbName.remove();
+        } else {
+            this.isolatedDbName.set(dbName);
+        }
+    }
+
+    /**
+     * Gets the executor dropping the generated databases.
+     *
+     * @return A single daemon thread executor.
+     */
+    private synchronized ExecutorService getDropExecutor() {
+        if (this.dropExecutor == null) {
+            this.dropExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "mongodb-unit-test-drop");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return this.dropExecutor;
+    }
+
+    /**
+     * Gets the executor generating the collections.
+     *
+     * @return A pool of daemon threads, created on demand.
+     */
+    private synchronized ExecutorService getGenerateExecutor() {
+        if (this.generateExecutor == null) {
+            this.generateExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "mongodb-unit-test-generate-" + generateThreadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return this.generateExecutor;
     }
 
     /**
-     * Clears the given collection.
+     * Clears the given collection with the mode of the mongodb.properties file.
      *
      * @param collectionName The name of the collection to clear.
      */
     public void clearCollection(final String collectionName) {
+        clearCollection(collectionName, ClearMode.DEFAULT);
+    }
+
+    /**
+     * Clears the given collection.<br/>
+     * Removing the documents keeps the collection and its indexes, so the next insertion does not have to recreate them.
+     *
+     * @param collectionName The name of the collection to clear.
+     * @param mode           The clear strategy. DEFAULT uses the mongodb.clear.mode property.
+     */
+    public void clearCollection(final String collectionName, final ClearMode mode) {
         final DBCollection collection = getCollection(collectionName);
-        collection.drop();
+        switch (mode == ClearMode.DEFAULT ? getDefaultClearMode() : mode) {
+            case DROP:
+                collection.drop();
+                break;
+            case REMOVE:
+                collection.remove(new BasicDBObject());
+                break;
+            default:
+                if (collection.findOne(null, ID_ONLY) != null) {
+                    collection.remove(new BasicDBObject());
+                }
+        }
     }
 
     /**
-     * Initializes the given collection with an JSON array.
+     * Gets the clear mode configured by the mongodb.clear.mode property.
+     *
+     * @return The configured mode, REMOVE_IF_DIRTY if the property is empty.
+     */
+    private ClearMode getDefaultClearMode() {
+        final String value = MongoProperties.getValue(MONGODB_CLEAR_MODE_PROPERTY);
+        final ClearMode mode = value.isEmpty() ? ClearMode.REMOVE_IF_DIRTY : ClearMode.valueOf(value.toUpperCase());
+        return mode == ClearMode.DEFAULT ? ClearMode.REMOVE_IF_DIRTY : mode;
+    }
+
+    /**
+     * Initializes the given collection with an JSON array.<br/>
+     * Documents are inserted by batches with the mode and the batch size of the mongodb.properties file.
      *
      * @param collectionName The name of the collection to initialize.
      * @param data           Data to insert.
      */
     public void initCollection(final String collectionName, final BasicDBList data) {
+        initCollection(collectionName, data, InsertMode.DEFAULT, 0);
+    }
+
+    /**
+     * Initializes the given collection with an JSON array.<br/>
+     * Documents are inserted by batches, on a single connection so an unacknowledged insertion is completed when this method returns.
+     *
+     * @param collectionName The name of the collection to initialize.
+     * @param data           Data to insert.
+     * @param mode           The write mode. DEFAULT uses the mongodb.insert.mode property.
+     * @param batchSize      The number of documents by insert. 0 uses the mongodb.insert.batchSize property.
+     */
+    public void initCollection(final String collectionName, final BasicDBList data, final InsertMode mode, final int batchSize) {
+        initCollection(collectionName, documents(data), mode, batchSize);
+    }
+
+    /**
+     * Initializes the given collection with a stream of documents.<br/>
+     * Documents are inserted by batches as they are read, so only one batch is kept in memory.
+     * The insertions are done on a single connection so an unacknowledged insertion is completed when this method returns.
+     *
+     * @param collectionName The name of the collection to initialize.
+     * @param documents      Documents to insert.
+     * @param mode           The write mode. DEFAULT uses the mongodb.insert.mode property.
+     * @param batchSize      The number of documents by insert. 0 uses the mongodb.insert.batchSize property.
+     */
+    public void initCollection(final String collectionName, final Iterator<DBObject> documents, final InsertMode mode, final int batchSize) {
+        insertDocuments(getCollection(collectionName), documents, mode, batchSize);
+    }
+
+    /**
+     * Creates the declared indexes of the given collection.<br/>
+     * It is called after the insertion of the documents, so each index is built once from the whole collection.
+     * An index that already exists is left as is, so the indexes kept by the REMOVE and REMOVE_IF_DIRTY clear modes are not rebuilt.
+     *
+     * @param collectionName The name of the collection.
+     * @param indexes        The indexes to create.
+     */
+    public void createIndexes(final String collectionName, final Index... indexes) {
+        final DBCollection collection = getCollection(collectionName);
+        for (Index index : indexes) {
+            final DBObject keys = (DBObject) JSON.parse(index.keys());
+            // The options are sent as is, without the name and the namespace that ensureIndex would add: ensureIndex also caches the
+            // created indexes on the client, which misses the drop of a collection by a server-side function.
+            final DBObject options = new BasicDBObject("name", index.name().isEmpty() ? DBCollection.genIndexName(keys) : index.name())
+                    .append("ns", collection.getFullName());
+            if (index.unique()) {
+                options.put("unique", true);
+            }
+            if (index.sparse()) {
+                options.put("sparse", true);
+            }
+            collection.createIndex(keys, options);
+        }
+    }
+
+    /**
+     * Fills the given collection with generated documents.<br/>
+     * The documents are split into batches, which are generated and inserted by several threads: each thread takes the next batch,
+     * generates its documents and inserts them on its own connection. Only one batch by thread is kept in memory, so the number of
+     * documents is not limited by the heap. A document depends only on the seed and on its index, so the collection is the same
+     * whatever the number of threads.
+     *
+     * @param collectionName The name of the collection to fill.
+     * @param template       The template of the documents.
+     * @param count          The number of documents to generate.
+     * @param seed           The seed of the generator.
+     * @param mode           The write mode. DEFAULT uses the mongodb.insert.mode property.
+     * @param batchSize      The number of documents by insert. 0 uses the mongodb.insert.batchSize property.
+     * @param threads        The number of threads. 0 uses the mongodb.generate.threads property.
+     */
+    public void generateCollection(final String collectionName, final DocumentTemplate template, final long count, final long seed,
+                                   final InsertMode mode, final int batchSize, final int threads) {
         final DBCollection collection = getCollection(collectionName);
-        for (int i = 0; i < data.size(); i++) {
-            collection.insert((DBObject) data.get(i));
+        final InsertMode insertMode = mode == InsertMode.DEFAULT ? getDefaultInsertMode() : mode;
+        final WriteConcern writeConcern = getWriteConcern(insertMode);
+        final int size = batchSize > 0 ? batchSize : getDefaultInsertBatchSize();
+        final long batches = (count + size - 1) / size;
+        final int workers = (int) Math.min(batches, threads > 0 ? threads
+                : Math.max(1, MongoProperties.getInt(MONGODB_GENERATE_THREADS_PROPERTY, DEFAULT_GENERATE_THREADS)));
+        final long initialCount = insertMode == InsertMode.UNACKNOWLEDGED ? collection.count() : 0;
+        final AtomicLong nextBatch = new AtomicLong();
+        if (workers <= 1) {
+            generateBatches(collection, template, count, seed, nextBatch, size, writeConcern);
+            if (insertMode == InsertMode.UNACKNOWLEDGED) {
+                checkInsertedCount(collection, initialCount, count);
+            }
+            return;
+        }
+        final Callable<Void> worker = new Callable<Void>() {
+            @Override
+            public Void call() {
+                generateBatches(collection, template, count, seed, nextBatch, size, writeConcern);
+                return null;
+            }
+        };
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(getGenerateExecutor().submit(worker));
+        }
+        RuntimeException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // The other threads stop at their next batch.
+                nextBatch.set(batches);
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                            : new MongoException("Unable to generate the collection " + collectionName, e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                nextBatch.set(batches);
+                failure = new MongoInterruptedException(e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (insertMode == InsertMode.UNACKNOWLEDGED) {
+            checkInsertedCount(collection, initialCount, count);
+        }
+    }
+
+    /**
+     * Generates and inserts batches of documents until the last batch is taken.
+     *
+     * @param collection   The collection.
+     * @param template     The template of the documents.
+     * @param count        The number of documents of the collection.
+     * @param seed         The seed of the generator.
+     * @param nextBatch    The index of the next batch to generate, shared by the threads.
+     * @param size         The number of documents by batch.
+     * @param writeConcern The write concern of the insertions.
+     */
+    private static void generateBatches(final DBCollection collection, final DocumentTemplate template, final long count, final long seed,
+                                        final AtomicLong nextBatch, final int size, final WriteConcern writeConcern) {
+        final DB database = collection.getDB();
+        database.requestStart();
+        try {
+            final List<DBObject> batch = new ArrayList<>(size);
+            long first = nextBatch.getAndIncrement() * size;
+            // The last error of a connection is the one of its last operation, maybe of a previous use of the connection.
+            final boolean inserting = first < count;
+            while (first < count) {
+                final long last = Math.min(count, first + size);
+                for (long index = first; index < last; index++) {
+                    batch.add(template.generate(seed, index));
+                }
+                collection.insert(batch, writeConcern);
+                batch.clear();
+                first = nextBatch.getAndIncrement() * size;
+            }
+            if (inserting && !writeConcern.callGetLastError()) {
+                database.getLastError().throwOnError();
+            }
+        } finally {
+            database.requestDone();
+        }
+    }
+
+    /**
+     * Inserts a stream of documents into a collection by batches.
+     *
+     * @param collection The collection.
+     * @param documents  Documents to insert.
+     * @param mode       The write mode. DEFAULT uses the mongodb.insert.mode property.
+     * @param batchSize  The number of documents by insert. 0 uses the mongodb.insert.batchSize property.
+     */
+    private void insertDocuments(final DBCollection collection, final Iterator<DBObject> documents, final InsertMode mode, final int batchSize) {
+        final InsertMode insertMode = mode == InsertMode.DEFAULT ? getDefaultInsertMode() : mode;
+        final WriteConcern writeConcern = getWriteConcern(insertMode);
+        final int size = batchSize > 0 ? batchSize : getDefaultInsertBatchSize();
+        final DB database = collection.getDB();
+        database.requestStart();
+        try {
+            final long initialCount = insertMode == InsertMode.UNACKNOWLEDGED ? collection.count() : 0;
+            final List<DBObject> batch = new ArrayList<>();
+            long read = 0;
+            while (documents.hasNext()) {
+                batch.add(documents.next());
+                read++;
+                if (batch.size() == size) {
+                    collection.insert(batch, writeConcern);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                collection.insert(batch, writeConcern);
+            }
+            if (insertMode == InsertMode.UNACKNOWLEDGED && read > 0) {
+                database.getLastError().throwOnError();
+                checkInsertedCount(collection, initialCount, read);
+            }
+        } finally {
+            database.requestDone();
+        }
+    }
+
+    /**
+     * Checks that all documents of an unacknowledged insertion are in the collection.<br/>
+     * The final acknowledgment of an unacknowledged insertion only reports the error of the last batch, so a failed document
+     * of another batch is only detected by the number of documents of the collection.
+     *
+     * @param collection   The collection.
+     * @param initialCount The number of documents of the collection before the insertion.
+     * @param expected     The number of documents to insert.
+     */
+    private static void checkInsertedCount(final DBCollection collection, final long initialCount, final long expected) {
+        final long inserted = collection.count() - initialCount;
+        if (inserted != expected) {
+            throw new MongoException("The unacknowledged insertion of " + expected + " documents into the collection " + collection.getName()
+                    + " added " + inserted + " documents: use the ACKNOWLEDGED or UNORDERED mode to get the errors");
+        }
+    }
+
+    /**
+     * Gets the write concern corresponding to an insert mode.<br/>
+     * The acknowledged modes use the write concern of the mongodb.client.writeConcern property if it is acknowledged, like JOURNALED.
+     *
+     * @param mode The insert mode.
+     * @return The write concern to use for the insertions.
+     */
+    private WriteConcern getWriteConcern(final InsertMode mode) {
+        final WriteConcern clientConcern = getMongoClient().getWriteConcern();
+        final WriteConcern acknowledged = clientConcern.callGetLastError() ? clientConcern : WriteConcern.ACKNOWLEDGED;
+        switch (mode) {
+            case UNORDERED:
+                return acknowledged.continueOnErrorForInsert(true);
+            case UNACKNOWLEDGED:
+                return WriteConcern.UNACKNOWLEDGED.continueOnErrorForInsert(true);
+            default:
+                return acknowledged;
+        }
+    }
+
+    /**
+     * Gets the insert mode configured by the mongodb.insert.mode property.
+     *
+     * @return The configured mode, ACKNOWLEDGED if the property is empty.
+     */
+    private InsertMode getDefaultInsertMode() {
+        final String value = MongoProperties.getValue(MONGODB_INSERT_MODE_PROPERTY);
+        final InsertMode mode = value.isEmpty() ? InsertMode.ACKNOWLEDGED : InsertMode.valueOf(value.toUpperCase());
+        return mode == InsertMode.DEFAULT ? InsertMode.ACKNOWLEDGED : mode;
+    }
+
+    /**
+     * Gets the batch size configured by the mongodb.insert.batchSize property.
+     *
+     * @return The configured batch size, 1000 if the property is empty.
+     */
+    private int getDefaultInsertBatchSize() {
+        return MongoProperties.getInt(MONGODB_INSERT_BATCH_SIZE_PROPERTY, DEFAULT_INSERT_BATCH_SIZE);
+    }
+
+    /**
+     * Indicates if a collection still holds the documents of a fixture, so clearing it and initializing it again with the fixture can be skipped.<br/>
+     * The collection must have been seeded with this fixture, and the dbHash of the collection must not have changed since
+     * {@link MongoManager#markSeeded(String, String)}: any write made by the test or by the code under test is detected.<br/>
+     * It is always false when the mongodb.seed.skipUnchanged property is <i>false</i>, when the clear mode drops the collection
+     * (an index created by a test changes no hash) or when the backend does not support the dbHash command.
+     *
+     * @param collectionName The name of the collection.
+     * @param fixture        The location of the fixture.
+     * @param mode           The clear mode requested before the initialization.
+     * @return true if the collection can be kept as is.
+     */
+    public boolean isSeeded(final String collectionName, final String fixture, final ClearMode mode) {
+        if (!MongoProperties.getBoolean(MONGODB_SEED_SKIP_UNCHANGED_PROPERTY, true)
+                || (mode == ClearMode.DEFAULT ? getDefaultClearMode() : mode) == ClearMode.DROP) {
+            return false;
+        }
+        final DBCollection collection = getCollection(collectionName);
+        final Seed seed = this.seeds.get(collection.getFullName());
+        if (seed == null || !seed.fixture.equals(fixture)) {
+            return false;
+        }
+        final String hash = getHash(collection);
+        return hash != null && hash.equals(seed.hash);
+    }
+
+    /**
+     * Records that a collection has just been cleared and initialized with a fixture.
+     *
+     * @param collectionName The name of the collection.
+     * @param fixture        The location of the fixture.
+     * @see MongoManager#isSeeded(String, String, ClearMode)
+     */
+    public void markSeeded(final String collectionName, final String fixture) {
+        if (!MongoProperties.getBoolean(MONGODB_SEED_SKIP_UNCHANGED_PROPERTY, true)) {
+            return;
+        }
+        final DBCollection collection = getCollection(collectionName);
+        final String hash = getHash(collection);
+        if (hash == null) {
+            this.seeds.remove(collection.getFullName());
+        } else {
+            this.seeds.put(collection.getFullName(), new Seed(fixture, hash));
+        }
+    }
+
+    /**
+     * Gets the hash of the documents of a collection with the dbHash command.
+     *
+     * @param collection The collection.
+     * @return The hash, null if the collection does not exist or the backend does not support the command.
+     */
+    private String getHash(final DBCollection collection) {
+        final CommandResult result = collection.getDB().command(new BasicDBObject("dbHash", 1)
+                .append("collections", Collections.singletonList(collection.getName())));
+        if (!result.ok() || !(result.get("collections") instanceof DBObject)) {
+            return null;
+        }
+        final Object hash = ((DBObject) result.get("collections")).get(collection.getName());
+        return hash == null ? null : hash.toString();
+    }
+
+    /**
+     * Takes a snapshot of the given collection.<br/>
+     * The documents are copied into a snapshot collection of the mongodb.dbname database, on the server side when possible.
+     *
+     * @param collectionName The name of the collection to snapshot.
+     * @see MongoManager#restoreCollection(String)
+     */
+    public void snapshotCollection(final String collectionName) {
+        copyCollection(getCollection(collectionName), db.getCollection(SNAPSHOT_PREFIX + collectionName));
+    }
+
+    /**
+     * Restores the given collection from its snapshot.<br/>
+     * The collection is dropped and the documents of the snapshot are copied back, on the server side when possible.
+     *
+     * @param collectionName The name of the collection to restore.
+     * @see MongoManager#snapshotCollection(String)
+     */
+    public void restoreCollection(final String collectionName) {
+        copyCollection(db.getCollection(SNAPSHOT_PREFIX + collectionName), getCollection(collectionName));
+    }
+
+    /**
+     * Replaces the documents of a collection by the documents of another one.<br/>
+     * When both collections are in the same database, the copy is done by a server-side function, so no document is sent over the socket.
+     * Otherwise, the documents are streamed by batches.
+     *
+     * @param source The collection to copy.
+     * @param target The collection to replace.
+     */
+    private void copyCollection(final DBCollection source, final DBCollection target) {
+        if (source.getDB().getName().equals(target.getDB().getName())) {
+            try {
+                source.getDB().eval(COPY_COLLECTION_FUNCTION, source.getName(), target.getName());
+                return;
+            } catch (CommandFailureException e) {
+                // The backend does not run server-side JavaScript: the documents are copied through the client.
+            }
+        }
+        target.drop();
+        final DBCursor cursor = source.find();
+        try {
+            insertDocuments(target, cursor, InsertMode.ACKNOWLEDGED, 0);
+        } finally {
+            cursor.close();
         }
     }
 
@@ -129,104 +961,228 @@ public final class MongoManager {
      * @param ignoredProperties  The properties to ignore during the check.
      */
     public void checkCollection(final BasicDBList expectedCollection, final String collectionName, final String[] ignoredProperties) {
-        final DBCollection actualCollection = getCollection(collectionName);
-        assertEquals(expectedCollection, actualCollection, ignoredProperties);
+        checkCollection(documents(expectedCollection), collectionName, ignoredProperties);
     }
 
     /**
-     * Asserts the equality of an expected collection of data and the mongodb collection.<br/>
-     * An assertion error is thrown when the two collections have not the same size.
-     * The expected and the mongodb collections are filtered with ignore properties array.
+     * Checks a stream of expected documents with an existed mongodb collection from its name, with the mode of the mongodb.check.mode property.
      *
-     * @param expectedCollection
-     * @param actualCollection
-     * @param ignoredProperties
-     * @see java.lang.AssertionError
+     * @param expectedDocuments The expected documents.
+     * @param collectionName    The name of the mongodb collection to check.
+     * @param ignoredProperties The properties to ignore during the check.
+     * @see MongoManager#checkCollection(Iterator, String, String[], CheckMode)
      */
-    private void assertEquals(final BasicDBList expectedCollection, final DBCollection actualCollection, final String[] ignoredProperties) {
-        Assert.assertEquals("The expected collection does not have the same number of documents as mongodb collection.", expectedCollection.size(), actualCollection.count());
-        final List<DBObject> expectedValues = buildDBObjectList(expectedCollection, ignoredProperties);
-        final List<DBObject> actualValues = buildDBObjectList(actualCollection, ignoredProperties);
-        assertEquals(expectedValues, actualValues);
+    public void checkCollection(final Iterator<DBObject> expectedDocuments, final String collectionName, final String[] ignoredProperties) {
+        checkCollection(expectedDocuments, collectionName, ignoredProperties, CheckMode.DEFAULT);
     }
 
     /**
-     * Asserts the equality between two expected list of DBObject representing the expected collection documents and the mongodb ones.<br/>
-     * An assertion error is thrown if an expected document is not found in the mongodb collection.
+     * Checks a stream of expected documents with an existed mongodb collection from its name.<br/>
+     * In the CLIENT mode, the documents of the collection are compared on the client side.
+     * In the SERVER mode, the comparison is done by a server-side function, so the collection is never sent over the socket.
+     * Ignored properties with a wildcard cannot be excluded by the server: they are always checked on the client side.<br/>
+     * The assertion message ends with a {@link CollectionDiff} report of at most mongodb.check.maxMismatches missing and unexpected documents.
+     * <p/>
+     * Assertion errors are executed when:
+     * <ul>
+     * <li>The two collections have not the same size.</li>
+     * <li>An expected document is not found in the mongodb collection.</li>
+     * </ul>
      *
-     * @param expected The expected collection documents as a list of DBObject.
-     * @param actual   The mongodb collection documents as a list of DBObject.
+     * @param expectedDocuments The expected documents.
+     * @param collectionName    The name of the mongodb collection to check.
+     * @param ignoredProperties The properties to ignore during the check, as dotted paths with optional <i>*</i> wildcards.
+     * @param mode              The comparison mode, DEFAULT for the mongodb.check.mode property.
+     * @see FieldMask
      */
-    private void assertEquals(final List<DBObject> expected, final List<DBObject> actual) {
-        final Iterator<DBObject> iterator = expected.iterator();
-        while (iterator.hasNext()) {
-            final DBObject expectedDocument = iterator.next();
-            Assert.assertTrue("The expected document <" + expectedDocument + "> was not found in the mongodb collection.", actual.contains(expectedDocument));
+    public void checkCollection(final Iterator<DBObject> expectedDocuments, final String collectionName, final String[] ignoredProperties,
+                                final CheckMode mode) {
+        final FieldMask mask = FieldMask.compile(ignoredProperties);
+        if ((mode == CheckMode.DEFAULT ? getDefaultCheckMode() : mode) == CheckMode.SERVER && !mask.hasWildcards()) {
+            checkCollectionOnServer(expectedDocuments, collectionName, mask);
+        } else {
+            checkCollectionOnClient(expectedDocuments, collectionName, mask);
         }
     }
 
     /**
-     * Builds a list of DBObject from a mongodb collection.<br/>
-     * A mongo keys filter is created from the ignored properties array.<br/>
-     * Finds all documents from the mongodb collection with the built keys filter.
+     * Gets the check mode configured by the mongodb.check.mode property.
      *
-     * @param collection       The mongodb collection.
-     * @param ignoredProperies The array of ignored properties to use to build the mongodb find keys filter.
-     * @return A filtered list of DBObject.
+     * @return The configured mode, CLIENT if the property is empty.
      */
-    private List<DBObject> buildDBObjectList(final DBCollection collection, final String[] ignoredProperies) {
-        final DBObject ignoredPropertiesFilter = buildIgnoredPropertiesFilter(ignoredProperies);
-        return collection.find(null, ignoredPropertiesFilter).toArray();
+    private CheckMode getDefaultCheckMode() {
+        final String value = MongoProperties.getValue(MONGODB_CHECK_MODE_PROPERTY);
+        final CheckMode mode = value.isEmpty() ? CheckMode.CLIENT : CheckMode.valueOf(value.toUpperCase());
+        return mode == CheckMode.DEFAULT ? CheckMode.CLIENT : mode;
     }
 
     /**
-     * Builds a mongo keys filter for the find method on a DBCollection from the array of ignored properties.
+     * Gets the maximum number of mismatches configured by the mongodb.check.maxMismatches property.
      *
-     * @param ignoredProperties Ignored properties to use.
-     * @return A DBObject representing the keys filter.
-     * @see com.mongodb.DBCollection#find(com.mongodb.DBObject, com.mongodb.DBObject)
+     * @return The configured maximum, 10 if the property is empty.
      */
-    private DBObject buildIgnoredPropertiesFilter(final String[] ignoredProperties) {
-        final DBObject filter = new BasicDBObject();
-        if (ignoredProperties != null) {
-            for (String ignoredProperty : ignoredProperties) {
-                filter.put(ignoredProperty, 0);
-            }
+    private int getMaxMismatches() {
+        return Math.max(1, MongoProperties.getInt(MONGODB_CHECK_MAX_MISMATCHES_PROPERTY, DEFAULT_CHECK_MAX_MISMATCHES));
+    }
+
+    /**
+     * Checks a stream of expected documents with a mongodb collection on the client side.<br/>
+     * The expected documents are filtered with the ignored properties and counted in a {@link DocumentMultiset}.
+     * The mongodb documents are then streamed from a cursor, filtered by the projection of the mask and by the mask itself,
+     * and each one removes its match from the multiset,
+     * so the comparison is done in linear time and the mongodb collection is never materialized.
+     * Duplicated documents are counted.
+     * The stream stops as soon as mongodb.check.maxMismatches unexpected documents are found.
+     * <p/>
+     * Assertion errors are executed when:
+     * <ul>
+     * <li>The two collections have not the same size.</li>
+     * <li>An expected document is not found in the mongodb collection.</li>
+     * </ul>
+     *
+     * @param expectedDocuments The expected documents.
+     * @param collectionName    The name of the mongodb collection to check.
+     * @param mask              The mask of the properties to ignore during the check.
+     */
+    private void checkCollectionOnClient(final Iterator<DBObject> expectedDocuments, final String collectionName, final FieldMask mask) {
+        final DBCollection actualCollection = getCollection(collectionName);
+        final DocumentMultiset expected = new DocumentMultiset();
+        while (expectedDocuments.hasNext()) {
+            expected.add(mask.apply(expectedDocuments.next()));
         }
-        return filter;
+        final long actualCount = actualCollection.count();
+        final DBCursor cursor = actualCollection.find(null, mask.getProjection());
+        final CollectionDiff diff;
+        try {
+            diff = CollectionDiff.compare(expected, actualCount, mask.apply(cursor), getMaxMismatches());
+        } finally {
+            cursor.close();
+        }
+        assertNoDifference(diff);
     }
 
     /**
-     * Builds a list of DBObject from a simple BSON documents list.<br/>
-     * During the build of the list, documents are filtered with the ignored properties.
+     * Fails if a diff is not empty.<br/>
+     * The message starts with the size of the collections if they differ, with the first missing document otherwise,
+     * and ends with the report of the diff.
      *
-     * @param basicDBList       The simple BSON documents list.
-     * @param ignoredProperties The array of ignored properties to use to filter the original list.
-     * @return A filtered list of DBObject.
+     * @param diff The diff of the collections.
      */
-    private List<DBObject> buildDBObjectList(final BasicDBList basicDBList, final String[] ignoredProperties) {
-        final List<DBObject> newList = new ArrayList<>();
-        for (int i = 0; i < basicDBList.size(); i++) {
-            newList.add(filterDBObject((DBObject) basicDBList.get(i), ignoredProperties));
+    private static void assertNoDifference(final CollectionDiff diff) {
+        if (diff.isEmpty()) {
+            return;
+        }
+        final String report = "\n" + diff.getReport();
+        if (diff.getExpectedCount() != diff.getActualCount()) {
+            Assert.fail("The expected collection does not have the same number of documents as mongodb collection. expected:<"
+                    + diff.getExpectedCount() + "> but was:<" + diff.getActualCount() + ">" + report);
+        }
+        if (!diff.getMissing().isEmpty()) {
+            Assert.fail("The expected document <" + diff.getMissing().get(0) + "> was not found in the mongodb collection." + report);
         }
-        return newList;
+        Assert.fail("The mongodb document <" + diff.getUnexpected().get(0) + "> was not found in the expected collection." + report);
     }
 
     /**
-     * Filters a DBObject with the ignored properties array.<br/>
-     * If the document contains a property from the ignored properties array, the property will be removed from the original document.
+     * Checks a stream of expected documents with a mongodb collection on the server side.<br/>
+     * The expected documents are filtered with the ignored properties and inserted by batches into a temporary collection
+     * of the same database, each one wrapped in the <i>expected</i> field so it keeps its own _id or its lack of _id.
+     * A server-side function then counts the canonical form of the expected documents, the order of the keys being not significant
+     * and the numbers being compared by value whatever their type, as on the client side, and removes the documents of the collection from these counts: only the size of the collection and up to
+     * mongodb.check.maxMismatches missing and unexpected documents are sent back. The function runs through db.eval, which holds
+     * the global write lock during the whole comparison.<br/>
+     * If the backend does not run server-side JavaScript, the documents of the temporary collection are compared on the client side.
      *
-     * @param document          The document to filter.
-     * @param ignoredProperties Ignored properties to use for the filtering.
-     * @return A filtered DBObject.
+     * @param expectedDocuments The expected documents.
+     * @param collectionName    The name of the mongodb collection to check.
+     * @param mask              The mask of the properties to ignore during the check, without wildcard.
      */
-    private DBObject filterDBObject(final DBObject document, final String[] ignoredProperties) {
-        int index = 0;
-        while (index < ignoredProperties.length) {
-            document.removeField(ignoredProperties[index]);
-            index++;
+    private void checkCollectionOnServer(final Iterator<DBObject> expectedDocuments, final String collectionName, final FieldMask mask) {
+        final DBCollection actualCollection = getCollection(collectionName);
+        final DBCollection expectedCollection = actualCollection.getDB().getCollection(CHECK_PREFIX + collectionName);
+        expectedCollection.drop();
+        try {
+            insertDocuments(expectedCollection, wrapDocuments(mask.apply(expectedDocuments)), InsertMode.ACKNOWLEDGED, 0);
+            final DBObject result;
+            try {
+                result = (DBObject) actualCollection.getDB().eval(COMPARE_COLLECTIONS_FUNCTION, collectionName, expectedCollection.getName(),
+                        mask.getProjection(), getMaxMismatches());
+            } catch (CommandFailureException e) {
+                // The backend does not run server-side JavaScript: the documents are compared on the client side.
+                final DBCursor cursor = expectedCollection.find();
+                try {
+                    checkCollectionOnClient(unwrapDocuments(cursor), collectionName, mask);
+                } finally {
+                    cursor.close();
+                }
+                return;
+            }
+            assertNoDifference(new CollectionDiff(expectedCollection.count(), ((Number) result.get("count")).longValue(),
+                    ((Number) result.get("missingCount")).intValue(), (List<?>) result.get("missing"), (List<?>) result.get("unexpected"), false));
+        } finally {
+            expectedCollection.drop();
         }
-        return document;
+    }
+
+    /**
+     * Wraps each expected document in the <i>expected</i> field of a new document.
+     *
+     * @param documents The expected documents.
+     * @return The wrapped documents.
+     */
+    private static Iterator<DBObject> wrapDocuments(final Iterator<DBObject> documents) {
+        return new Iterator<DBObject>() {
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public DBObject next() {
+                return new BasicDBObject(EXPECTED_FIELD, documents.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Unwraps the expected documents of a temporary collection.
+     *
+     * @param documents The wrapped documents.
+     * @return The documents of their <i>expected</i> field.
+     */
+    private static Iterator<DBObject> unwrapDocuments(final Iterator<DBObject> documents) {
+        return new Iterator<DBObject>() {
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public DBObject next() {
+                return (DBObject) documents.next().get(EXPECTED_FIELD);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Iterates over the documents of a simple BSON documents list.
+     *
+     * @param basicDBList The simple BSON documents list.
+     * @return An iterator of the documents.
+     */
+    @SuppressWarnings("unchecked")
+    private static Iterator<DBObject> documents(final BasicDBList basicDBList) {
+        return (Iterator<DBObject>) (Iterator<?>) basicDBList.iterator();
     }
 
     /**
@@ -237,19 +1193,53 @@ public final class MongoManager {
      * @see com.mongodb.DBCollection
      */
     public DBCollection getCollection(final String collectionName) {
-        return db.getCollection(collectionName);
+        return getDB().getCollection(collectionName);
+    }
+
+    /**
+     * Gets the database used by the current thread.<br/>
+     * It is the generated database bound by {@link MongoManager#openIsolatedDatabase()} if any, the mongodb.dbname one otherwise.
+     *
+     * @return The database of the current thread.
+     */
+    public DB getDB() {
+        final String dbName = this.isolatedDbName.get();
+        if (dbName != null) {
+            return getDB(dbName);
+        }
+        return db;
     }
 
     /**
-     * Util method to get a value from the mongodb.properties file.
+     * Gets a database of the mongod process from its name.
      *
-     * @param key The property key to get the value.
-     * @return The value corresponding to the key. If the key does not exist, an empty String is returned.
+     * @param dbName The name of the database.
+     * @return The database, or null if the mongod process is not running.
      */
-    private String getValue(final String key) {
-        if (BUNDLE.containsKey(key)) {
-            return BUNDLE.getString(key);
+    private synchronized DB getDB(final String dbName) {
+        return this.mongoClient == null ? null : this.mongoClient.getDB(dbName);
+    }
+
+    /**
+     * Gets the port configured by the mongodb.port property.
+     *
+     * @return The configured port, 0 if the property is empty.
+     */
+    private static int getConfiguredPort() {
+        return MongoProperties.getInt(MONGODB_PORT_PROPERTY, 0);
+    }
+
+    /**
+     * Fixture a collection was seeded with, and the hash of the collection at that time.
+     */
+    private static final class Seed {
+
+        private final String fixture;
+        private final String hash;
+
+        Seed(final String fixture, final String hash) {
+            this.fixture = fixture;
+            this.hash = hash;
         }
-        return "";
     }
 }
@@ -0,0 +1,64 @@
+package com.github.wayis.framework.test.mongodb;
+
+import java.util.ResourceBundle;
+
+/**
+ * Access to the properties of the mongodb.properties file.<br/>
+ * This file must be on classpath root.
+ */
+public final class MongoProperties {
+
+    private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("mongodb");
+
+    private MongoProperties() {
+    }
+
+    /**
+     * Util method to get a value from the mongodb.properties file.
+     *
+     * @param key The property key to get the value.
+     * @return The value corresponding to the key. If the key does not exist, an empty String is returned.
+     */
+    public static String getValue(final String key) {
+        if (BUNDLE.containsKey(key)) {
+            return BUNDLE.getString(key).trim();
+        }
+        return "";
+    }
+
+    /**
+     * Util method to get an integer value from the mongodb.properties file.
+     *
+     * @param key          The property key to get the value.
+     * @param defaultValue The value to return if the property is empty.
+     * @return The value corresponding to the key, or the default value.
+     */
+    public static int getInt(final String key, final int defaultValue) {
+        final String value = getValue(key);
+        return value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Util method to get a long value from the mongodb.properties file.
+     *
+     * @param key          The property key to get the value.
+     * @param defaultValue The value to return if the property is empty.
+     * @return The value corresponding to the key, or the default value.
+     */
+    public static long getLong(final String key, final long defaultValue) {
+        final String value = getValue(key);
+        return value.isEmpty() ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Util method to get a boolean value from the mongodb.properties file.
+     *
+     * @param key          The property key to get the value.
+     * @param defaultValue The value to return if the property is empty.
+     * @return The value corresponding to the key, or the default value.
+     */
+    public static boolean getBoolean(final String key, final boolean defaultValue) {
+        final String value = getValue(key);
+        return value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.wayis.framework.test.mongodb;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.config.AbstractMongoConfig.Net;
+import de.flapdoodle.embed.mongo.config.AbstractMongoConfig.Storage;
+import de.flapdoodle.embed.mongo.config.AbstractMongoConfig.Timeout;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Backend forking a mongod process with flapdoodle embed.mongo.<br/>
+ * The binary is resolved by {@link MongodDistribution} and the dbpath is prepared according to {@link DataDirectoryTemplate}
+ * and {@link MongodStorage}.
+ */
+final class MongodBackend implements MongoBackend {
+
+    private final File fixedDbPath;
+    private File temporaryDbPath;
+    private MongodExecutable mongodExe;
+    private MongodProcess mongod;
+
+    /**
+     * Constructs the backend.
+     *
+     * @param fixedDbPath The dbpath of the mongod process, kept after the shutdown. null to use a temporary one.
+     */
+    MongodBackend(final File fixedDbPath) {
+        this.fixedDbPath = fixedDbPath;
+    }
+
+    /**
+     * Starts the mongod process.<br/>
+     * If a data directory template is configured, mongod starts on a copy of it, so its collections are available without any insertion.<br/>
+     * With the memory storage, the dbpath is created on a tmpfs.
+     *
+     * @param host The host the clients connect to.
+     * @param port The port of the mongod process.
+     * @throws IOException If the mongod process cannot be started.
+     * @see de.flapdoodle.embed.mongo.runtime.Mongod
+     * @see de.flapdoodle.embed.mongo.MongodExecutable
+     */
+    @Override
+    public void start(final String host, final int port) throws IOException {
+        File dbPath = this.fixedDbPath;
+        if (dbPath == null) {
+            this.temporaryDbPath = DataDirectoryTemplate.prepare();
+            if (this.temporaryDbPath == null && MongodStorage.isMemory()) {
+                this.temporaryDbPath = MongodStorage.createDbPath();
+            }
+            dbPath = this.temporaryDbPath;
+        }
+        final Storage storage = dbPath == null ? new Storage() : new Storage(dbPath.getAbsolutePath(), null, 0);
+
+        this.mongodExe = MongodDistribution.getStarter().prepare(new MongodConfig(MongodDistribution.getVersion(), new Net(port, Network
+                .localhostIsIPv6()), storage, new Timeout()));
+        this.mongod = this.mongodExe.start();
+    }
+
+    @Override
+    public void stop() {
+        if (this.mongod != null) {
+            this.mongod.stop();
+            this.mongod = null;
+        }
+        if (this.mongodExe != null) {
+            this.mongodExe.stop();
+            this.mongodExe = null;
+        }
+        if (this.temporaryDbPath != null) {
+            FileUtils.deleteQuietly(this.temporaryDbPath);
+            this.temporaryDbPath = null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.wayis.framework.test.mongodb;
+
+import de.flapdoodle.embed.mongo.Command;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.Paths;
+import de.flapdoodle.embed.mongo.config.DownloadConfigBuilder;
+import de.flapdoodle.embed.mongo.config.RuntimeConfigBuilder;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.config.store.IDownloadConfig;
+import de.flapdoodle.embed.process.distribution.IVersion;
+import de.flapdoodle.embed.process.extract.UUIDTempNaming;
+import de.flapdoodle.embed.process.io.directories.FixedPath;
+import de.flapdoodle.embed.process.io.directories.PropertyOrPlatformTempDir;
+import de.flapdoodle.embed.process.store.ArtifactStore;
+
+import java.io.File;
+
+/**
+ * Resolution of the mongod binary started by the {@link MongoManager}.<br/>
+ * The binary is configured by these properties of the mongodb.properties file:
+ * <ul>
+ * <li>mongodb.version (optional): the pinned version of mongod, as a constant of {@link Version.Main} (<i>V2_4</i>),
+ * of {@link Version} (<i>V2_4_1</i>) or as a raw version (<i>2.4.1</i>). <i>DEVELOPMENT</i> by default.</li>
+ * <li>mongodb.artifacts.dir (optional): the local store of the downloaded archives, <i>~/.embedmongo</i> by default.
+ * With the <i>classpath:</i> prefix, archives are read from the classpath, at the same relative path as in the store,
+ * so tests can run offline from an artifact published in a repository.</li>
+ * <li>mongodb.download.path (optional): the URL of a mirror of fastdl.mongodb.org.</li>
+ * <li>mongodb.executables.dir (optional): the directory where the extracted binaries are kept and reused by the next JVMs.
+ * <i>mongo-unit-test/executables</i> in the temporary directory by default.</li>
+ * </ul>
+ */
+public final class MongodDistribution {
+
+    private static final String MONGODB_VERSION_PROPERTY = "mongodb.version";
+    private static final String MONGODB_ARTIFACTS_DIR_PROPERTY = "mongodb.artifacts.dir";
+    private static final String MONGODB_DOWNLOAD_PATH_PROPERTY = "mongodb.download.path";
+    private static final String MONGODB_EXECUTABLES_DIR_PROPERTY = "mongodb.executables.dir";
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String DEFAULT_DIRECTORY = "mongo-unit-test";
+
+    private static MongodStarter starter = null;
+
+    private MongodDistribution() {
+    }
+
+    /**
+     * Gets the version of mongod configured by the mongodb.version property.
+     *
+     * @return The version of mongod.
+     */
+    public static IVersion getVersion() {
+        final String value = MongoProperties.getValue(MONGODB_VERSION_PROPERTY);
+        if (value.isEmpty()) {
+            return Version.Main.DEVELOPMENT;
+        }
+        for (Version.Main version : Version.Main.values()) {
+            if (version.name().equalsIgnoreCase(value)) {
+                return version;
+            }
+        }
+        for (Version version : Version.values()) {
+            if (version.name().equalsIgnoreCase(value) || version.asInDownloadPath().equals(value)) {
+                return version;
+            }
+        }
+        return new IVersion() {
+            @Override
+            public String asInDownloadPath() {
+                return value;
+            }
+
+            @Override
+            public String toString() {
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Gets the starter of mongod processes, shared by all managers of the JVM.
+     *
+     * @return The starter using the configured artifact store.
+     */
+    static synchronized MongodStarter getStarter() {
+        if (starter == null) {
+            final Paths paths = new Paths(Command.MongoD);
+            final DownloadConfigBuilder downloadConfig = new DownloadConfigBuilder().defaultsForCommand(Command.MongoD);
+            final String downloadPath = MongoProperties.getValue(MONGODB_DOWNLOAD_PATH_PROPERTY);
+            if (!downloadPath.isEmpty()) {
+                downloadConfig.downloadPath(downloadPath.endsWith("/") ? downloadPath : downloadPath + "/");
+            }
+            String artifactsDir = MongoProperties.getValue(MONGODB_ARTIFACTS_DIR_PROPERTY);
+            String classpathArtifacts = null;
+            if (artifactsDir.startsWith(CLASSPATH_PREFIX)) {
+                classpathArtifacts = artifactsDir.substring(CLASSPATH_PREFIX.length());
+                artifactsDir = new File(getDefaultDirectory(), "artifacts").getAbsolutePath();
+            }
+            if (!artifactsDir.isEmpty()) {
+                downloadConfig.artifactStorePath(new FixedPath(artifactsDir));
+            }
+            final IDownloadConfig config = downloadConfig.build();
+
+            final String executablesDir = MongoProperties.getValue(MONGODB_EXECUTABLES_DIR_PROPERTY);
+            final ReusableArtifactStore artifactStore = new ReusableArtifactStore(
+                    new ArtifactStore(config, new PropertyOrPlatformTempDir(), new UUIDTempNaming()), config, paths,
+                    executablesDir.isEmpty() ? new File(getDefaultDirectory(), "executables") : new File(executablesDir),
+                    classpathArtifacts);
+            starter = MongodStarter.getInstance(new RuntimeConfigBuilder().defaults(Command.MongoD)
+                    .artifactStore(artifactStore).commandLinePostProcessor(MongodStorage.getCommandLinePostProcessor()).build());
+        }
+        return starter;
+    }
+
+    private static File getDefaultDirectory() {
+        return new File(new PropertyOrPlatformTempDir().asFile(), DEFAULT_DIRECTORY);
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.wayis.framework.test.mongodb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pool of isolated mongod processes for test classes running in parallel.<br/>
+ * The pool is enabled when the mongodb.pool.size property of the mongodb.properties file is greater than 1.
+ * Each mongod process of the pool is started on a free port found by {@link de.flapdoodle.embed.process.runtime.Network},
+ * so several pools (one per Surefire fork) never collide.<br/>
+ * A test class leases one instance for its whole run: while the lease is held, {@link MongoManager#getInstance()}
+ * returns the leased instance on the current thread, so the rules and the tests use it without any change.
+ * The test methods running on other threads, like with the parallel=methods mode of Surefire, are run through
+ * {@link MongodPool#runWith(MongoManager, Runnable)} to get the instance of their class.<br/>
+ * When the pool is disabled, {@link MongodPool#lease()} returns the singleton {@link MongoManager}.
+ *
+ * @see MongoManager
+ */
+public final class MongodPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongodPool.class);
+
+    private static final String MONGODB_POOL_SIZE_PROPERTY = "mongodb.pool.size";
+
+    private static final ThreadLocal<MongoManager> LEASED = new ThreadLocal<>();
+
+    private static MongodPool instance = null;
+
+    private final int size;
+    private final List<MongoManager> managers = new ArrayList<>();
+    private final BlockingQueue<MongoManager> available = new LinkedBlockingQueue<>();
+
+    private MongodPool(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the singleton instance of MongodPool.
+     *
+     * @return The unique instance of MongodPool.
+     */
+    public static synchronized MongodPool getInstance() {
+        if (instance == null) {
+            instance = new MongodPool(MongoProperties.getInt(MONGODB_POOL_SIZE_PROPERTY, 1));
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the instance leased by the current thread.
+     *
+     * @return The leased instance or null if the current thread does not hold a lease.
+     */
+    static MongoManager current() {
+        return LEASED.get();
+    }
+
+    /**
+     * Binds an instance to the current thread, as if it was leased by it.
+     *
+     * @param manager The instance, or null to unbind the current one.
+     */
+    static void bind(final MongoManager manager) {
+        if (manager == null) {
+            LEASED.remove();
+        } else {
+            LEASED.set(manager);
+        }
+    }
+
+    /**
+     * Runs a task with an instance bound to the current thread, as if it was leased by it.<br/>
+     * The previous instance of the thread is bound again when the task ends.
+     *
+     * @param manager The leased instance.
+     * @param task    The task, like a test method run on another thread than the one of its test class.
+     */
+    public static void runWith(final MongoManager manager, final Runnable task) {
+        final MongoManager previous = LEASED.get();
+        bind(manager);
+        try {
+            task.run();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Indicates if the pool manages several mongod processes.
+     *
+     * @return true if the mongodb.pool.size property is greater than 1.
+     */
+    public boolean isEnabled() {
+        return this.size > 1;
+    }
+
+    /**
+     * Leases a mongod instance to the current thread.<br/>
+     * The call blocks until an instance is available. The instance is not started: use {@link MongoManager#acquire()}.
+     *
+     * @return The leased instance, or the singleton {@link MongoManager} if the pool is disabled.
+     * @throws InterruptedException If the thread is interrupted while waiting for an instance.
+     * @see MongodPool#giveBack(MongoManager)
+     */
+    public MongoManager lease() throws InterruptedException {
+        if (!isEnabled()) {
+            return MongoManager.getInstance();
+        }
+        MongoManager manager = this.available.poll();
+        if (manager == null) {
+            manager = create();
+        }
+        if (manager == null) {
+            manager = this.available.take();
+        }
+        LEASED.set(manager);
+        return manager;
+    }
+
+    /**
+     * Gives back the instance leased by the current thread.
+     *
+     * @param manager The leased instance.
+     * @see MongodPool#lease()
+     */
+    public void giveBack(final MongoManager manager) {
+        if (!isEnabled()) {
+            return;
+        }
+        LEASED.remove();
+        this.available.offer(manager);
+    }
+
+    /**
+     * Creates a new instance if the pool is not full.
+     *
+     * @return The new instance, or null if the pool already has its maximal size.
+     */
+    private synchronized MongoManager create() {
+        if (this.managers.size() >= this.size) {
+            return null;
+        }
+        final MongoManager manager = new MongoManager(0);
+        this.managers.add(manager);
+        LOGGER.info("mongod instance " + this.managers.size() + "/" + this.size + " added to the pool");
+        return manager;
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.wayis.framework.test.mongodb;
+
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.io.directories.PropertyOrPlatformTempDir;
+import de.flapdoodle.embed.process.runtime.ICommandLinePostProcessor;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Storage of the mongod processes started by the {@link MongoManager}.<br/>
+ * mongod is always started with <i>--nojournal --smallfiles --noprealloc</i>. The storage is configured by these properties
+ * of the mongodb.properties file:
+ * <ul>
+ * <li>mongodb.storage (optional): <i>disk</i> (default) to keep the dbpath in the temporary directory,
+ * <i>memory</i> to create the dbpath on a tmpfs, so mongod never waits for the disk.</li>
+ * <li>mongodb.storage.dir (optional): the tmpfs used by the <i>memory</i> storage, <i>/dev/shm</i> by default.
+ * If it does not exist, the temporary directory is used.</li>
+ * <li>mongodb.storage.engine (optional): a storage engine passed to mongod with <i>--storageEngine</i>, for a pinned version
+ * supporting it (<i>ephemeralForTest</i> or <i>inMemory</i> since mongod 3.x). The mmapv1 options are then removed.
+ * It cannot be used with a data directory template.</li>
+ * </ul>
+ */
+public final class MongodStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongodStorage.class);
+
+    private static final String MONGODB_STORAGE_PROPERTY = "mongodb.storage";
+    private static final String MONGODB_STORAGE_DIR_PROPERTY = "mongodb.storage.dir";
+    private static final String MONGODB_STORAGE_ENGINE_PROPERTY = "mongodb.storage.engine";
+
+    private static final String STORAGE_MEMORY = "memory";
+    private static final String DEFAULT_STORAGE_DIR = "/dev/shm";
+    private static final List<String> MMAPV1_OPTIONS = Arrays.asList("--smallfiles", "--noprealloc");
+
+    private MongodStorage() {
+    }
+
+    /**
+     * Indicates if the dbpath of mongod must be created on a tmpfs.
+     *
+     * @return true if mongodb.storage is <i>memory</i>.
+     */
+    public static boolean isMemory() {
+        return STORAGE_MEMORY.equalsIgnoreCase(MongoProperties.getValue(MONGODB_STORAGE_PROPERTY));
+    }
+
+    /**
+     * Creates a new empty dbpath, on the tmpfs with the <i>memory</i> storage, in the temporary directory otherwise.<br/>
+     * The caller must delete it after the shutdown of mongod.
+     *
+     * @return The new dbpath.
+     * @throws IOException If the directory cannot be created.
+     */
+    static File createDbPath() throws IOException {
+        File baseDir = new PropertyOrPlatformTempDir().asFile();
+        if (isMemory()) {
+            final String storageDir = MongoProperties.getValue(MONGODB_STORAGE_DIR_PROPERTY);
+            final File memoryDir = new File(storageDir.isEmpty() ? DEFAULT_STORAGE_DIR : storageDir);
+            if (memoryDir.isDirectory() && memoryDir.canWrite()) {
+                baseDir = memoryDir;
+            } else {
+                LOGGER.warn("The memory storage directory '" + memoryDir + "' is not available, the temporary directory is used");
+            }
+        }
+        final File dbPath = File.createTempFile("embedmongo-db-", "", baseDir);
+        FileUtils.forceDelete(dbPath);
+        FileUtils.forceMkdir(dbPath);
+        return dbPath;
+    }
+
+    /**
+     * Gets the post processor adding the configured storage engine to the mongod command line.
+     *
+     * @return The post processor.
+     */
+    static ICommandLinePostProcessor getCommandLinePostProcessor() {
+        final String engine = MongoProperties.getValue(MONGODB_STORAGE_ENGINE_PROPERTY);
+        return new ICommandLinePostProcessor() {
+            @Override
+            public List<String> process(final Distribution distribution, final List<String> commandLine) {
+                if (engine.isEmpty()) {
+                    return commandLine;
+                }
+                final List<String> result = new ArrayList<>(commandLine);
+                result.removeAll(MMAPV1_OPTIONS);
+                result.add("--storageEngine");
+                result.add(engine);
+                return result;
+            }
+        };
+    }
+}
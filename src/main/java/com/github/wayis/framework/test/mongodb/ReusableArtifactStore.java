@@ -0,0 +1,125 @@
+package com.github.wayis.framework.test.mongodb;
+
+import com.github.wayis.framework.test.util.StreamUtils;
+import de.flapdoodle.embed.process.config.store.IDownloadConfig;
+import de.flapdoodle.embed.process.config.store.IPackageResolver;
+import de.flapdoodle.embed.process.distribution.Distribution;
+import de.flapdoodle.embed.process.store.IArtifactStore;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Artifact store extracting each mongod binary once in a fixed directory.<br/>
+ * The default store extracts the archive into a new temporary file for each mongod process and deletes it at shutdown.
+ * This store keeps the extracted binary, so the next processes and the next JVMs start it directly.
+ * A lock of the directory, held by a single thread of the JVM and by a single JVM at a time, prevents concurrent extractions.<br/>
+ * If a classpath location is given, the archive is copied from the classpath into the local store instead of being downloaded.
+ */
+final class ReusableArtifactStore implements IArtifactStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableArtifactStore.class);
+
+    private final IArtifactStore delegate;
+    private final IDownloadConfig downloadConfig;
+    private final IPackageResolver packageResolver;
+    private final File executablesDir;
+    private final String classpathArtifacts;
+
+    /**
+     * Constructs the store.
+     *
+     * @param delegate           The store downloading and extracting the archives.
+     * @param downloadConfig     The configuration of the delegate store.
+     * @param packageResolver    The resolver of the archive paths and executable names.
+     * @param executablesDir     The directory of the extracted binaries.
+     * @param classpathArtifacts The classpath location of the archives, null to download them.
+     */
+    ReusableArtifactStore(final IArtifactStore delegate, final IDownloadConfig downloadConfig, final IPackageResolver packageResolver,
+                          final File executablesDir, final String classpathArtifacts) {
+        this.delegate = delegate;
+        this.downloadConfig = downloadConfig;
+        this.packageResolver = packageResolver;
+        this.executablesDir = executablesDir;
+        this.classpathArtifacts = classpathArtifacts;
+    }
+
+    @Override
+    public boolean checkDistribution(final Distribution distribution) throws IOException {
+        if (getExecutable(distribution).isFile()) {
+            return true;
+        }
+        copyClasspathArtifact(distribution);
+        return this.delegate.checkDistribution(distribution);
+    }
+
+    @Override
+    public File extractExe(final Distribution distribution) throws IOException {
+        final File executable = getExecutable(distribution);
+        if (executable.isFile()) {
+            return executable;
+        }
+        final File directory = executable.getParentFile();
+        // The mongod processes of a pool start in parallel: the lock makes the other threads and JVMs wait for the extraction.
+        FileLocks.run(new File(directory, ".lock"), new FileLocks.LockedAction() {
+            @Override
+            public void run() throws IOException {
+                if (!executable.isFile()) {
+                    LOGGER.info("Extracting mongod {} into {}", distribution, directory);
+                    final File extracted = ReusableArtifactStore.this.delegate.extractExe(distribution);
+                    final File copy = new File(directory, executable.getName() + ".tmp");
+                    try {
+                        FileUtils.copyFile(extracted, copy);
+                    } finally {
+                        ReusableArtifactStore.this.delegate.removeExecutable(distribution, extracted);
+                    }
+                    if (!copy.setExecutable(true) || !copy.renameTo(executable)) {
+                        FileUtils.deleteQuietly(copy);
+                        throw new IOException("Unable to install the mongod binary " + executable);
+                    }
+                }
+            }
+        });
+        return executable;
+    }
+
+    @Override
+    public void removeExecutable(final Distribution distribution, final File executable) {
+        // The binary is kept for the next mongod processes.
+    }
+
+    private File getExecutable(final Distribution distribution) {
+        final String name = distribution.getVersion().asInDownloadPath() + "-" + distribution.getPlatform() + "-" + distribution.getBitsize();
+        return new File(new File(this.executablesDir, name.toLowerCase()), this.packageResolver.executableFilename(distribution));
+    }
+
+    private void copyClasspathArtifact(final Distribution distribution) throws IOException {
+        if (this.classpathArtifacts == null) {
+            return;
+        }
+        final String path = this.packageResolver.getPath(distribution);
+        final File artifact = new File(this.downloadConfig.getArtifactStorePath().asFile(), path);
+        if (artifact.isFile()) {
+            return;
+        }
+        final String resource = this.classpathArtifacts.replaceAll("/+$", "") + "/" + path;
+        final InputStream input = ReusableArtifactStore.class.getResourceAsStream(resource.startsWith("/") ? resource : "/" + resource);
+        if (input == null) {
+            throw new FileNotFoundException("Unable to load the mongod archive '" + resource + "' from the classpath");
+        }
+        try {
+            final File copy = new File(artifact.getAbsolutePath() + ".tmp");
+            FileUtils.copyInputStreamToFile(input, copy);
+            if (!copy.renameTo(artifact) && !artifact.isFile()) {
+                throw new IOException("Unable to copy the mongod archive to " + artifact);
+            }
+        } finally {
+            StreamUtils.closeQuietly(input);
+        }
+    }
+}
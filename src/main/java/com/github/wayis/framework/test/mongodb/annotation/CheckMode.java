@@ -0,0 +1,27 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+/**
+ * Strategies used to compare a collection with its expected documents.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection#mode()
+ */
+public enum CheckMode {
+
+    /**
+     * Uses the mode of the mongodb.check.mode property, CLIENT if it is not set.
+     */
+    DEFAULT,
+
+    /**
+     * The documents of the collection are streamed to the client and compared with the expected documents.
+     */
+    CLIENT,
+
+    /**
+     * The expected documents are inserted into a temporary collection and a server-side function compares both collections:
+     * only the counts and up to mongodb.check.maxMismatches missing and unexpected documents are sent back. Use it for large collections.
+     * The function runs through db.eval, which holds the global write lock for the whole comparison and is deprecated by the newer
+     * servers, hence CLIENT as default. A backend without server-side JavaScript falls back to the CLIENT mode.
+     */
+    SERVER
+}
@@ -6,9 +6,11 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Annotation used by the runner to clear a specific collection.
+ * Annotation used by the runner to clear a specific collection.<br/>
+ * On the test class, it applies to every test method, unless the method declares the same collection.
+ * Use {@link ClearCollections} to clear several collections.
  */
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ClearCollection {
 
@@ -16,4 +18,9 @@ public @interface ClearCollection {
      * The name of the collection to clear.
      */
     String name();
+
+    /**
+     * The strategy used to clear the collection.
+     */
+    ClearMode mode() default ClearMode.DEFAULT;
 }
@@ -0,0 +1,31 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+/**
+ * Strategies used to clear a collection.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.ClearCollection#mode()
+ */
+public enum ClearMode {
+
+    /**
+     * Uses the mode of the mongodb.clear.mode property, REMOVE_IF_DIRTY if it is not set.
+     */
+    DEFAULT,
+
+    /**
+     * The collection is dropped with its indexes: the next insertion recreates it.
+     * Use it when the tests create indexes that must not be seen by the next tests, or to clear very large collections.
+     */
+    DROP,
+
+    /**
+     * The documents are removed: the collection and its indexes are kept, so the next insertion does not recreate them.
+     */
+    REMOVE,
+
+    /**
+     * The documents are removed only if the collection is not empty,
+     * so a collection left empty by the previous test costs a single query.
+     */
+    REMOVE_IF_DIRTY
+}
@@ -8,9 +8,11 @@ import java.lang.annotation.Target;
 /**
  * Annotation used by the runner to verify the given collection.<br/>
  * The file must be on JSON format.<br/>
- * Documents order in the JSON array is not a constraint.
+ * Documents order in the JSON array is not a constraint.<br/>
+ * On the test class, it applies to every test method, unless the method declares the same collection.
+ * Use {@link ExpectedCollections} to verify several collections.
  */
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ExpectedCollection {
 
@@ -20,12 +22,19 @@ public @interface ExpectedCollection {
     String name();
 
     /**
-     * The file in JSON format.
+     * The file in JSON format, or in BSON format if its name ends with .bson. A name ending with .gz is a gzip compressed file.
      */
     String file();
 
     /**
      * Properties to ignore during documents comparison.
+     * A property is a dotted path, like audit.updatedAt, which also applies to the documents of an array.
+     * The * wildcard matches any field or any array element, like *.updatedAt or items.*.price.
      */
     String[] ignoredProperties() default "_id";
+
+    /**
+     * The strategy used to compare the collection with the file.
+     */
+    CheckMode mode() default CheckMode.DEFAULT;
 }
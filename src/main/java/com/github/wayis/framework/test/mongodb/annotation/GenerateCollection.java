@@ -0,0 +1,61 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used by the runner to fill a specific collection with generated documents, for tests needing realistic data sizes.<br/>
+ * The documents are generated from a template by a seeded generator: the same annotation always produces the same documents.
+ * They are generated and inserted by parallel batches, without being loaded in memory.
+ * On the test class, it applies to every test method, unless the method declares the same collection.
+ * Use {@link GenerateCollections} to generate several collections.
+ *
+ * @see com.github.wayis.framework.test.mongodb.generator.DocumentTemplate
+ * @see com.github.wayis.framework.test.mongodb.generator.ValueGenerators
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GenerateCollection {
+
+    /**
+     * The name of the collection to generate.
+     */
+    String name();
+
+    /**
+     * The template of the documents in JSON format, whose strings can hold generator expressions like {age: "${int:18:80}"}.
+     */
+    String template();
+
+    /**
+     * The number of documents to generate.
+     */
+    long count();
+
+    /**
+     * The seed of the generator. Another seed generates other documents from the same template.
+     */
+    long seed() default 0;
+
+    /**
+     * The write mode used to insert the documents.
+     */
+    InsertMode mode() default InsertMode.DEFAULT;
+
+    /**
+     * The number of documents sent by insert. 0 uses the mongodb.insert.batchSize property.
+     */
+    int batchSize() default 0;
+
+    /**
+     * The number of threads generating and inserting the batches. 0 uses the mongodb.generate.threads property.
+     */
+    int threads() default 0;
+
+    /**
+     * The indexes of the collection, built after the insertion of the documents.
+     */
+    Index[] indexes() default {};
+}
@@ -0,0 +1,22 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used by the runner to generate several collections.<br/>
+ * The collections are processed concurrently.
+ *
+ * @see GenerateCollection
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GenerateCollections {
+
+    /**
+     * The collections to generate.
+     */
+    GenerateCollection[] value();
+}
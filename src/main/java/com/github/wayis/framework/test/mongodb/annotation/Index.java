@@ -0,0 +1,34 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Index declared on a collection by {@link InitCollection#indexes()}.<br/>
+ * The index is built after the documents of the fixture are inserted, which is faster than updating it at each insertion.
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Index {
+
+    /**
+     * The keys of the index in JSON format, like {lastname: 1, firstname: 1}.
+     */
+    String keys();
+
+    /**
+     * The name of the index. An empty name uses the name generated by mongodb from the keys.
+     */
+    String name() default "";
+
+    /**
+     * true to reject the documents with a duplicate key.
+     */
+    boolean unique() default false;
+
+    /**
+     * true to skip the documents without the keys.
+     */
+    boolean sparse() default false;
+}
@@ -6,9 +6,11 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Annotation used by the runner to initialize a specific collection with a JSON file.
+ * Annotation used by the runner to initialize a specific collection with a JSON file.<br/>
+ * On the test class, it applies to every test method, unless the method declares the same collection.
+ * Use {@link InitCollections} to initialize several collections.
  */
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface InitCollection {
 
@@ -18,7 +20,23 @@ public @interface InitCollection {
     String name();
 
     /**
-     * The file in JSON format.
+     * The file in JSON format, or in BSON format if its name ends with .bson. A name ending with .gz is a gzip compressed file.
      */
     String file();
+
+    /**
+     * The write mode used to insert the documents.
+     */
+    InsertMode mode() default InsertMode.DEFAULT;
+
+    /**
+     * The number of documents sent by insert. 0 uses the mongodb.insert.batchSize property.
+     */
+    int batchSize() default 0;
+
+    /**
+     * The indexes of the collection, built after the insertion of the documents.
+     * An index that already exists, for example kept by a REMOVE clear mode, is not rebuilt.
+     */
+    Index[] indexes() default {};
 }
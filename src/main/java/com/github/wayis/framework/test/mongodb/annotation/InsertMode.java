@@ -0,0 +1,31 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+/**
+ * Write modes used to insert the documents of a fixture.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.InitCollection#mode()
+ */
+public enum InsertMode {
+
+    /**
+     * Uses the mode of the mongodb.insert.mode property, ACKNOWLEDGED if it is not set.
+     */
+    DEFAULT,
+
+    /**
+     * Each batch is acknowledged and the insertion stops at the first error.
+     */
+    ACKNOWLEDGED,
+
+    /**
+     * Each batch is acknowledged and the insertion continues after an error.
+     */
+    UNORDERED,
+
+    /**
+     * Batches are not acknowledged: a single acknowledgment is requested after the last batch.
+     * It only reports the error of the last batch, so the number of documents of the collection is then checked:
+     * the insertion fails if a document is missing, without the error of this document.
+     */
+    UNACKNOWLEDGED
+}
@@ -0,0 +1,21 @@
+package com.github.wayis.framework.test.mongodb.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation used by the runner to seed collections once for a test class and to restore them before each test.<br/>
+ * Before the first test, each collection is cleared, initialized with its JSON file and copied into a snapshot collection.
+ * Before each test, the collection is restored from its snapshot, which is cheaper than parsing and inserting the JSON file again.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Snapshot {
+
+    /**
+     * The collections to seed and their JSON files.
+     */
+    InitCollection[] value();
+}
@@ -0,0 +1,233 @@
+package com.github.wayis.framework.test.mongodb.check;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Differences between the expected documents and the documents of a mongodb collection.<br/>
+ * The diff is bounded: at most <i>limit</i> missing and unexpected documents are kept, so its memory does not depend on the size of the collections.
+ * Each missing document is paired with the most similar unexpected document, which gives the field-level differences.
+ */
+public final class CollectionDiff {
+
+    private final long expectedCount;
+    private final long actualCount;
+    private final int missingCount;
+    private final List<Object> missing;
+    private final List<Object> unexpected;
+    private final boolean stopped;
+
+    /**
+     * Constructs a diff.
+     *
+     * @param expectedCount The number of expected documents.
+     * @param actualCount   The number of documents of the mongodb collection.
+     * @param missingCount  The number of expected documents not found in the mongodb collection.
+     * @param missing       The first missing documents.
+     * @param unexpected    The first documents of the mongodb collection not found in the expected documents.
+     * @param stopped       true if the comparison stopped before the end of the mongodb collection: the missing documents are then unknown.
+     */
+    public CollectionDiff(final long expectedCount, final long actualCount, final int missingCount, final List<?> missing,
+                          final List<?> unexpected, final boolean stopped) {
+        this.expectedCount = expectedCount;
+        this.actualCount = actualCount;
+        this.missingCount = missingCount;
+        this.missing = new ArrayList<Object>(missing);
+        this.unexpected = new ArrayList<Object>(unexpected);
+        this.stopped = stopped;
+    }
+
+    /**
+     * Compares the expected documents with a stream of documents of a mongodb collection.<br/>
+     * Each document of the stream removes its match from the expected documents. The comparison stops as soon as <i>limit</i>
+     * unexpected documents are found, so a failing check does not read the rest of the collection.
+     *
+     * @param expected    The expected documents. The matched documents are removed from it.
+     * @param actualCount The number of documents of the mongodb collection.
+     * @param actual      The documents of the mongodb collection.
+     * @param limit       The maximum number of missing and unexpected documents kept in the diff.
+     * @return The diff.
+     */
+    public static CollectionDiff compare(final DocumentMultiset expected, final long actualCount, final Iterator<?> actual, final int limit) {
+        final long expectedCount = expected.size();
+        final List<Object> unexpected = new ArrayList<>();
+        while (actual.hasNext() && unexpected.size() < limit) {
+            final Object document = actual.next();
+            if (!expected.remove(document)) {
+                unexpected.add(document);
+            }
+        }
+        final boolean stopped = actual.hasNext();
+        if (stopped) {
+            return new CollectionDiff(expectedCount, actualCount, 0, Collections.emptyList(), unexpected, true);
+        }
+        return new CollectionDiff(expectedCount, actualCount, expected.size(), expected.documents(limit), unexpected, false);
+    }
+
+    /**
+     * Indicates if the mongodb collection holds exactly the expected documents.
+     *
+     * @return true if there is no difference.
+     */
+    public boolean isEmpty() {
+        return expectedCount == actualCount && missingCount == 0 && unexpected.isEmpty();
+    }
+
+    /**
+     * Gets the number of expected documents.
+     *
+     * @return The number of expected documents.
+     */
+    public long getExpectedCount() {
+        return expectedCount;
+    }
+
+    /**
+     * Gets the number of documents of the mongodb collection.
+     *
+     * @return The number of documents of the mongodb collection.
+     */
+    public long getActualCount() {
+        return actualCount;
+    }
+
+    /**
+     * Gets the first missing documents.
+     *
+     * @return The expected documents not found in the mongodb collection, empty if the comparison stopped early.
+     */
+    public List<Object> getMissing() {
+        return missing;
+    }
+
+    /**
+     * Gets the first unexpected documents.
+     *
+     * @return The documents of the mongodb collection not found in the expected documents.
+     */
+    public List<Object> getUnexpected() {
+        return unexpected;
+    }
+
+    /**
+     * Indicates if the comparison stopped before the end of the mongodb collection.
+     *
+     * @return true if the limit of unexpected documents was reached.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Gets the field-level differences between each missing document and the most similar unexpected document.
+     *
+     * @return The differences, one line per field.
+     */
+    public List<String> getDifferences() {
+        final List<String> differences = new ArrayList<>();
+        final List<Object> candidates = new ArrayList<>(unexpected);
+        for (Object document : missing) {
+            final Object closest = findClosest(document, candidates);
+            if (closest != null) {
+                candidates.remove(closest);
+                addDifferences(differences, "", document, closest);
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Builds a compact report of the diff, one line per missing document, unexpected document and field difference.
+     *
+     * @return The report.
+     */
+    public String getReport() {
+        final StringBuilder report = new StringBuilder();
+        report.append(expectedCount).append(" expected documents, ").append(actualCount).append(" mongodb documents");
+        if (stopped) {
+            report.append(", the check stopped after ").append(unexpected.size()).append(" unexpected documents");
+        } else {
+            report.append(", ").append(missingCount).append(" missing, ").append(unexpected.size()).append(" unexpected");
+        }
+        for (Object document : missing) {
+            report.append("\n- missing: ").append(document);
+        }
+        if (missingCount > missing.size()) {
+            report.append("\n- ... ").append(missingCount - missing.size()).append(" more missing documents");
+        }
+        for (Object document : unexpected) {
+            report.append("\n+ unexpected: ").append(document);
+        }
+        for (String difference : getDifferences()) {
+            report.append("\n~ ").append(difference);
+        }
+        return report.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getReport();
+    }
+
+    /**
+     * Finds the candidate sharing the most equal fields with a document.
+     *
+     * @param document   The document.
+     * @param candidates The candidate documents.
+     * @return The closest candidate, or null if no candidate has an equal field.
+     */
+    private static Object findClosest(final Object document, final List<Object> candidates) {
+        Object closest = null;
+        int closestScore = 0;
+        for (Object candidate : candidates) {
+            int score = 0;
+            for (String key : DocumentKey.keySet(document)) {
+                if (DocumentKey.keySet(candidate).contains(key)
+                        && DocumentKey.canonicalEquals(DocumentKey.get(document, key), DocumentKey.get(candidate, key))) {
+                    score++;
+                }
+            }
+            if (score > closestScore) {
+                closest = candidate;
+                closestScore = score;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Adds the differences of two documents, recursively in their sub-documents.
+     *
+     * @param differences The differences.
+     * @param prefix      The path of the documents, empty for the root documents.
+     * @param expected    The expected document.
+     * @param actual      The mongodb document.
+     */
+    private static void addDifferences(final List<String> differences, final String prefix, final Object expected, final Object actual) {
+        final Set<String> keys = new TreeSet<>(DocumentKey.keySet(expected));
+        keys.addAll(DocumentKey.keySet(actual));
+        for (String key : keys) {
+            final String path = prefix + key;
+            final boolean inExpected = DocumentKey.keySet(expected).contains(key);
+            final boolean inActual = DocumentKey.keySet(actual).contains(key);
+            final Object expectedValue = DocumentKey.get(expected, key);
+            final Object actualValue = DocumentKey.get(actual, key);
+            if (!inActual) {
+                differences.add(path + ": expected <" + expectedValue + "> but was absent");
+            } else if (!inExpected) {
+                differences.add(path + ": unexpected <" + actualValue + ">");
+            } else if (DocumentKey.isDocument(expectedValue) && DocumentKey.isDocument(actualValue)) {
+                addDifferences(differences, path + ".", expectedValue, actualValue);
+            } else if (!DocumentKey.canonicalEquals(expectedValue, actualValue)) {
+                differences.add(path + ": expected <" + expectedValue + "> but was <" + actualValue + ">");
+            }
+        }
+    }
+}
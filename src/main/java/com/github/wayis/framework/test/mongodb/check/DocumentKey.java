@@ -0,0 +1,204 @@
+package com.github.wayis.framework.test.mongodb.check;
+
+import org.bson.BSONObject;
+import org.bson.types.Binary;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Hash key of a document, used to compare documents in constant time.<br/>
+ * The canonical hash of the document is computed once:
+ * <ul>
+ * <li>the order of the keys of a document is not significant,</li>
+ * <li>the order of the elements of an array is significant,</li>
+ * <li>numbers are compared by their double value whatever their type, as {@link com.mongodb.BasicDBObject#equals(Object)} does,
+ * so 30, 30L and 30.0 are equal,</li>
+ * <li>binary data and regular expressions are compared by value.</li>
+ * </ul>
+ * Other values are compared with their equals method.
+ */
+public final class DocumentKey {
+
+    private final Object document;
+    private final int hash;
+
+    /**
+     * Constructs the key of a document.
+     *
+     * @param document The document. It must not be modified while the key is used.
+     */
+    public DocumentKey(final Object document) {
+        this.document = document;
+        this.hash = canonicalHash(document);
+    }
+
+    /**
+     * Gets the document of this key.
+     *
+     * @return The document.
+     */
+    public Object getDocument() {
+        return document;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DocumentKey)) {
+            return false;
+        }
+        final DocumentKey key = (DocumentKey) other;
+        return hash == key.hash && canonicalEquals(document, key.document);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(document);
+    }
+
+    /**
+     * Computes the canonical hash of a value.
+     *
+     * @param value The value.
+     * @return The hash, independent of the order of the document keys.
+     */
+    static int canonicalHash(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof List) {
+            int result = 1;
+            for (Object element : (List<?>) value) {
+                result = 31 * result + canonicalHash(element);
+            }
+            return result;
+        }
+        if (value instanceof Map) {
+            int result = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result += entry.getKey().hashCode() ^ canonicalHash(entry.getValue());
+            }
+            return result;
+        }
+        if (value instanceof BSONObject) {
+            final BSONObject object = (BSONObject) value;
+            int result = 0;
+            for (String key : object.keySet()) {
+                result += key.hashCode() ^ canonicalHash(object.get(key));
+            }
+            return result;
+        }
+        if (value instanceof byte[]) {
+            return Arrays.hashCode((byte[]) value);
+        }
+        if (value instanceof Binary) {
+            return ((Binary) value).getType() ^ Arrays.hashCode(((Binary) value).getData());
+        }
+        if (value instanceof Pattern) {
+            return ((Pattern) value).pattern().hashCode() ^ ((Pattern) value).flags();
+        }
+        if (value instanceof Number) {
+            // 0.0 == -0.0, so both must have the same hash.
+            final double number = ((Number) value).doubleValue();
+            return Double.valueOf(number == 0 ? 0.0 : number).hashCode();
+        }
+        return value.hashCode();
+    }
+
+    /**
+     * Compares two values with the rules of the canonical hash.
+     *
+     * @param first  The first value.
+     * @param second The second value.
+     * @return true if the two values are equal.
+     */
+    static boolean canonicalEquals(final Object first, final Object second) {
+        if (first == second) {
+            return true;
+        }
+        if (first == null || second == null) {
+            return false;
+        }
+        if (first instanceof List && second instanceof List) {
+            final List<?> firstList = (List<?>) first;
+            final List<?> secondList = (List<?>) second;
+            if (firstList.size() != secondList.size()) {
+                return false;
+            }
+            final Iterator<?> iterator = secondList.iterator();
+            for (Object element : firstList) {
+                if (!canonicalEquals(element, iterator.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (isDocument(first) && isDocument(second)) {
+            final Set<String> keys = keySet(first);
+            if (!keys.equals(keySet(second))) {
+                return false;
+            }
+            for (String key : keys) {
+                if (!canonicalEquals(get(first, key), get(second, key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (first instanceof byte[] && second instanceof byte[]) {
+            return Arrays.equals((byte[]) first, (byte[]) second);
+        }
+        if (first instanceof Binary && second instanceof Binary) {
+            return ((Binary) first).getType() == ((Binary) second).getType()
+                    && Arrays.equals(((Binary) first).getData(), ((Binary) second).getData());
+        }
+        if (first instanceof Pattern && second instanceof Pattern) {
+            return ((Pattern) first).pattern().equals(((Pattern) second).pattern())
+                    && ((Pattern) first).flags() == ((Pattern) second).flags();
+        }
+        if (first instanceof Number && second instanceof Number) {
+            return ((Number) first).doubleValue() == ((Number) second).doubleValue();
+        }
+        return first.equals(second);
+    }
+
+    static boolean isDocument(final Object value) {
+        return !(value instanceof List) && (value instanceof Map || value instanceof BSONObject);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Set<String> keySet(final Object document) {
+        if (document instanceof BSONObject) {
+            return ((BSONObject) document).keySet();
+        }
+        return ((Map<String, ?>) document).keySet();
+    }
+
+    static Object get(final Object document, final String key) {
+        if (document instanceof BSONObject) {
+            return ((BSONObject) document).get(key);
+        }
+        return ((Map<?, ?>) document).get(key);
+    }
+}
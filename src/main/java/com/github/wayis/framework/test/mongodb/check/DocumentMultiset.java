@@ -0,0 +1,109 @@
+package com.github.wayis.framework.test.mongodb.check;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multiset of documents, compared with their {@link DocumentKey}.<br/>
+ * Adding and removing a document is done in constant time, so two collections of n documents are compared in O(n).
+ * Duplicated documents are counted: a document added twice must be removed twice.
+ * The remaining documents are returned in the order they were added.
+ */
+public final class DocumentMultiset {
+
+    private final Map<DocumentKey, Integer> counts = new LinkedHashMap<>();
+    private int size;
+
+    /**
+     * Adds a document.
+     *
+     * @param document The document to add.
+     */
+    public void add(final Object document) {
+        final DocumentKey key = new DocumentKey(document);
+        final Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+        size++;
+    }
+
+    /**
+     * Removes one occurrence of a document.
+     *
+     * @param document The document to remove.
+     * @return true if an equal document was found and removed.
+     */
+    public boolean remove(final Object document) {
+        final DocumentKey key = new DocumentKey(document);
+        final Integer count = counts.get(key);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            counts.remove(key);
+        } else {
+            counts.put(key, count - 1);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Gets the number of documents, duplicates included.
+     *
+     * @return The number of documents.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indicates if the multiset is empty.
+     *
+     * @return true if all documents were removed.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the first remaining document.
+     *
+     * @return The first added document that was not removed, or null if the multiset is empty.
+     */
+    public Object first() {
+        if (counts.isEmpty()) {
+            return null;
+        }
+        return counts.keySet().iterator().next().getDocument();
+    }
+
+    /**
+     * Gets the remaining documents, duplicates included.
+     *
+     * @return A new list of the documents.
+     */
+    public List<Object> documents() {
+        return documents(size);
+    }
+
+    /**
+     * Gets the first remaining documents, duplicates included.
+     *
+     * @param limit The maximum number of documents.
+     * @return A new list of at most limit documents, in the order they were added.
+     */
+    public List<Object> documents(final int limit) {
+        final List<Object> documents = new ArrayList<>(Math.min(size, limit));
+        for (Map.Entry<DocumentKey, Integer> entry : counts.entrySet()) {
+            for (int i = 0; i < entry.getValue() && documents.size() < limit; i++) {
+                documents.add(entry.getKey().getDocument());
+            }
+            if (documents.size() == limit) {
+                break;
+            }
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.wayis.framework.test.mongodb.check;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.BSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled mask of the properties ignored by a collection check.<br/>
+ * A property is a dotted path, like <i>audit.updatedAt</i>, whose segments are field names or the <i>*</i> wildcard:
+ * <ul>
+ * <li>a field name matches the field of a document, and the field of each document of an array, like a mongo projection,</li>
+ * <li>the <i>*</i> wildcard matches any field of a document and any element of an array, like <i>items.*.price</i>.</li>
+ * </ul>
+ * A path ending with the wildcard, like <i>items.*</i>, ignores the whole content of the field: a document is emptied of all its
+ * fields and an array of all its elements, whatever their type, so <i>[1]</i> and <i>[{}]</i> are both masked to <i>[]</i>.
+ * The field itself is kept, so its presence and its type are still compared.
+ * The paths are compiled once into a tree, and masks are cached by list of properties, so each annotation is compiled once.
+ * The same mask is applied to the expected documents and to the mongodb documents, in place and in a single pass.
+ */
+public final class FieldMask {
+
+    private static final String WILDCARD = "*";
+
+    private static final ConcurrentMap<List<String>, FieldMask> CACHE = new ConcurrentHashMap<>();
+
+    private final Node root = new Node();
+    private final DBObject projection;
+    private boolean wildcards;
+
+    /**
+     * Compiles the mask of a list of properties.
+     *
+     * @param ignoredProperties The dotted paths of the properties.
+     */
+    private FieldMask(final List<String> ignoredProperties) {
+        for (String property : ignoredProperties) {
+            Node node = root;
+            for (String segment : property.split("\\.")) {
+                if (WILDCARD.equals(segment)) {
+                    wildcards = true;
+                    if (node.wildcard == null) {
+                        node.wildcard = new Node();
+                    }
+                    node = node.wildcard;
+                } else {
+                    Node child = node.children.get(segment);
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(segment, child);
+                    }
+                    node = child;
+                }
+            }
+            node.excluded = true;
+        }
+        this.projection = new BasicDBObject();
+        addProjection(root, "");
+    }
+
+    /**
+     * Gets the mask of a list of properties, compiled on its first use.
+     *
+     * @param ignoredProperties The dotted paths of the properties, null for none.
+     * @return The mask.
+     */
+    public static FieldMask compile(final String... ignoredProperties) {
+        final List<String> key = ignoredProperties == null ? Collections.<String>emptyList() : Arrays.asList(ignoredProperties);
+        FieldMask mask = CACHE.get(key);
+        if (mask == null) {
+            mask = new FieldMask(key);
+            final FieldMask previous = CACHE.putIfAbsent(key, mask);
+            if (previous != null) {
+                mask = previous;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the exclusion projection of the properties without wildcard, to filter the documents on the server side.<br/>
+     * A path below an excluded path is left out, so the projection has no path collision.
+     *
+     * @return The projection. It must not be modified.
+     */
+    public DBObject getProjection() {
+        return projection;
+    }
+
+    /**
+     * Indicates if a property has a wildcard, which no projection can express.
+     *
+     * @return true if the mask has a wildcard.
+     */
+    public boolean hasWildcards() {
+        return wildcards;
+    }
+
+    /**
+     * Removes the ignored properties from a document.
+     *
+     * @param document The document, modified in place.
+     * @return The document.
+     */
+    public DBObject apply(final DBObject document) {
+        applyToDocument(root, document);
+        return document;
+    }
+
+    /**
+     * Removes the ignored properties from each document of a stream.
+     *
+     * @param documents The documents, modified in place when they are read.
+     * @return The masked documents.
+     */
+    public Iterator<DBObject> apply(final Iterator<DBObject> documents) {
+        return new Iterator<DBObject>() {
+            @Override
+            public boolean hasNext() {
+                return documents.hasNext();
+            }
+
+            @Override
+            public DBObject next() {
+                return apply(documents.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void addProjection(final Node node, final String prefix) {
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            if (child.getValue().excluded) {
+                projection.put(prefix + child.getKey(), 0);
+            } else {
+                addProjection(child.getValue(), prefix + child.getKey() + ".");
+            }
+        }
+    }
+
+    private static void applyToValue(final Node node, final Object value) {
+        if (value instanceof List) {
+            if (node.wildcard != null && node.wildcard.excluded) {
+                ((List<?>) value).clear();
+                return;
+            }
+            for (Object element : (List<?>) value) {
+                applyToValue(node, element);
+                if (node.wildcard != null) {
+                    applyToValue(node.wildcard, element);
+                }
+            }
+        } else if (value instanceof BSONObject) {
+            applyToDocument(node, (BSONObject) value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void applyToDocument(final Node node, final BSONObject document) {
+        if (document instanceof Map) {
+            final Iterator<Map.Entry<String, Object>> fields = ((Map<String, Object>) document).entrySet().iterator();
+            while (fields.hasNext()) {
+                final Map.Entry<String, Object> field = fields.next();
+                if (applyToField(node, field.getKey(), field.getValue())) {
+                    fields.remove();
+                }
+            }
+        } else {
+            for (String key : new ArrayList<>(document.keySet())) {
+                if (applyToField(node, key, document.get(key))) {
+                    document.removeField(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the mask to a field of a document.
+     *
+     * @param node  The node of the document.
+     * @param key   The name of the field.
+     * @param value The value of the field, masked in place if it is kept.
+     * @return true if the field must be removed.
+     */
+    private static boolean applyToField(final Node node, final String key, final Object value) {
+        final Node child = node.children.get(key);
+        if ((child != null && child.excluded) || (node.wildcard != null && node.wildcard.excluded)) {
+            return true;
+        }
+        if (child != null) {
+            applyToValue(child, value);
+        }
+        if (node.wildcard != null) {
+            applyToValue(node.wildcard, value);
+        }
+        return false;
+    }
+
+    /**
+     * Segment of the compiled paths.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private Node wildcard;
+        private boolean excluded;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of a BSON fixture.<br/>
+ * The fixture is a sequence of BSON documents, as written by mongodump or by the {@link FixtureConverter}.
+ * Each document is decoded from its bytes without any text parsing, and only the current document is kept in memory:
+ * its bytes are read into a buffer reused by the next documents.
+ */
+public final class BsonFixtureReader implements FixtureReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final DefaultDBDecoder decoder = new DefaultDBDecoder();
+    private byte[] buffer = new byte[1024];
+    private boolean finished;
+    private DBObject next;
+
+    /**
+     * Constructs a reader.
+     *
+     * @param input The source of the BSON fixture, already decompressed.
+     */
+    public BsonFixtureReader(final InputStream input) {
+        this.input = input instanceof BufferedInputStream ? input : new BufferedInputStream(input, BUFFER_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readDocument();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read the BSON fixture", e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DBObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final DBObject document = next;
+        next = null;
+        return document;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Reads the next document of the fixture: its little-endian length, then its bytes.
+     *
+     * @return The decoded document, or null at the end of the fixture.
+     * @throws IOException If the fixture cannot be read.
+     */
+    private DBObject readDocument() throws IOException {
+        final int first = input.read();
+        if (first == -1) {
+            finished = true;
+            return null;
+        }
+        buffer[0] = (byte) first;
+        readFully(1, 3);
+        final int length = (buffer[0] & 0xff) | (buffer[1] & 0xff) << 8 | (buffer[2] & 0xff) << 16 | (buffer[3] & 0xff) << 24;
+        if (length < 5) {
+            throw new IllegalStateException("Invalid length " + length + " of a document in the BSON fixture");
+        }
+        if (length > buffer.length) {
+            final byte[] larger = new byte[Math.max(length, 2 * buffer.length)];
+            System.arraycopy(buffer, 0, larger, 0, 4);
+            buffer = larger;
+        }
+        readFully(4, length - 4);
+        return decoder.decode(buffer, (DBCollection) null);
+    }
+
+    /**
+     * Reads bytes of the current document into the buffer.
+     *
+     * @param offset The offset in the buffer.
+     * @param length The number of bytes.
+     * @throws IOException If the fixture cannot be read or ends in the middle of the document.
+     */
+    private void readFully(final int offset, final int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int count = input.read(buffer, offset + read, length - read);
+            if (count == -1) {
+                throw new EOFException("Unexpected end of the BSON fixture: the last document is not complete");
+            }
+            read += count;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.BasicDBList;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed fixtures, keyed by the URL of the resource.<br/>
+ * The URL identifies the file whatever the test class: a relative path resolved against the packages of two test classes gives two keys.<br/>
+ * The cache is a LRU map weighted by the size of the fixtures: the least recently used fixtures are evicted
+ * when the total size exceeds the capacity. A fixture larger than the capacity is never cached.<br/>
+ * The cached lists must never be modified: callers must work on a copy.
+ */
+public final class FixtureCache {
+
+    private final long capacity;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity The maximal total size of the cached fixtures, in bytes. 0 disables the cache.
+     */
+    public FixtureCache(final long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets a cached fixture.
+     *
+     * @param location The URL of the resource.
+     * @return The cached fixture, or null if it is not in the cache.
+     */
+    public synchronized BasicDBList get(final String location) {
+        final Entry entry = entries.get(location);
+        return entry == null ? null : entry.data;
+    }
+
+    /**
+     * Puts a fixture in the cache and evicts the least recently used fixtures if the capacity is exceeded.
+     *
+     * @param location The URL of the resource.
+     * @param data     The parsed fixture.
+     * @param size     The estimated size of the parsed fixture, in bytes.
+     */
+    public synchronized void put(final String location, final BasicDBList data, final long size) {
+        if (size > capacity) {
+            return;
+        }
+        final Entry previous = entries.put(location, new Entry(data, size));
+        if (previous != null) {
+            weight -= previous.size;
+        }
+        weight += size;
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > capacity && iterator.hasNext()) {
+            weight -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all cached fixtures.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Gets the capacity of the cache.
+     *
+     * @return The maximal total size of the cached fixtures, in bytes.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the total size of the cached fixtures.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Cached fixture with its size.
+     */
+    private static final class Entry {
+        private final BasicDBList data;
+        private final long size;
+
+        private Entry(final BasicDBList data, final long size) {
+            this.data = data;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.github.wayis.framework.test.util.StreamUtils;
+import org.apache.commons.io.FileUtils;
+import org.bson.BSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Converts JSON fixtures into BSON fixtures, which are loaded without any text parsing.<br/>
+ * A BSON fixture is a sequence of BSON documents, like the files of mongodump. Its name ends with <i>.bson</i>,
+ * or <i>.bson.gz</i> when it is compressed with gzip.<br/>
+ * The conversion can be run at build time with the {@link FixtureConverter#main(String[])} method, for example with the exec-maven-plugin.
+ */
+public final class FixtureConverter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FixtureConverter.class);
+
+    private static final String GZIP_OPTION = "--gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FixtureConverter() {
+    }
+
+    /**
+     * Converts fixtures from the command line.<br/>
+     * Usage: <i>[--gzip] source target</i>. The source is a JSON file or a directory: every JSON file of the directory and of its
+     * subdirectories is converted into the target directory, at the same relative path. With --gzip, the BSON files are compressed,
+     * and <i>.gz</i> is appended to the name of a target file that does not end with it.
+     *
+     * @param args The optional --gzip option, the source and the target.
+     * @throws IOException If a fixture cannot be converted.
+     */
+    public static void main(final String[] args) throws IOException {
+        final boolean compress = args.length > 0 && GZIP_OPTION.equals(args[0]);
+        final int first = compress ? 1 : 0;
+        if (args.length != first + 2) {
+            throw new IllegalArgumentException("Usage: FixtureConverter [--gzip] source.json|sourceDirectory target.bson|targetDirectory");
+        }
+        final File source = new File(args[first]);
+        final File target = new File(args[first + 1]);
+        if (source.isDirectory()) {
+            convertDirectory(source, target, compress);
+        } else {
+            convert(source, compress && !target.getName().endsWith(".gz") ? new File(target.getPath() + ".gz") : target);
+        }
+    }
+
+    /**
+     * Converts all the JSON files of a directory and of its subdirectories.
+     *
+     * @param source   The directory of the JSON files, named <i>.json</i> or <i>.json.gz</i>.
+     * @param target   The directory of the BSON files, created if needed.
+     * @param compress true to compress the BSON files with gzip.
+     * @throws IOException If a fixture cannot be converted.
+     */
+    public static void convertDirectory(final File source, final File target, final boolean compress) throws IOException {
+        for (File file : FileUtils.listFiles(source, new String[]{"json", "json.gz"}, true)) {
+            final String relativePath = source.toURI().relativize(file.toURI()).getPath();
+            final String baseName = relativePath.substring(0, relativePath.lastIndexOf(".json"));
+            convert(file, new File(target, baseName + (compress ? ".bson.gz" : ".bson")));
+        }
+    }
+
+    /**
+     * Converts a JSON file into a BSON file.<br/>
+     * The documents are streamed, so the size of the file is not limited by the heap.
+     *
+     * @param source The JSON file, decompressed if its name ends with <i>.gz</i>.
+     * @param target The BSON file, compressed if its name ends with <i>.gz</i>.
+     * @return The number of converted documents.
+     * @throws IOException If the JSON file cannot be read or the BSON file cannot be written.
+     */
+    public static int convert(final File source, final File target) throws IOException {
+        FileUtils.forceMkdir(target.getAbsoluteFile().getParentFile());
+        InputStream input = null;
+        OutputStream output = null;
+        int count = 0;
+        try {
+            input = new FileInputStream(source);
+            if (source.getName().endsWith(".gz")) {
+                input = new GZIPInputStream(input, BUFFER_SIZE);
+            }
+            output = new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE);
+            if (target.getName().endsWith(".gz")) {
+                output = new GZIPOutputStream(output, BUFFER_SIZE);
+            }
+            final FixtureReader documents = new JsonFixtureReader(new InputStreamReader(input, "UTF-8"));
+            while (documents.hasNext()) {
+                output.write(BSON.encode(documents.next()));
+                count++;
+            }
+            output.close();
+        } finally {
+            StreamUtils.closeQuietly(input);
+            StreamUtils.closeQuietly(output);
+        }
+        LOGGER.info("Fixture '" + source + "' converted to '" + target + "': " + count + " documents");
+        return count;
+    }
+}
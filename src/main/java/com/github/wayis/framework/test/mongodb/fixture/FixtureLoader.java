@@ -0,0 +1,327 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.github.wayis.framework.test.mongodb.MongoProperties;
+import com.github.wayis.framework.test.util.StreamUtils;
+import com.mongodb.BasicDBList;
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads the fixtures of the test annotations from the classpath.<br/>
+ * A fixture is a JSON file, or a BSON file when its name ends with <i>.bson</i> (see {@link FixtureConverter}).
+ * Both can be compressed with gzip: a file whose name ends with <i>.gz</i> is decompressed while it is read.<br/>
+ * Parsed fixtures are kept in a {@link FixtureCache}, keyed by the URL of their file, whose capacity is set by the mongodb.fixture.cache.size property
+ * (in bytes, 64 MB by default, 0 to disable it), so a fixture shared by several tests is read and parsed once.
+ * Each call returns a deep copy of the cached fixture, so the callers can modify it.<br/>
+ * A fixture larger than the cache capacity is never cached: {@link FixtureLoader#open(Class, String)} streams its documents.<br/>
+ * Fixtures can be parsed ahead of their use by {@link FixtureLoader#preload(Class, String)}: a test needing a fixture still being
+ * preloaded waits for it instead of parsing it again.
+ */
+public final class FixtureLoader {
+
+    private static final String MONGODB_FIXTURE_CACHE_SIZE_PROPERTY = "mongodb.fixture.cache.size";
+
+    private static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+    private static final int GZIP_RATIO = 8;
+
+    private static final FixtureCache CACHE = new FixtureCache(MongoProperties.getLong(MONGODB_FIXTURE_CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+    private static final ConcurrentMap<String, Future<BasicDBList>> PRELOADING = new ConcurrentHashMap<>();
+
+    private static ExecutorService preloadExecutor = null;
+
+    private FixtureLoader() {
+    }
+
+    /**
+     * Loads a fixture.
+     *
+     * @param testClass The test class, used to load the resource.
+     * @param fileName  The path of the JSON or BSON file in the classpath.
+     * @return A copy of the parsed fixture.
+     * @throws IOException If the file cannot be found or read.
+     */
+    public static BasicDBList load(final Class<?> testClass, final String fileName) throws IOException {
+        return (BasicDBList) load(getResource(testClass, fileName), fileName).copy();
+    }
+
+    /**
+     * Loads a fixture from the cache, from its preload or from its file.
+     *
+     * @param url      The URL of the file.
+     * @param fileName The path of the file, whose extension gives the format.
+     * @return The parsed fixture. It must not be modified.
+     * @throws IOException If the file cannot be read.
+     */
+    private static BasicDBList load(final URL url, final String fileName) throws IOException {
+        final String location = url.toString();
+        BasicDBList data = CACHE.get(location);
+        if (data == null) {
+            data = awaitPreload(location);
+        }
+        if (data == null) {
+            data = read(url, fileName);
+        }
+        return data;
+    }
+
+    /**
+     * Opens a fixture to read its documents one at a time.<br/>
+     * A fixture larger than the cache capacity is streamed from the file with a {@link JsonFixtureReader} or a {@link BsonFixtureReader},
+     * so its memory footprint is one document. Other fixtures are parsed and cached.
+     *
+     * @param testClass The test class, used to load the resource.
+     * @param fileName  The path of the JSON or BSON file in the classpath.
+     * @return A reader of the documents. It must be closed.
+     * @throws IOException If the file cannot be found or read.
+     */
+    public static FixtureReader open(final Class<?> testClass, final String fileName) throws IOException {
+        final URL url = getResource(testClass, fileName);
+        final String location = url.toString();
+        final BasicDBList cached = CACHE.get(location);
+        if (cached != null) {
+            return new ListFixtureReader(cached);
+        }
+        if (!PRELOADING.containsKey(location) && estimateSize(fileName, getLength(url)) > CACHE.getCapacity()) {
+            return newReader(fileName, decompress(fileName, url.openStream()));
+        }
+        return new ListFixtureReader(load(url, fileName));
+    }
+
+    /**
+     * Parses a fixture in background and puts it in the cache, so its first use does not wait for its parsing.<br/>
+     * Nothing is done if the fixture is already cached or being preloaded, if it cannot be found or if it is too large to be cached.
+     * A failure is ignored: the fixture is parsed again, and the error reported, when it is used.
+     *
+     * @param testClass The test class, used to load the resource.
+     * @param fileName  The path of the JSON or BSON file in the classpath.
+     */
+    public static void preload(final Class<?> testClass, final String fileName) {
+        final URL url = testClass.getResource(fileName);
+        if (url == null) {
+            return;
+        }
+        final String location = url.toString();
+        if (PRELOADING.containsKey(location) || CACHE.get(location) != null) {
+            return;
+        }
+        try {
+            if (estimateSize(fileName, getLength(url)) > CACHE.getCapacity()) {
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+        final FutureTask<BasicDBList> task = new FutureTask<>(new Callable<BasicDBList>() {
+            @Override
+            public BasicDBList call() throws IOException {
+                try {
+                    return read(url, fileName);
+                } finally {
+                    PRELOADING.remove(location);
+                }
+            }
+        });
+        if (PRELOADING.putIfAbsent(location, task) == null) {
+            getPreloadExecutor().execute(task);
+        }
+    }
+
+    /**
+     * Waits for the preload of a fixture.
+     *
+     * @param location The URL of the file.
+     * @return The parsed fixture, or null if it is not being preloaded or if its preload failed.
+     */
+    private static BasicDBList awaitPreload(final String location) {
+        final Future<BasicDBList> preload = PRELOADING.get(location);
+        if (preload == null) {
+            return null;
+        }
+        try {
+            return preload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the executor preloading the fixtures.
+     *
+     * @return A single daemon thread executor, so the fixtures are parsed in the order of the tests.
+     */
+    private static synchronized ExecutorService getPreloadExecutor() {
+        if (preloadExecutor == null) {
+            preloadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "mongodb-unit-test-preload");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return preloadExecutor;
+    }
+
+    /**
+     * Resolves a fixture in the classpath, a relative path being resolved against the package of the test class.
+     *
+     * @param testClass The test class, used to load the resource.
+     * @param fileName  The path of the JSON or BSON file in the classpath.
+     * @return The URL of the file.
+     * @throws FileNotFoundException If the file cannot be found.
+     */
+    private static URL getResource(final Class<?> testClass, final String fileName) throws FileNotFoundException {
+        final URL url = testClass.getResource(fileName);
+        if (url == null) {
+            throw new FileNotFoundException("Unable to load file '" + fileName + "' from the classpath");
+        }
+        return url;
+    }
+
+    /**
+     * Gets the location of a fixture, which identifies it whatever the test class loading it.
+     *
+     * @param testClass The test class, used to resolve the resource.
+     * @param fileName  The path of the JSON or BSON file in the classpath.
+     * @return The URL of the file, or the file name if it cannot be found.
+     */
+    public static String getLocation(final Class<?> testClass, final String fileName) {
+        final URL url = testClass.getResource(fileName);
+        return url == null ? fileName : url.toString();
+    }
+
+    /**
+     * Reads and parses all the documents of a fixture, then puts them in the cache.
+     *
+     * @param url      The URL of the file.
+     * @param fileName The path of the file, whose extension gives the format.
+     * @return The parsed documents.
+     * @throws IOException If the file cannot be read.
+     */
+    private static BasicDBList read(final URL url, final String fileName) throws IOException {
+        final InputStream file = url.openStream();
+        FixtureReader reader = null;
+        try {
+            final CountingInputStream input = new CountingInputStream(decompress(fileName, file));
+            reader = newReader(fileName, input);
+            final BasicDBList data = new BasicDBList();
+            while (reader.hasNext()) {
+                data.add(reader.next());
+            }
+            CACHE.put(url.toString(), data, estimateSize(input.getByteCount()));
+            return data;
+        } finally {
+            StreamUtils.closeQuietly(reader == null ? file : reader);
+        }
+    }
+
+    /**
+     * Creates the reader of a fixture according to its format.
+     *
+     * @param fileName The path of the file, whose extension gives the format.
+     * @param input    The content of the file, already decompressed.
+     * @return A {@link BsonFixtureReader} for a <i>.bson</i> file, a {@link JsonFixtureReader} otherwise.
+     * @throws IOException If the reader cannot be created.
+     */
+    private static FixtureReader newReader(final String fileName, final InputStream input) throws IOException {
+        final String name = isCompressed(fileName) ? fileName.substring(0, fileName.length() - ".gz".length()) : fileName;
+        if (name.endsWith(".bson")) {
+            return new BsonFixtureReader(input);
+        }
+        return new JsonFixtureReader(new InputStreamReader(input, "UTF-8"));
+    }
+
+    /**
+     * Decompresses the content of a gzip file.
+     *
+     * @param fileName The path of the file.
+     * @param input    The content of the file.
+     * @return The decompressed content for a <i>.gz</i> file, the content itself otherwise.
+     * @throws IOException If the gzip header cannot be read.
+     */
+    private static InputStream decompress(final String fileName, final InputStream input) throws IOException {
+        if (!isCompressed(fileName)) {
+            return input;
+        }
+        try {
+            return new GZIPInputStream(input);
+        } catch (IOException e) {
+            StreamUtils.closeQuietly(input);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the length of a file without reading it.<br/>
+     * The length of a <i>file:</i> URL is read from the file system: its connection would open a stream that is never closed.
+     *
+     * @param url The URL of the file.
+     * @return The length in bytes, or -1 if it is unknown.
+     * @throws IOException If the file cannot be opened.
+     */
+    private static long getLength(final URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).length();
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // The URL is not a valid file URI: its length is read from its connection.
+            }
+        }
+        final URLConnection connection = url.openConnection();
+        try {
+            return connection.getContentLengthLong();
+        } finally {
+            StreamUtils.closeQuietly(connection.getInputStream());
+        }
+    }
+
+    private static boolean isCompressed(final String fileName) {
+        return fileName.endsWith(".gz");
+    }
+
+    /**
+     * Estimates the heap size of a parsed fixture from the length of its file, a compressed file taking about an eighth of its content.
+     *
+     * @param fileName The path of the file.
+     * @param length   The length of the file.
+     * @return The estimated size in bytes.
+     */
+    private static long estimateSize(final String fileName, final long length) {
+        return estimateSize(isCompressed(fileName) ? GZIP_RATIO * length : length);
+    }
+
+    /**
+     * Estimates the heap size of a parsed fixture from the length of its content: the documents take about twice the size of the UTF-16 chars
+     * of a JSON file, or four times the size of a BSON file.
+     *
+     * @param length The length of the content.
+     * @return The estimated size in bytes.
+     */
+    private static long estimateSize(final long length) {
+        return 4L * length;
+    }
+}
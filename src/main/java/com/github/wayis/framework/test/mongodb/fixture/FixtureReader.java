@@ -0,0 +1,15 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.DBObject;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Reader of the documents of a fixture, one document at a time.<br/>
+ * The reader must be closed once the documents are consumed.
+ *
+ * @see FixtureLoader#open(Class, String)
+ */
+public interface FixtureReader extends Iterator<DBObject>, Closeable {
+}
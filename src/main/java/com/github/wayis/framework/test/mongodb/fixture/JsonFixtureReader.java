@@ -0,0 +1,143 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of a JSON fixture.<br/>
+ * The fixture is either a JSON array of documents or a sequence of documents (newline-delimited JSON).
+ * Only the text of the current document is kept in memory: it is parsed with {@link com.mongodb.util.JSON} when it is complete,
+ * so the memory used does not depend on the size of the fixture.
+ */
+public final class JsonFixtureReader implements FixtureReader {
+
+    private final Reader reader;
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean array;
+    private boolean started;
+    private boolean finished;
+    private DBObject next;
+
+    /**
+     * Constructs a reader.
+     *
+     * @param reader The source of the JSON fixture.
+     */
+    public JsonFixtureReader(final Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readDocument();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read the JSON fixture", e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DBObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final DBObject document = next;
+        next = null;
+        return document;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads the next document of the fixture.
+     *
+     * @return The parsed document, or null at the end of the fixture.
+     * @throws IOException If the fixture cannot be read.
+     */
+    private DBObject readDocument() throws IOException {
+        int c = skipSeparators();
+        if (!started) {
+            started = true;
+            if (c == '[') {
+                array = true;
+                c = skipSeparators();
+            }
+        }
+        if (c == -1 || (array && c == ']')) {
+            finished = true;
+            return null;
+        }
+        if (c != '{') {
+            throw new IllegalStateException("Unexpected character '" + (char) c + "' in the JSON fixture: a document is expected");
+        }
+        buffer.setLength(0);
+        int depth = 0;
+        char quote = 0;
+        boolean escaped = false;
+        do {
+            buffer.append((char) c);
+            if (quote != 0) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = (char) c;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+            if (depth == 0) {
+                return (DBObject) JSON.parse(buffer.toString());
+            }
+            c = reader.read();
+        } while (c != -1);
+        throw new IllegalStateException("Unexpected end of the JSON fixture: the last document is not complete");
+    }
+
+    /**
+     * Skips the whitespaces and the commas between two documents.
+     *
+     * @return The first other character, or -1 at the end of the fixture.
+     * @throws IOException If the fixture cannot be read.
+     */
+    private int skipSeparators() throws IOException {
+        int c = reader.read();
+        while (c != -1 && (c == ',' || Character.isWhitespace(c))) {
+            c = reader.read();
+        }
+        return c;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Reader of the documents of an already parsed fixture.<br/>
+ * Each document is copied when it is read, so the parsed fixture is never modified.
+ */
+final class ListFixtureReader implements FixtureReader {
+
+    private final BasicDBList data;
+    private int index;
+
+    /**
+     * Constructs a reader.
+     *
+     * @param data The parsed fixture.
+     */
+    ListFixtureReader(final BasicDBList data) {
+        this.data = data;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return index < data.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DBObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Object document = data.get(index++);
+        if (document instanceof BasicDBObject) {
+            return (DBObject) ((BasicDBObject) document).copy();
+        }
+        return (DBObject) document;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+    }
+}
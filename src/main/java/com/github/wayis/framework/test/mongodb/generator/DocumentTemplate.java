@@ -0,0 +1,205 @@
+package com.github.wayis.framework.test.mongodb.generator;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled template of generated documents.<br/>
+ * The template is a JSON document whose strings can hold generator expressions between <i>${</i> and <i>}</i>, see {@link ValueGenerators}.
+ * A string made of a single expression takes the type of the generated value, like <i>{age: "${int:18:80}"}</i>; otherwise the
+ * generated values are concatenated into the string, like <i>{email: "user${sequence}@test.com"}</i>. The other values are copied as is.<br/>
+ * The template is parsed once and templates are cached by JSON, so a document is generated without any parsing.
+ * A document depends only on the seed and on its index, so the documents can be generated by several threads in any order.
+ */
+public final class DocumentTemplate {
+
+    private static final Pattern EXPRESSION = Pattern.compile("\\$\\{([^}]+)\\}");
+
+    private static final ConcurrentMap<String, DocumentTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final ValueGenerator root;
+
+    /**
+     * Compiles a template.
+     *
+     * @param json The template in JSON format.
+     */
+    private DocumentTemplate(final String json) {
+        final Object template = JSON.parse(json);
+        if (!(template instanceof DBObject) || template instanceof List) {
+            throw new IllegalArgumentException("The template must be a JSON document: " + json);
+        }
+        this.root = compileValue(template);
+    }
+
+    /**
+     * Gets the template of a JSON document, compiled on its first use.
+     *
+     * @param json The template in JSON format.
+     * @return The template.
+     * @throws IllegalArgumentException If a generator expression is not valid.
+     */
+    public static DocumentTemplate compile(final String json) {
+        DocumentTemplate template = CACHE.get(json);
+        if (template == null) {
+            template = new DocumentTemplate(json);
+            final DocumentTemplate previous = CACHE.putIfAbsent(json, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Generates a document.
+     *
+     * @param seed  The seed of the collection.
+     * @param index The index of the document in the collection, from 0.
+     * @return A new document.
+     */
+    public DBObject generate(final long seed, final long index) {
+        return (DBObject) root.generate(index, new SeededRandom(seed, index));
+    }
+
+    private static ValueGenerator compileValue(final Object value) {
+        if (value instanceof List) {
+            final List<ValueGenerator> elements = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                elements.add(compileValue(element));
+            }
+            return new ListValue(elements);
+        }
+        if (value instanceof DBObject) {
+            final Map<String, ValueGenerator> fields = new LinkedHashMap<>();
+            for (String key : ((DBObject) value).keySet()) {
+                fields.put(key, compileValue(((DBObject) value).get(key)));
+            }
+            return new DocumentValue(fields);
+        }
+        if (value instanceof String) {
+            return compileString((String) value);
+        }
+        if (value instanceof Date) {
+            return new DateConstant(((Date) value).getTime());
+        }
+        return new Constant(value);
+    }
+
+    private static ValueGenerator compileString(final String value) {
+        final Matcher matcher = EXPRESSION.matcher(value);
+        final List<Object> parts = new ArrayList<>();
+        int end = 0;
+        while (matcher.find()) {
+            if (matcher.start() > end) {
+                parts.add(value.substring(end, matcher.start()));
+            }
+            parts.add(ValueGenerators.parse(matcher.group(1)));
+            end = matcher.end();
+        }
+        if (end == 0) {
+            return new Constant(value);
+        }
+        if (end < value.length()) {
+            parts.add(value.substring(end));
+        }
+        return parts.size() == 1 ? (ValueGenerator) parts.get(0) : new Concatenation(parts);
+    }
+
+    private static final class DocumentValue implements ValueGenerator {
+
+        private final Map<String, ValueGenerator> fields;
+
+        private DocumentValue(final Map<String, ValueGenerator> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            final BasicDBObject document = new BasicDBObject(fields.size());
+            for (Map.Entry<String, ValueGenerator> field : fields.entrySet()) {
+                document.put(field.getKey(), field.getValue().generate(index, random));
+            }
+            return document;
+        }
+    }
+
+    private static final class ListValue implements ValueGenerator {
+
+        private final List<ValueGenerator> elements;
+
+        private ListValue(final List<ValueGenerator> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            final BasicDBList list = new BasicDBList();
+            for (ValueGenerator element : elements) {
+                list.add(element.generate(index, random));
+            }
+            return list;
+        }
+    }
+
+    private static final class Concatenation implements ValueGenerator {
+
+        private final List<Object> parts;
+
+        private Concatenation(final List<Object> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            final StringBuilder value = new StringBuilder();
+            for (Object part : parts) {
+                value.append(part instanceof ValueGenerator ? ((ValueGenerator) part).generate(index, random) : part);
+            }
+            return value.toString();
+        }
+    }
+
+    private static final class Constant implements ValueGenerator {
+
+        private final Object value;
+
+        private Constant(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return value;
+        }
+    }
+
+    /**
+     * Date constant, copied for each document because a date is mutable.
+     */
+    private static final class DateConstant implements ValueGenerator {
+
+        private final long time;
+
+        private DateConstant(final long time) {
+            this.time = time;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return new Date(time);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.wayis.framework.test.mongodb.generator;
+
+/**
+ * Source of random numbers of a generated document.<br/>
+ * The sequence depends only on the seed of the collection and on the index of the document (SplitMix64 algorithm),
+ * so a document is the same whatever the batch or the thread that generates it.
+ */
+public final class SeededRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private long state;
+    private double nextGaussian;
+    private boolean hasNextGaussian;
+
+    /**
+     * Constructs the random numbers of a document.
+     *
+     * @param seed  The seed of the collection.
+     * @param index The index of the document in the collection.
+     */
+    public SeededRandom(final long seed, final long index) {
+        this.state = mix(seed ^ mix(index * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Gets the next random long.
+     *
+     * @return A long uniformly distributed over all the long values.
+     */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Gets the next random long in a range.
+     *
+     * @param min The lowest value.
+     * @param max The highest value, included.
+     * @return A long uniformly distributed between min and max.
+     * @throws IllegalArgumentException If min is greater than max.
+     */
+    public long nextLong(final long min, final long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("The lowest value " + min + " is greater than the highest value " + max);
+        }
+        final long span = max - min + 1;
+        if (span <= 0) {
+            // The span overflows, the range covering more than half of the long values: draw until the value is in the range.
+            long value = nextLong();
+            while (value < min || value > max) {
+                value = nextLong();
+            }
+            return value;
+        }
+        return min + (nextLong() >>> 1) % span;
+    }
+
+    /**
+     * Gets the next random double.
+     *
+     * @return A double uniformly distributed between 0 included and 1 excluded.
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Gets the next random double of a normal distribution (Box-Muller transform).
+     *
+     * @return A double of mean 0 and standard deviation 1.
+     */
+    public double nextGaussian() {
+        if (hasNextGaussian) {
+            hasNextGaussian = false;
+            return nextGaussian;
+        }
+        final double radius = Math.sqrt(-2 * Math.log(1 - nextDouble()));
+        final double angle = 2 * Math.PI * nextDouble();
+        nextGaussian = radius * Math.sin(angle);
+        hasNextGaussian = true;
+        return radius * Math.cos(angle);
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
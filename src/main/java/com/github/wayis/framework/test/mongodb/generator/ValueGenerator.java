@@ -0,0 +1,19 @@
+package com.github.wayis.framework.test.mongodb.generator;
+
+/**
+ * Generator of the value of a field of the generated documents.<br/>
+ * A generator is shared by the threads generating a collection: it must not keep any state between two documents.
+ *
+ * @see ValueGenerators
+ */
+public interface ValueGenerator {
+
+    /**
+     * Generates the value of a document.
+     *
+     * @param index  The index of the document in the collection, from 0.
+     * @param random The random numbers of the document.
+     * @return The value.
+     */
+    Object generate(long index, SeededRandom random);
+}
@@ -0,0 +1,296 @@
+package com.github.wayis.framework.test.mongodb.generator;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Parses the generator expressions of a template.<br/>
+ * An expression is the name of a generator followed by its arguments, separated by colons:
+ * <ul>
+ * <li><i>sequence</i> or <i>sequence:start</i>: the index of the document, plus start, as a long.</li>
+ * <li><i>int:min:max</i>, <i>long:min:max</i>, <i>double:min:max</i>: a uniform number between min and max, max included for integers.
+ * The range sets the cardinality of the field; min must not be greater than max.</li>
+ * <li><i>gaussian:mean:deviation</i>: a double of a normal distribution.</li>
+ * <li><i>zipf:count:exponent</i>: an int between 1 and count of a Zipf distribution, 1 being the most frequent value, like the popularity
+ * of products. count must be at least 1.</li>
+ * <li><i>choice:a,b,c</i>: one of the strings, with the same probability, or with the given positive weights like <i>choice:GOLD=1,SILVER=3</i>.</li>
+ * <li><i>bool</i> or <i>bool:probability</i>: true with the given probability, 0.5 by default.</li>
+ * <li><i>date:from:to</i>: a date between two days in the yyyy-MM-dd format, UTC, the last day excluded, so it must be after the first one.</li>
+ * <li><i>text:length</i>: a string of random lowercase letters of the given length, 0 or more.</li>
+ * </ul>
+ */
+public final class ValueGenerators {
+
+    private static final String SEPARATOR = ":";
+    private static final String DAY_FORMAT = "yyyy-MM-dd";
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private ValueGenerators() {
+    }
+
+    /**
+     * Parses a generator expression.
+     *
+     * @param expression The expression, like <i>int:18:80</i>.
+     * @return The generator.
+     * @throws IllegalArgumentException If the expression is not valid.
+     */
+    public static ValueGenerator parse(final String expression) {
+        final String[] parts = expression.trim().split(SEPARATOR, -1);
+        final String[] args = Arrays.copyOfRange(parts, 1, parts.length);
+        try {
+            switch (parts[0]) {
+                case "sequence":
+                    return new Sequence(args.length == 0 ? 0 : Long.parseLong(args[0]));
+                case "int":
+                    checkArguments(expression, args, 2);
+                    final int minInt = Integer.parseInt(args[0]);
+                    final int maxInt = Integer.parseInt(args[1]);
+                    checkValue(expression, minInt <= maxInt);
+                    return new UniformInt(minInt, maxInt);
+                case "long":
+                    checkArguments(expression, args, 2);
+                    final long minLong = Long.parseLong(args[0]);
+                    final long maxLong = Long.parseLong(args[1]);
+                    checkValue(expression, minLong <= maxLong);
+                    return new UniformLong(minLong, maxLong);
+                case "double":
+                    checkArguments(expression, args, 2);
+                    final double minDouble = Double.parseDouble(args[0]);
+                    final double maxDouble = Double.parseDouble(args[1]);
+                    checkValue(expression, minDouble <= maxDouble);
+                    return new UniformDouble(minDouble, maxDouble);
+                case "gaussian":
+                    checkArguments(expression, args, 2);
+                    return new Gaussian(Double.parseDouble(args[0]), Double.parseDouble(args[1]));
+                case "zipf":
+                    checkArguments(expression, args, 2);
+                    final int count = Integer.parseInt(args[0]);
+                    checkValue(expression, count >= 1);
+                    return new Zipf(count, Double.parseDouble(args[1]));
+                case "choice":
+                    checkArguments(expression, args, 1);
+                    return new Choice(expression, args[0].split(","));
+                case "bool":
+                    return new Bool(args.length == 0 ? 0.5 : Double.parseDouble(args[0]));
+                case "date":
+                    checkArguments(expression, args, 2);
+                    final long from = parseDay(args[0]);
+                    final long to = parseDay(args[1]);
+                    checkValue(expression, from < to);
+                    return new UniformDate(from, to);
+                case "text":
+                    checkArguments(expression, args, 1);
+                    final int length = Integer.parseInt(args[0]);
+                    checkValue(expression, length >= 0);
+                    return new Text(length);
+                default:
+                    throw new IllegalArgumentException("Unknown generator '" + parts[0] + "' in the expression '" + expression + "'");
+            }
+        } catch (NumberFormatException | ParseException e) {
+            throw new IllegalArgumentException("Invalid argument in the generator expression '" + expression + "'", e);
+        }
+    }
+
+    private static void checkArguments(final String expression, final String[] args, final int count) {
+        if (args.length != count) {
+            throw new IllegalArgumentException("The generator expression '" + expression + "' must have " + count + " arguments");
+        }
+    }
+
+    private static void checkValue(final String expression, final boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("Argument out of range in the generator expression '" + expression + "'");
+        }
+    }
+
+    private static long parseDay(final String day) throws ParseException {
+        final SimpleDateFormat format = new SimpleDateFormat(DAY_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.parse(day).getTime();
+    }
+
+    private static final class Sequence implements ValueGenerator {
+
+        private final long start;
+
+        private Sequence(final long start) {
+            this.start = start;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return start + index;
+        }
+    }
+
+    private static final class UniformInt implements ValueGenerator {
+
+        private final int min;
+        private final int max;
+
+        private UniformInt(final int min, final int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return (int) random.nextLong(min, max);
+        }
+    }
+
+    private static final class UniformLong implements ValueGenerator {
+
+        private final long min;
+        private final long max;
+
+        private UniformLong(final long min, final long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return random.nextLong(min, max);
+        }
+    }
+
+    private static final class UniformDouble implements ValueGenerator {
+
+        private final double min;
+        private final double max;
+
+        private UniformDouble(final double min, final double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return min + (max - min) * random.nextDouble();
+        }
+    }
+
+    private static final class Gaussian implements ValueGenerator {
+
+        private final double mean;
+        private final double deviation;
+
+        private Gaussian(final double mean, final double deviation) {
+            this.mean = mean;
+            this.deviation = deviation;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return mean + deviation * random.nextGaussian();
+        }
+    }
+
+    /**
+     * Zipf distribution, drawn by a binary search in its cumulative probabilities, computed once.
+     */
+    private static final class Zipf implements ValueGenerator {
+
+        private final double[] cumulative;
+
+        private Zipf(final int count, final double exponent) {
+            this.cumulative = new double[count];
+            double sum = 0;
+            for (int rank = 1; rank <= count; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < count; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            final int position = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, position < 0 ? -position - 1 : position + 1) + 1;
+        }
+    }
+
+    private static final class Choice implements ValueGenerator {
+
+        private final String[] values;
+        private final double[] cumulative;
+
+        private Choice(final String expression, final String[] choices) {
+            this.values = new String[choices.length];
+            this.cumulative = new double[choices.length];
+            double sum = 0;
+            for (int i = 0; i < choices.length; i++) {
+                final int weight = choices[i].lastIndexOf('=');
+                values[i] = weight < 0 ? choices[i] : choices[i].substring(0, weight);
+                final double value = weight < 0 ? 1 : Double.parseDouble(choices[i].substring(weight + 1));
+                checkValue(expression, value > 0);
+                sum += value;
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < choices.length; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            final int position = Arrays.binarySearch(cumulative, random.nextDouble());
+            return values[Math.min(values.length - 1, position < 0 ? -position - 1 : position + 1)];
+        }
+    }
+
+    private static final class Bool implements ValueGenerator {
+
+        private final double probability;
+
+        private Bool(final double probability) {
+            this.probability = probability;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return random.nextDouble() < probability;
+        }
+    }
+
+    private static final class UniformDate implements ValueGenerator {
+
+        private final long from;
+        private final long to;
+
+        private UniformDate(final long from, final long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            return new Date(random.nextLong(from, to - 1));
+        }
+    }
+
+    private static final class Text implements ValueGenerator {
+
+        private final int length;
+
+        private Text(final int length) {
+            this.length = length;
+        }
+
+        @Override
+        public Object generate(final long index, final SeededRandom random) {
+            final char[] text = new char[length];
+            for (int i = 0; i < length; i++) {
+                text[i] = LETTERS[(int) random.nextLong(0, LETTERS.length - 1)];
+            }
+            return new String(text);
+        }
+    }
+}
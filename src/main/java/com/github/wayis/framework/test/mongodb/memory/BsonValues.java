@@ -0,0 +1,258 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import org.bson.BSONObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Comparison of BSON values, following the sort order of mongod:<br/>
+ * MinKey, null, numbers, strings, documents, arrays, binary data, ObjectId, booleans, dates, timestamps, regular expressions, MaxKey.<br/>
+ * Numbers of different types are compared by value, the order of the keys of a document is significant.
+ */
+final class BsonValues {
+
+    static final int TYPE_MIN_KEY = 1;
+    static final int TYPE_NULL = 2;
+    static final int TYPE_NUMBER = 3;
+    static final int TYPE_STRING = 4;
+    static final int TYPE_DOCUMENT = 5;
+    static final int TYPE_ARRAY = 6;
+    static final int TYPE_BINARY = 7;
+    static final int TYPE_OBJECT_ID = 8;
+    static final int TYPE_BOOLEAN = 9;
+    static final int TYPE_DATE = 10;
+    static final int TYPE_TIMESTAMP = 11;
+    static final int TYPE_REGEX = 12;
+    static final int TYPE_CODE = 13;
+    static final int TYPE_MAX_KEY = 14;
+
+    private BsonValues() {
+    }
+
+    /**
+     * Gets the rank of the type of a value in the sort order.
+     *
+     * @param value The value.
+     * @return One of the TYPE constants.
+     */
+    static int typeOrder(final Object value) {
+        if (value == null) {
+            return TYPE_NULL;
+        } else if (value instanceof Number) {
+            return TYPE_NUMBER;
+        } else if (value instanceof String || value instanceof Symbol) {
+            return TYPE_STRING;
+        } else if (value instanceof List) {
+            return TYPE_ARRAY;
+        } else if (value instanceof BSONObject) {
+            return TYPE_DOCUMENT;
+        } else if (value instanceof byte[] || value instanceof Binary || value instanceof UUID) {
+            return TYPE_BINARY;
+        } else if (value instanceof ObjectId) {
+            return TYPE_OBJECT_ID;
+        } else if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        } else if (value instanceof Date) {
+            return TYPE_DATE;
+        } else if (value instanceof BSONTimestamp) {
+            return TYPE_TIMESTAMP;
+        } else if (value instanceof Pattern) {
+            return TYPE_REGEX;
+        } else if (value instanceof Code) {
+            return TYPE_CODE;
+        } else if (value instanceof MinKey) {
+            return TYPE_MIN_KEY;
+        } else if (value instanceof MaxKey) {
+            return TYPE_MAX_KEY;
+        }
+        return TYPE_CODE;
+    }
+
+    /**
+     * Compares two BSON values.
+     *
+     * @param first  The first value.
+     * @param second The second value.
+     * @return A negative integer, zero, or a positive integer as the first value is less than, equal to, or greater than the second.
+     */
+    static int compare(final Object first, final Object second) {
+        final int firstType = typeOrder(first);
+        final int secondType = typeOrder(second);
+        if (firstType != secondType) {
+            return firstType < secondType ? -1 : 1;
+        }
+        switch (firstType) {
+            case TYPE_NUMBER:
+                return compareNumbers((Number) first, (Number) second);
+            case TYPE_STRING:
+                return first.toString().compareTo(second.toString());
+            case TYPE_DOCUMENT:
+                return compareDocuments((BSONObject) first, (BSONObject) second);
+            case TYPE_ARRAY:
+                return compareArrays((List<?>) first, (List<?>) second);
+            case TYPE_BINARY:
+                return compareBinaries(toBytes(first), toBytes(second));
+            case TYPE_OBJECT_ID:
+                return ((ObjectId) first).compareTo((ObjectId) second);
+            case TYPE_BOOLEAN:
+                return ((Boolean) first).compareTo((Boolean) second);
+            case TYPE_DATE:
+                return ((Date) first).compareTo((Date) second);
+            case TYPE_TIMESTAMP:
+                return compareTimestamps((BSONTimestamp) first, (BSONTimestamp) second);
+            case TYPE_REGEX:
+                final int comparison = ((Pattern) first).pattern().compareTo(((Pattern) second).pattern());
+                return comparison != 0 ? comparison : ((Pattern) first).flags() - ((Pattern) second).flags();
+            case TYPE_CODE:
+                return String.valueOf(first).compareTo(String.valueOf(second));
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Indicates if two BSON values are equal for mongod.
+     *
+     * @param first  The first value.
+     * @param second The second value.
+     * @return true if the values are equal.
+     */
+    static boolean equals(final Object first, final Object second) {
+        return compare(first, second) == 0;
+    }
+
+    /**
+     * Computes a hash code consistent with {@link BsonValues#equals(Object, Object)}.
+     *
+     * @param value The value.
+     * @return The hash code.
+     */
+    static int hash(final Object value) {
+        final int type = typeOrder(value);
+        switch (type) {
+            case TYPE_NULL:
+            case TYPE_MIN_KEY:
+            case TYPE_MAX_KEY:
+                return type;
+            case TYPE_NUMBER:
+                return Double.valueOf(((Number) value).doubleValue()).hashCode();
+            case TYPE_STRING:
+                return value.toString().hashCode();
+            case TYPE_DOCUMENT:
+                int documentHash = type;
+                final BSONObject document = (BSONObject) value;
+                for (String key : document.keySet()) {
+                    documentHash = 31 * (31 * documentHash + key.hashCode()) + hash(document.get(key));
+                }
+                return documentHash;
+            case TYPE_ARRAY:
+                int arrayHash = type;
+                for (Object element : (List<?>) value) {
+                    arrayHash = 31 * arrayHash + hash(element);
+                }
+                return arrayHash;
+            case TYPE_BINARY:
+                return Arrays.hashCode(toBytes(value));
+            case TYPE_REGEX:
+                return ((Pattern) value).pattern().hashCode();
+            default:
+                return value.hashCode();
+        }
+    }
+
+    private static int compareNumbers(final Number first, final Number second) {
+        if (isIntegral(first) && isIntegral(second)) {
+            final long firstValue = first.longValue();
+            final long secondValue = second.longValue();
+            return firstValue < secondValue ? -1 : firstValue == secondValue ? 0 : 1;
+        }
+        return Double.compare(first.doubleValue(), second.doubleValue());
+    }
+
+    private static boolean isIntegral(final Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    private static int compareDocuments(final BSONObject first, final BSONObject second) {
+        final Iterator<String> firstKeys = first.keySet().iterator();
+        final Iterator<String> secondKeys = second.keySet().iterator();
+        while (firstKeys.hasNext() && secondKeys.hasNext()) {
+            final String firstKey = firstKeys.next();
+            final String secondKey = secondKeys.next();
+            final Object firstValue = first.get(firstKey);
+            final Object secondValue = second.get(secondKey);
+            int comparison = typeOrder(firstValue) - typeOrder(secondValue);
+            if (comparison == 0) {
+                comparison = firstKey.compareTo(secondKey);
+            }
+            if (comparison == 0) {
+                comparison = compare(firstValue, secondValue);
+            }
+            if (comparison != 0) {
+                return comparison < 0 ? -1 : 1;
+            }
+        }
+        return firstKeys.hasNext() ? 1 : secondKeys.hasNext() ? -1 : 0;
+    }
+
+    private static int compareArrays(final List<?> first, final List<?> second) {
+        final int size = Math.min(first.size(), second.size());
+        for (int i = 0; i < size; i++) {
+            final int comparison = compare(first.get(i), second.get(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return first.size() - second.size();
+    }
+
+    private static int compareBinaries(final byte[] first, final byte[] second) {
+        if (first.length != second.length) {
+            return first.length < second.length ? -1 : 1;
+        }
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                return (first[i] & 0xff) < (second[i] & 0xff) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareTimestamps(final BSONTimestamp first, final BSONTimestamp second) {
+        if (first.getTime() != second.getTime()) {
+            return first.getTime() < second.getTime() ? -1 : 1;
+        }
+        return first.getInc() - second.getInc();
+    }
+
+    private static byte[] toBytes(final Object value) {
+        if (value instanceof Binary) {
+            return ((Binary) value).getData();
+        } else if (value instanceof UUID) {
+            final UUID uuid = (UUID) value;
+            final byte[] bytes = new byte[16];
+            long bits = uuid.getMostSignificantBits();
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (bits >>> (56 - 8 * i));
+            }
+            bits = uuid.getLeastSignificantBits();
+            for (int i = 0; i < 8; i++) {
+                bytes[8 + i] = (byte) (bits >>> (56 - 8 * i));
+            }
+            return bytes;
+        }
+        return (byte[]) value;
+    }
+}
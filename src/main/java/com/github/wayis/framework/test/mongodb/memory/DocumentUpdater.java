@@ -0,0 +1,241 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.BSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Application of a mongo update to a document.<br/>
+ * An update is either a replacement document or a document of operators: $set, $unset, $inc, $mul, $min, $max, $rename,
+ * $push, $pushAll, $addToSet, $pull, $pullAll, $pop and $setOnInsert. The positional operator is not supported.
+ */
+final class DocumentUpdater {
+
+    private DocumentUpdater() {
+    }
+
+    /**
+     * Indicates if an update is a document of operators.
+     *
+     * @param update The update.
+     * @return true if its first key is an operator.
+     */
+    static boolean isOperatorUpdate(final DBObject update) {
+        for (String key : update.keySet()) {
+            return key.startsWith("$");
+        }
+        return false;
+    }
+
+    /**
+     * Builds the document updated by a replacement: the _id of the document is kept.
+     *
+     * @param document    The document.
+     * @param replacement The replacement document.
+     * @return The new document.
+     * @throws IllegalArgumentException If the replacement changes the _id.
+     */
+    static DBObject replace(final DBObject document, final DBObject replacement) {
+        final DBObject result = new BasicDBObject();
+        if (document.containsField("_id")) {
+            if (replacement.containsField("_id") && !BsonValues.equals(document.get("_id"), replacement.get("_id"))) {
+                throw new IllegalArgumentException("The _id field cannot be changed from {_id: " + document.get("_id") + "} to {_id: "
+                        + replacement.get("_id") + "}");
+            }
+            result.put("_id", document.get("_id"));
+        }
+        for (String key : replacement.keySet()) {
+            if (!"_id".equals(key)) {
+                result.put(key, Documents.copyValue(replacement.get(key)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies the operators of an update to a document.
+     *
+     * @param document The document, modified in place.
+     * @param update   The operators.
+     * @param inserted true if the document is inserted by an upsert, to apply $setOnInsert.
+     * @throws IllegalArgumentException If an operator is unsupported or cannot be applied.
+     * @throws ServerError              If a path uses the positional operator, which the memory backend does not support.
+     */
+    static void apply(final DBObject document, final DBObject update, final boolean inserted) {
+        for (String operator : update.keySet()) {
+            final BSONObject fields = (BSONObject) update.get(operator);
+            for (String path : fields.keySet()) {
+                if ("_id".equals(path) && !"$setOnInsert".equals(operator) && !("$set".equals(operator) && inserted)) {
+                    throw new IllegalArgumentException("Mod on _id not allowed");
+                }
+                if (path.contains(".$")) {
+                    throw new ServerError(ServerError.BAD_VALUE, "The positional operator is not supported by the in-memory backend: " + path);
+                }
+                applyOperator(document, operator, path, fields.get(path), inserted);
+            }
+        }
+    }
+
+    private static void applyOperator(final DBObject document, final String operator, final String path, final Object argument,
+                                      final boolean inserted) {
+        final Object current = Documents.get(document, path);
+        switch (operator) {
+            case "$set":
+                Documents.set(document, path, Documents.copyValue(argument));
+                break;
+            case "$setOnInsert":
+                if (inserted) {
+                    Documents.set(document, path, Documents.copyValue(argument));
+                }
+                break;
+            case "$unset":
+                Documents.unset(document, path);
+                break;
+            case "$inc":
+            case "$mul":
+                final Number number = asNumber(operator, argument);
+                final Number value = current == Documents.MISSING ? Integer.valueOf(0) : asNumber(operator, current);
+                Documents.set(document, path, "$inc".equals(operator) ? add(value, number) : multiply(value, number));
+                break;
+            case "$min":
+            case "$max":
+                final int comparison = current == Documents.MISSING ? 0 : BsonValues.compare(argument, current);
+                if (current == Documents.MISSING || ("$min".equals(operator) ? comparison < 0 : comparison > 0)) {
+                    Documents.set(document, path, Documents.copyValue(argument));
+                }
+                break;
+            case "$rename":
+                if (current != Documents.MISSING) {
+                    Documents.unset(document, path);
+                    Documents.set(document, String.valueOf(argument), current);
+                }
+                break;
+            case "$push":
+                getArray(document, path, current).addAll(getEach(argument));
+                break;
+            case "$pushAll":
+                getArray(document, path, current).addAll(asArray(operator, argument));
+                break;
+            case "$addToSet":
+                final List<Object> set = getArray(document, path, current);
+                for (Object element : getEach(argument)) {
+                    if (!contains(set, element)) {
+                        set.add(element);
+                    }
+                }
+                break;
+            case "$pull":
+            case "$pullAll":
+                if (current instanceof List) {
+                    final Iterator<Object> elements = Documents.asList(current).iterator();
+                    while (elements.hasNext()) {
+                        final Object element = elements.next();
+                        if ("$pull".equals(operator) ? matchesPull(element, argument) : contains(asArray(operator, argument), element)) {
+                            elements.remove();
+                        }
+                    }
+                } else if (current != Documents.MISSING) {
+                    throw new IllegalArgumentException("Cannot apply " + operator + " to a non-array value");
+                }
+                break;
+            case "$pop":
+                if (current instanceof List && !((List<?>) current).isEmpty()) {
+                    final List<Object> list = Documents.asList(current);
+                    list.remove(asNumber(operator, argument).intValue() < 0 ? 0 : list.size() - 1);
+                } else if (current != Documents.MISSING && !(current instanceof List)) {
+                    throw new IllegalArgumentException("Cannot apply $pop to a non-array value");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid modifier specified: " + operator);
+        }
+    }
+
+    private static List<Object> getArray(final DBObject document, final String path, final Object current) {
+        if (current == Documents.MISSING || current == null) {
+            final BasicDBList list = new BasicDBList();
+            Documents.set(document, path, list);
+            return list;
+        }
+        if (!(current instanceof List)) {
+            throw new IllegalArgumentException("The field '" + path + "' must be an array");
+        }
+        return Documents.asList(current);
+    }
+
+    private static List<Object> getEach(final Object argument) {
+        if (argument instanceof BSONObject && !(argument instanceof List) && ((BSONObject) argument).containsField("$each")) {
+            final List<Object> elements = new ArrayList<>();
+            for (Object element : asArray("$each", ((BSONObject) argument).get("$each"))) {
+                elements.add(Documents.copyValue(element));
+            }
+            return elements;
+        }
+        return Collections.singletonList(Documents.copyValue(argument));
+    }
+
+    private static boolean matchesPull(final Object element, final Object condition) {
+        if (condition instanceof BSONObject && !(condition instanceof List)) {
+            if (element instanceof BSONObject && !(element instanceof List)) {
+                return QueryMatcher.matches(element, (BSONObject) condition);
+            }
+            return QueryMatcher.matches(new BasicDBObject("v", element), new BasicDBObject("v", condition));
+        }
+        return BsonValues.equals(element, condition);
+    }
+
+    private static boolean contains(final List<?> list, final Object value) {
+        for (Object element : list) {
+            if (BsonValues.equals(element, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<?> asArray(final String operator, final Object argument) {
+        if (!(argument instanceof List)) {
+            throw new IllegalArgumentException(operator + " requires an array argument");
+        }
+        return (List<?>) argument;
+    }
+
+    private static Number asNumber(final String operator, final Object value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Cannot apply " + operator + " to a non-numeric value");
+        }
+        return (Number) value;
+    }
+
+    private static Number add(final Number first, final Number second) {
+        if (first instanceof Double || second instanceof Double || first instanceof Float || second instanceof Float) {
+            return first.doubleValue() + second.doubleValue();
+        } else if (first instanceof Long || second instanceof Long) {
+            return first.longValue() + second.longValue();
+        }
+        final long sum = first.longValue() + second.longValue();
+        if (sum == (int) sum) {
+            return (int) sum;
+        }
+        return sum;
+    }
+
+    private static Number multiply(final Number first, final Number second) {
+        if (first instanceof Double || second instanceof Double || first instanceof Float || second instanceof Float) {
+            return first.doubleValue() * second.doubleValue();
+        } else if (first instanceof Long || second instanceof Long) {
+            return first.longValue() * second.longValue();
+        }
+        final long product = first.longValue() * second.longValue();
+        if (product == (int) product) {
+            return (int) product;
+        }
+        return product;
+    }
+}
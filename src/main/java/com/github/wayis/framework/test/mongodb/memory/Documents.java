@@ -0,0 +1,375 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.BSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Access to the fields of the documents by their dotted path, as mongod does.
+ */
+final class Documents {
+
+    /**
+     * Value returned by {@link Documents#get(Object, String)} for a missing field.
+     */
+    static final Object MISSING = new Object();
+
+    private static final Comparator<Object> VALUE_COMPARATOR = new Comparator<Object>() {
+        @Override
+        public int compare(final Object first, final Object second) {
+            return BsonValues.compare(first, second);
+        }
+    };
+
+    private Documents() {
+    }
+
+    /**
+     * Gets all the values reached by a dotted path.<br/>
+     * Like mongod, a path traverses the arrays: <i>a.b</i> reaches the <i>b</i> field of each document of the <i>a</i> array.
+     * A numeric component also reaches the element of an array at this index.
+     *
+     * @param root The document.
+     * @param path The dotted path.
+     * @return The values, empty if the path reaches no field.
+     */
+    static List<Object> getValues(final Object root, final String path) {
+        final List<Object> values = new ArrayList<>();
+        collectValues(root, path.split("\\."), 0, values);
+        return values;
+    }
+
+    private static void collectValues(final Object value, final String[] path, final int index, final List<Object> values) {
+        if (index == path.length) {
+            values.add(value);
+            return;
+        }
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            final int position = toIndex(path[index]);
+            if (position >= 0 && position < list.size()) {
+                collectValues(list.get(position), path, index + 1, values);
+            }
+            for (Object element : list) {
+                if (element instanceof BSONObject && !(element instanceof List)) {
+                    collectValues(element, path, index, values);
+                }
+            }
+        } else if (value instanceof BSONObject && ((BSONObject) value).containsField(path[index])) {
+            collectValues(((BSONObject) value).get(path[index]), path, index + 1, values);
+        }
+    }
+
+    /**
+     * Gets the value of a dotted path, without traversing the arrays.
+     *
+     * @param root The document.
+     * @param path The dotted path.
+     * @return The value, or {@link Documents#MISSING} if the field does not exist.
+     */
+    static Object get(final Object root, final String path) {
+        Object value = root;
+        for (String component : path.split("\\.")) {
+            if (value instanceof List) {
+                final List<?> list = (List<?>) value;
+                final int position = toIndex(component);
+                if (position < 0 || position >= list.size()) {
+                    return MISSING;
+                }
+                value = list.get(position);
+            } else if (value instanceof BSONObject && ((BSONObject) value).containsField(component)) {
+                value = ((BSONObject) value).get(component);
+            } else {
+                return MISSING;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Sets the value of a dotted path, creating the missing intermediate documents.
+     *
+     * @param root  The document.
+     * @param path  The dotted path.
+     * @param value The value.
+     * @throws IllegalArgumentException If an intermediate field is neither a document nor an array.
+     */
+    static void set(final DBObject root, final String path, final Object value) {
+        final String[] components = path.split("\\.");
+        Object parent = root;
+        for (int i = 0; i < components.length - 1; i++) {
+            Object child = getChild(parent, components[i]);
+            if (child == MISSING || child == null) {
+                child = new BasicDBObject();
+                setChild(parent, components[i], child);
+            } else if (!(child instanceof BSONObject)) {
+                throw new IllegalArgumentException("cannot use the part (" + components[i] + " of " + path + ") to traverse the element");
+            }
+            parent = child;
+        }
+        setChild(parent, components[components.length - 1], value);
+    }
+
+    /**
+     * Removes the field of a dotted path, without traversing the arrays.
+     *
+     * @param root The document.
+     * @param path The dotted path.
+     * @return true if the field existed.
+     */
+    static boolean unset(final DBObject root, final String path) {
+        final int separator = path.lastIndexOf('.');
+        final Object parent = separator < 0 ? root : get(root, path.substring(0, separator));
+        final String name = path.substring(separator + 1);
+        if (parent instanceof List) {
+            final List<Object> list = asList(parent);
+            final int position = toIndex(name);
+            if (position >= 0 && position < list.size()) {
+                list.set(position, null);
+                return true;
+            }
+        } else if (parent instanceof BSONObject && ((BSONObject) parent).containsField(name)) {
+            ((BSONObject) parent).removeField(name);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies a document and all its nested documents and arrays.
+     *
+     * @param document The document.
+     * @return The copy.
+     */
+    static DBObject copy(final BSONObject document) {
+        final BasicDBObject copy = new BasicDBObject();
+        for (String key : document.keySet()) {
+            copy.put(key, copyValue(document.get(key)));
+        }
+        return copy;
+    }
+
+    /**
+     * Copies a value, deeply for the documents and arrays.
+     *
+     * @param value The value.
+     * @return The copy.
+     */
+    static Object copyValue(final Object value) {
+        if (value instanceof List) {
+            final BasicDBList copy = new BasicDBList();
+            for (Object element : (List<?>) value) {
+                copy.add(copyValue(element));
+            }
+            return copy;
+        } else if (value instanceof BSONObject) {
+            return copy((BSONObject) value);
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        }
+        return value;
+    }
+
+    /**
+     * Applies a projection to a document: either only the fields of the projection are kept, or they are all removed.<br/>
+     * The _id field is kept unless the projection excludes it.
+     *
+     * @param document The document.
+     * @param fields   The projection, null or empty to keep all the fields.
+     * @return The projected document, the document itself if there is no projection.
+     */
+    static DBObject project(final DBObject document, final DBObject fields) {
+        if (fields == null || fields.keySet().isEmpty()) {
+            return document;
+        }
+        boolean includeId = true;
+        boolean inclusion = false;
+        for (String key : fields.keySet()) {
+            if ("_id".equals(key)) {
+                includeId = isTrue(fields.get(key));
+            } else if (isTrue(fields.get(key))) {
+                inclusion = true;
+            }
+        }
+        if (inclusion) {
+            final DBObject result = new BasicDBObject();
+            if (includeId && document.containsField("_id")) {
+                result.put("_id", document.get("_id"));
+            }
+            for (String key : fields.keySet()) {
+                if (!"_id".equals(key) && isTrue(fields.get(key))) {
+                    include(document, result, key.split("\\."), 0);
+                }
+            }
+            return result;
+        }
+        final DBObject result = copy(document);
+        for (String key : fields.keySet()) {
+            if (!isTrue(fields.get(key))) {
+                exclude(result, key.split("\\."), 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds a comparator of documents from a sort specification.
+     *
+     * @param orderBy The sort specification, for example <i>{ name : 1, age : -1 }</i>.
+     * @return The comparator.
+     */
+    static Comparator<DBObject> comparator(final DBObject orderBy) {
+        return new Comparator<DBObject>() {
+            @Override
+            public int compare(final DBObject first, final DBObject second) {
+                for (String key : orderBy.keySet()) {
+                    final boolean ascending = !(orderBy.get(key) instanceof Number) || ((Number) orderBy.get(key)).doubleValue() >= 0;
+                    final int comparison = BsonValues.compare(sortValue(first, key, ascending), sortValue(second, key, ascending));
+                    if (comparison != 0) {
+                        return ascending ? comparison : -comparison;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Indicates if a value of a projection or of a flag is true.
+     *
+     * @param value The value.
+     * @return true for a non zero number or true.
+     */
+    static boolean isTrue(final Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        }
+        return Boolean.TRUE.equals(value);
+    }
+
+    /**
+     * Gets the elements of a value: the value itself and, for an array, its elements.
+     *
+     * @param values The values reached by a path.
+     * @return The values and the elements of the arrays.
+     */
+    static List<Object> expandArrays(final List<Object> values) {
+        final List<Object> expanded = new ArrayList<>(values);
+        for (Object value : values) {
+            if (value instanceof List) {
+                expanded.addAll((List<?>) value);
+            }
+        }
+        return expanded;
+    }
+
+    private static Object sortValue(final DBObject document, final String path, final boolean ascending) {
+        final List<Object> values = new ArrayList<>();
+        for (Object value : getValues(document, path)) {
+            if (value instanceof List && !((List<?>) value).isEmpty()) {
+                values.addAll((List<?>) value);
+            } else {
+                values.add(value);
+            }
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+        return ascending ? Collections.min(values, VALUE_COMPARATOR) : Collections.max(values, VALUE_COMPARATOR);
+    }
+
+    private static void include(final Object source, final BSONObject target, final String[] path, final int index) {
+        if (!(source instanceof BSONObject) || source instanceof List || !((BSONObject) source).containsField(path[index])) {
+            return;
+        }
+        final Object value = ((BSONObject) source).get(path[index]);
+        if (index == path.length - 1) {
+            target.put(path[index], value);
+        } else if (value instanceof List) {
+            final BasicDBList list = target.get(path[index]) instanceof BasicDBList ? (BasicDBList) target.get(path[index]) : new BasicDBList();
+            final List<?> elements = (List<?>) value;
+            for (int i = 0; i < elements.size(); i++) {
+                if (elements.get(i) instanceof BSONObject && !(elements.get(i) instanceof List)) {
+                    final BSONObject element = list.size() > i && list.get(i) instanceof BSONObject ? (BSONObject) list.get(i) : new BasicDBObject();
+                    include(elements.get(i), element, path, index + 1);
+                    if (list.size() > i) {
+                        list.set(i, element);
+                    } else {
+                        list.add(element);
+                    }
+                }
+            }
+            target.put(path[index], list);
+        } else if (value instanceof BSONObject) {
+            final BSONObject nested = target.get(path[index]) instanceof BSONObject ? (BSONObject) target.get(path[index]) : new BasicDBObject();
+            include(value, nested, path, index + 1);
+            target.put(path[index], nested);
+        }
+    }
+
+    private static void exclude(final Object target, final String[] path, final int index) {
+        if (target instanceof List) {
+            for (Object element : (List<?>) target) {
+                exclude(element, path, index);
+            }
+        } else if (target instanceof BSONObject && ((BSONObject) target).containsField(path[index])) {
+            if (index == path.length - 1) {
+                ((BSONObject) target).removeField(path[index]);
+            } else {
+                exclude(((BSONObject) target).get(path[index]), path, index + 1);
+            }
+        }
+    }
+
+    private static Object getChild(final Object parent, final String name) {
+        if (parent instanceof List) {
+            final List<?> list = (List<?>) parent;
+            final int position = toIndex(name);
+            return position >= 0 && position < list.size() ? list.get(position) : MISSING;
+        }
+        final BSONObject document = (BSONObject) parent;
+        return document.containsField(name) ? document.get(name) : MISSING;
+    }
+
+    private static void setChild(final Object parent, final String name, final Object value) {
+        if (parent instanceof List) {
+            final List<Object> list = asList(parent);
+            final int position = toIndex(name);
+            if (position < 0) {
+                throw new IllegalArgumentException("cannot use the part (" + name + ") to traverse the array");
+            }
+            while (list.size() <= position) {
+                list.add(null);
+            }
+            list.set(position, value);
+        } else {
+            ((BSONObject) parent).put(name, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> asList(final Object value) {
+        return (List<Object>) value;
+    }
+
+    private static int toIndex(final String component) {
+        if (component.isEmpty() || component.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < component.length(); i++) {
+            if (!Character.isDigit(component.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(component);
+    }
+}
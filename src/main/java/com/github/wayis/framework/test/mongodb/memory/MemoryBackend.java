@@ -0,0 +1,35 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.github.wayis.framework.test.mongodb.MongoBackend;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Backend serving the mongo wire protocol from the memory of the JVM, selected with <i>mongodb.backend=memory</i>.<br/>
+ * No process is forked and no binary is downloaded: the backend starts in a few milliseconds.
+ * It covers the CRUD operations and the common queries, updates and commands used by tests (see {@link QueryMatcher},
+ * {@link DocumentUpdater} and {@link MemoryStore}); only the unique indexes constrain the documents. Server-side JavaScript,
+ * aggregation, geospatial queries and the positional update operator are not supported: tests depending on them must use
+ * the mongod backend.<br/>
+ * The data directory template is ignored, the collections are always empty at startup.
+ */
+public final class MemoryBackend implements MongoBackend {
+
+    private WireProtocolServer server;
+
+    @Override
+    public void start(final String host, final int port) throws IOException {
+        final WireProtocolServer newServer = new WireProtocolServer(new MemoryStore());
+        newServer.start(InetAddress.getByName(host), port);
+        this.server = newServer;
+    }
+
+    @Override
+    public void stop() {
+        if (this.server != null) {
+            this.server.stop();
+            this.server = null;
+        }
+    }
+}
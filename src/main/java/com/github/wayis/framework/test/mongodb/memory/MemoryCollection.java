@@ -0,0 +1,355 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.BSON;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Collection stored in memory: the documents are indexed by _id and kept in insertion order, like the natural order of mongod.<br/>
+ * Not thread-safe: the {@link MemoryStore} serializes the operations.
+ */
+final class MemoryCollection {
+
+    private final String namespace;
+    private final Map<IdKey, DBObject> documents = new LinkedHashMap<>();
+    private final List<DBObject> indexes = new ArrayList<>();
+    private final List<UniqueIndex> uniqueIndexes = new ArrayList<>();
+    private String hash;
+
+    /**
+     * Constructs an empty collection.
+     *
+     * @param namespace The full name of the collection, <i>database.collection</i>.
+     */
+    MemoryCollection(final String namespace) {
+        this.namespace = namespace;
+        this.indexes.add(new BasicDBObject("v", 1).append("key", new BasicDBObject("_id", 1)).append("ns", namespace).append("name", "_id_"));
+    }
+
+    /**
+     * Gets the full name of the collection.
+     *
+     * @return The full name, <i>database.collection</i>.
+     */
+    String getNamespace() {
+        return this.namespace;
+    }
+
+    /**
+     * Inserts a document.
+     *
+     * @param document The document, with an _id field.
+     * @throws ServerError If a document with the same _id, or the same key of a unique index, already exists.
+     */
+    void insert(final DBObject document) {
+        final IdKey key = new IdKey(document.get("_id"));
+        if (this.documents.containsKey(key)) {
+            throw duplicateKey("_id_", document.get("_id"));
+        }
+        for (UniqueIndex index : this.uniqueIndexes) {
+            index.check(document, null);
+        }
+        for (UniqueIndex index : this.uniqueIndexes) {
+            index.add(document);
+        }
+        this.documents.put(key, document);
+        this.hash = null;
+    }
+
+    /**
+     * Replaces a document by its new version.
+     *
+     * @param document    The stored document.
+     * @param newDocument The new version, with the same _id.
+     * @throws ServerError If another document has the same key of a unique index; the stored document is then kept.
+     */
+    void replace(final DBObject document, final DBObject newDocument) {
+        for (UniqueIndex index : this.uniqueIndexes) {
+            index.check(newDocument, document);
+        }
+        for (UniqueIndex index : this.uniqueIndexes) {
+            index.remove(document);
+            index.add(newDocument);
+        }
+        this.documents.put(new IdKey(document.get("_id")), newDocument);
+        this.hash = null;
+    }
+
+    /**
+     * Removes a document.
+     *
+     * @param document The stored document.
+     */
+    void remove(final DBObject document) {
+        for (UniqueIndex index : this.uniqueIndexes) {
+            index.remove(document);
+        }
+        this.documents.remove(new IdKey(document.get("_id")));
+        this.hash = null;
+    }
+
+    /**
+     * Finds the documents matching a query, in natural order.
+     *
+     * @param query The query.
+     * @param limit The maximum number of documents, 0 for all.
+     * @return The stored documents, not copied.
+     */
+    List<DBObject> find(final DBObject query, final int limit) {
+        final List<DBObject> result = new ArrayList<>();
+        final Object id = query == null || query.keySet().size() != 1 ? null : query.get("_id");
+        if (id != null && !(id instanceof DBObject) && !(id instanceof Pattern)) {
+            final DBObject document = this.documents.get(new IdKey(id));
+            if (document != null) {
+                result.add(document);
+            }
+            return result;
+        }
+        for (DBObject document : this.documents.values()) {
+            if (QueryMatcher.matches(document, query)) {
+                result.add(document);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets all the documents in natural order.
+     *
+     * @return The stored documents.
+     */
+    Collection<DBObject> documents() {
+        return this.documents.values();
+    }
+
+    /**
+     * Gets the number of documents.
+     *
+     * @return The number of documents.
+     */
+    int size() {
+        return this.documents.size();
+    }
+
+    /**
+     * Gets the MD5 hash of the BSON documents in natural order, as computed by the dbHash command.<br/>
+     * It is cached until the next modification of the collection.
+     *
+     * @return The hash in hexadecimal.
+     */
+    String hash() {
+        if (this.hash == null) {
+            final MessageDigest digest = md5();
+            for (DBObject document : this.documents.values()) {
+                digest.update(BSON.encode(document));
+            }
+            this.hash = toHex(digest.digest());
+        }
+        return this.hash;
+    }
+
+    /**
+     * Creates an MD5 digest.
+     *
+     * @return The digest.
+     */
+    static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats a digest in hexadecimal.
+     *
+     * @param digest The digest.
+     * @return The hexadecimal string.
+     */
+    static String toHex(final byte[] digest) {
+        final StringBuilder hex = new StringBuilder();
+        for (byte value : digest) {
+            hex.append(String.format("%02x", value & 0xff));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Gets the index specifications, the _id index first.<br/>
+     * The list must not be modified: use {@link MemoryCollection#createIndex(DBObject)} and {@link MemoryCollection#dropIndex(String)}.
+     *
+     * @return The index specifications.
+     */
+    List<DBObject> indexes() {
+        return Collections.unmodifiableList(this.indexes);
+    }
+
+    /**
+     * Creates an index, unless an index with the same name exists.<br/>
+     * Only the unique indexes constrain the documents, as mongod does, honouring the sparse option; the others are kept to be listed.
+     *
+     * @param specification The index specification, with the key, name, unique and sparse fields.
+     * @throws ServerError If the index is unique and the stored documents already have duplicate keys.
+     */
+    void createIndex(final DBObject specification) {
+        for (DBObject index : this.indexes) {
+            if (index.get("name") != null && index.get("name").equals(specification.get("name"))) {
+                return;
+            }
+        }
+        if (Documents.isTrue(specification.get("unique"))) {
+            final UniqueIndex index = new UniqueIndex(specification);
+            for (DBObject document : this.documents.values()) {
+                index.check(document, null);
+                index.add(document);
+            }
+            this.uniqueIndexes.add(index);
+        }
+        this.indexes.add(Documents.copy(specification));
+    }
+
+    /**
+     * Drops an index. The _id index cannot be dropped.
+     *
+     * @param name The name of the index.
+     */
+    void dropIndex(final String name) {
+        if ("_id_".equals(name)) {
+            return;
+        }
+        final Iterator<DBObject> indexes = this.indexes.iterator();
+        while (indexes.hasNext()) {
+            if (name.equals(indexes.next().get("name"))) {
+                indexes.remove();
+            }
+        }
+        final Iterator<UniqueIndex> uniqueIndexes = this.uniqueIndexes.iterator();
+        while (uniqueIndexes.hasNext()) {
+            if (name.equals(uniqueIndexes.next().name)) {
+                uniqueIndexes.remove();
+            }
+        }
+    }
+
+    /**
+     * Creates the error of a duplicated key.
+     *
+     * @param indexName The name of the index.
+     * @param key       The duplicated key.
+     * @return The error.
+     */
+    private ServerError duplicateKey(final String indexName, final Object key) {
+        return new ServerError(ServerError.DUPLICATE_KEY, "E11000 duplicate key error index: " + this.namespace + ".$" + indexName
+                + "  dup key: { : " + key + " }");
+    }
+
+    /**
+     * Unique index: the stored documents by each of their keys.<br/>
+     * Like mongod, a key has one value per field of the index; an array gives a key per element, and a missing field is null
+     * unless the index is sparse, which skips the documents having none of the fields.
+     */
+    private final class UniqueIndex {
+
+        private final String name;
+        private final List<String> fields = new ArrayList<>();
+        private final boolean sparse;
+        private final Map<IdKey, DBObject> entries = new HashMap<>();
+
+        UniqueIndex(final DBObject specification) {
+            this.name = String.valueOf(specification.get("name"));
+            this.fields.addAll(((DBObject) specification.get("key")).keySet());
+            this.sparse = Documents.isTrue(specification.get("sparse"));
+        }
+
+        void check(final DBObject document, final DBObject replaced) {
+            for (IdKey key : keys(document)) {
+                final DBObject existing = this.entries.get(key);
+                if (existing != null && existing != replaced) {
+                    throw duplicateKey(this.name, key.id);
+                }
+            }
+        }
+
+        void add(final DBObject document) {
+            for (IdKey key : keys(document)) {
+                this.entries.put(key, document);
+            }
+        }
+
+        void remove(final DBObject document) {
+            for (IdKey key : keys(document)) {
+                if (this.entries.get(key) == document) {
+                    this.entries.remove(key);
+                }
+            }
+        }
+
+        private List<IdKey> keys(final DBObject document) {
+            final List<List<Object>> fieldValues = new ArrayList<>();
+            boolean indexed = !this.sparse;
+            for (String field : this.fields) {
+                final List<Object> values = Documents.expandArrays(Documents.getValues(document, field));
+                indexed |= !values.isEmpty();
+                fieldValues.add(values.isEmpty() ? Collections.<Object>singletonList(null) : values);
+            }
+            final List<IdKey> keys = new ArrayList<>();
+            if (indexed) {
+                collectKeys(fieldValues, 0, new BasicDBList(), keys);
+            }
+            return keys;
+        }
+
+        private void collectKeys(final List<List<Object>> fieldValues, final int index, final BasicDBList key, final List<IdKey> keys) {
+            if (index == fieldValues.size()) {
+                keys.add(new IdKey(key.size() == 1 ? key.get(0) : key.clone()));
+                return;
+            }
+            for (Object value : fieldValues.get(index)) {
+                key.add(value);
+                collectKeys(fieldValues, index + 1, key, keys);
+                key.remove(key.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Key of the _id of a document, or of a unique index, compared as mongod does.
+     */
+    private static final class IdKey {
+
+        private final Object id;
+        private final int hash;
+
+        IdKey(final Object id) {
+            this.id = id;
+            this.hash = BsonValues.hash(id);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof IdKey && BsonValues.equals(this.id, ((IdKey) other).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Databases stored in memory, and the operations of the wire protocol on them.<br/>
+ * All the operations are serialized, so each of them is atomic. The documents returned to the server are copies.
+ */
+final class MemoryStore {
+
+    private static final String SYSTEM_INDEXES = "system.indexes";
+    private static final String SYSTEM_NAMESPACES = "system.namespaces";
+    private static final int MAX_BSON_OBJECT_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_MESSAGE_SIZE = 48000000;
+
+    private final Map<String, Map<String, MemoryCollection>> databases = new TreeMap<>();
+
+    /**
+     * Inserts documents. Documents without _id get a new ObjectId.
+     *
+     * @param namespace       The full name of the collection.
+     * @param documents       The documents.
+     * @param continueOnError true to insert the next documents after an error.
+     * @return The result of the operation, as returned by getlasterror.
+     */
+    synchronized DBObject insert(final String namespace, final List<DBObject> documents, final boolean continueOnError) {
+        final DBObject result = new BasicDBObject("n", 0);
+        for (DBObject document : documents) {
+            try {
+                if (SYSTEM_INDEXES.equals(getCollectionName(namespace))) {
+                    createIndex(document);
+                } else {
+                    getCollection(namespace, true).insert(withId(document));
+                }
+            } catch (ServerError e) {
+                result.put("err", e.getMessage());
+                result.put("code", e.getCode());
+                if (!continueOnError) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates the documents matching a selector.
+     *
+     * @param namespace The full name of the collection.
+     * @param selector  The query selecting the documents.
+     * @param update    The replacement document or the update operators.
+     * @param upsert    true to insert a document if none matches.
+     * @param multi     true to update all the matching documents, false to update the first one.
+     * @return The result of the operation, as returned by getlasterror.
+     */
+    synchronized DBObject update(final String namespace, final DBObject selector, final DBObject update, final boolean upsert,
+                                 final boolean multi) {
+        final DBObject result = new BasicDBObject("n", 0).append("updatedExisting", false);
+        try {
+            if (multi && !DocumentUpdater.isOperatorUpdate(update)) {
+                throw new ServerError(ServerError.BAD_VALUE, "multi update only works with $ operators");
+            }
+            final MemoryCollection collection = getCollection(namespace, upsert);
+            final List<DBObject> documents = collection == null ? Collections.<DBObject>emptyList() : collection.find(selector, multi ? 0 : 1);
+            for (DBObject document : documents) {
+                updateDocument(collection, document, update);
+            }
+            if (!documents.isEmpty()) {
+                result.put("n", documents.size());
+                result.put("updatedExisting", true);
+            } else if (upsert) {
+                result.put("n", 1);
+                result.put("upserted", upsertDocument(collection, selector, update).get("_id"));
+            }
+        } catch (ServerError e) {
+            result.put("err", e.getMessage());
+            result.put("code", e.getCode());
+        } catch (IllegalArgumentException | ClassCastException e) {
+            result.put("err", e.getMessage());
+            result.put("code", ServerError.BAD_VALUE);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the documents matching a selector.
+     *
+     * @param namespace The full name of the collection.
+     * @param selector  The query selecting the documents.
+     * @param single    true to remove only the first matching document.
+     * @return The result of the operation, as returned by getlasterror.
+     */
+    synchronized DBObject delete(final String namespace, final DBObject selector, final boolean single) {
+        final DBObject result = new BasicDBObject("n", 0);
+        final MemoryCollection collection = getCollection(namespace, false);
+        if (collection != null) {
+            try {
+                final List<DBObject> documents = collection.find(selector, single ? 1 : 0);
+                for (DBObject document : documents) {
+                    collection.remove(document);
+                }
+                result.put("n", documents.size());
+            } catch (IllegalArgumentException | ClassCastException e) {
+                result.put("err", e.getMessage());
+                result.put("code", ServerError.BAD_VALUE);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the documents matching a query.<br/>
+     * The <i>system.namespaces</i> and <i>system.indexes</i> collections list the collections and the indexes of the database.
+     *
+     * @param namespace The full name of the collection.
+     * @param query     The query.
+     * @param fields    The projection, null for all the fields.
+     * @param orderBy   The sort specification, null for the natural order.
+     * @return Copies of the documents, sorted and projected.
+     * @throws ServerError If the query is invalid.
+     */
+    synchronized List<DBObject> query(final String namespace, final DBObject query, final DBObject fields, final DBObject orderBy) {
+        final String databaseName = getDatabaseName(namespace);
+        final String collectionName = getCollectionName(namespace);
+        final List<DBObject> documents = new ArrayList<>();
+        try {
+            if (SYSTEM_NAMESPACES.equals(collectionName) || SYSTEM_INDEXES.equals(collectionName)) {
+                final Map<String, MemoryCollection> database = getDatabase(databaseName, false);
+                for (MemoryCollection collection : database.values()) {
+                    documents.addAll(SYSTEM_INDEXES.equals(collectionName) ? collection.indexes()
+                            : Collections.<DBObject>singletonList(new BasicDBObject("name", collection.getNamespace())));
+                }
+                if (SYSTEM_NAMESPACES.equals(collectionName) && !database.isEmpty()) {
+                    documents.add(new BasicDBObject("name", databaseName + "." + SYSTEM_INDEXES));
+                }
+                filter(documents, query);
+            } else {
+                final MemoryCollection collection = getCollection(namespace, false);
+                if (collection != null) {
+                    documents.addAll(collection.find(query, 0));
+                }
+            }
+            if (orderBy != null && !orderBy.keySet().isEmpty()) {
+                Collections.sort(documents, Documents.comparator(orderBy));
+            }
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new ServerError(ServerError.BAD_VALUE, e.getMessage());
+        }
+        final List<DBObject> result = new ArrayList<>(documents.size());
+        for (DBObject document : documents) {
+            final DBObject projected = Documents.project(document, fields);
+            result.add(projected == document ? Documents.copy(document) : projected);
+        }
+        return result;
+    }
+
+    /**
+     * Runs a database command.<br/>
+     * Supported commands: ismaster, ping, buildinfo, count, distinct, findAndModify, drop, dropDatabase, create, dropIndexes, listDatabases and dbHash.
+     * Unknown commands, like $eval, fail as on a mongod without the feature.
+     *
+     * @param databaseName The name of the database.
+     * @param command      The command document.
+     * @return The result of the command.
+     */
+    synchronized DBObject command(final String databaseName, final DBObject command) {
+        final String name = command.keySet().iterator().next();
+        final Object argument = command.get(name);
+        final String collectionNamespace = databaseName + "." + argument;
+        try {
+            switch (name.toLowerCase(Locale.ENGLISH)) {
+                case "ismaster":
+                    return ok().append("ismaster", true).append("maxBsonObjectSize", MAX_BSON_OBJECT_SIZE)
+                            .append("maxMessageSizeBytes", MAX_MESSAGE_SIZE).append("localTime", new Date());
+                case "ping":
+                    return ok();
+                case "buildinfo":
+                    final BasicDBList versionArray = new BasicDBList();
+                    versionArray.addAll(Arrays.asList(2, 4, 0, 0));
+                    return ok().append("version", "2.4.0").append("versionArray", versionArray).append("maxBsonObjectSize", MAX_BSON_OBJECT_SIZE);
+                case "count":
+                    return ok().append("n", (double) count(collectionNamespace, command));
+                case "distinct":
+                    return ok().append("values", distinct(collectionNamespace, command));
+                case "findandmodify":
+                    return findAndModify(collectionNamespace, command);
+                case "drop":
+                    final MemoryCollection dropped = getDatabase(databaseName, false).remove(String.valueOf(argument));
+                    if (dropped == null) {
+                        return error("ns not found");
+                    }
+                    return ok().append("ns", collectionNamespace).append("nIndexesWas", dropped.indexes().size());
+                case "dropdatabase":
+                    this.databases.remove(databaseName);
+                    return ok().append("dropped", databaseName);
+                case "create":
+                    getCollection(collectionNamespace, true);
+                    return ok();
+                case "dropindexes":
+                case "deleteindexes":
+                    dropIndexes(collectionNamespace, command.get("index"));
+                    return ok();
+                case "dbhash":
+                    return dbHash(databaseName, command.get("collections"));
+                case "listdatabases":
+                    final BasicDBList databaseList = new BasicDBList();
+                    for (Map.Entry<String, Map<String, MemoryCollection>> database : this.databases.entrySet()) {
+                        databaseList.add(new BasicDBObject("name", database.getKey()).append("sizeOnDisk", 0)
+                                .append("empty", database.getValue().isEmpty()));
+                    }
+                    return ok().append("databases", databaseList).append("totalSize", 0);
+                default:
+                    return error("no such cmd: " + name).append("code", ServerError.COMMAND_NOT_FOUND).append("bad cmd", command);
+            }
+        } catch (ServerError e) {
+            return error(e.getMessage()).append("code", e.getCode());
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return error(e.getMessage()).append("code", ServerError.BAD_VALUE);
+        }
+    }
+
+    private DBObject dbHash(final String databaseName, final Object names) {
+        final BasicDBObject hashes = new BasicDBObject();
+        final MessageDigest digest = MemoryCollection.md5();
+        for (Map.Entry<String, MemoryCollection> collection : getDatabase(databaseName, false).entrySet()) {
+            if (!(names instanceof List) || ((List<?>) names).contains(collection.getKey())) {
+                final String hash = collection.getValue().hash();
+                hashes.put(collection.getKey(), hash);
+                digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        return ok().append("numCollections", hashes.size()).append("host", "memory").append("collections", hashes)
+                .append("md5", MemoryCollection.toHex(digest.digest()));
+    }
+
+    private long count(final String namespace, final DBObject command) {
+        final MemoryCollection collection = getCollection(namespace, false);
+        if (collection == null) {
+            return 0;
+        }
+        long count = collection.find((DBObject) command.get("query"), 0).size();
+        if (command.get("skip") instanceof Number) {
+            count = Math.max(0, count - ((Number) command.get("skip")).longValue());
+        }
+        if (command.get("limit") instanceof Number && ((Number) command.get("limit")).longValue() != 0) {
+            count = Math.min(count, Math.abs(((Number) command.get("limit")).longValue()));
+        }
+        return count;
+    }
+
+    private BasicDBList distinct(final String namespace, final DBObject command) {
+        final BasicDBList values = new BasicDBList();
+        final MemoryCollection collection = getCollection(namespace, false);
+        if (collection != null) {
+            for (DBObject document : collection.find((DBObject) command.get("query"), 0)) {
+                for (Object value : Documents.getValues(document, String.valueOf(command.get("key")))) {
+                    for (Object element : value instanceof List ? (List<?>) value : Collections.singletonList(value)) {
+                        if (!containsValue(values, element)) {
+                            values.add(Documents.copyValue(element));
+                        }
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private DBObject findAndModify(final String namespace, final DBObject command) {
+        final DBObject query = (DBObject) command.get("query");
+        final DBObject sort = (DBObject) command.get("sort");
+        final DBObject update = (DBObject) command.get("update");
+        final boolean remove = Documents.isTrue(command.get("remove"));
+        final boolean returnNew = Documents.isTrue(command.get("new"));
+        final boolean upsert = Documents.isTrue(command.get("upsert"));
+        if (!remove && update == null) {
+            throw new ServerError(ServerError.BAD_VALUE, "need remove or update");
+        }
+        final MemoryCollection collection = getCollection(namespace, upsert);
+        final List<DBObject> documents = collection == null ? new ArrayList<DBObject>() : collection.find(query, 0);
+        if (sort != null && !sort.keySet().isEmpty()) {
+            Collections.sort(documents, Documents.comparator(sort));
+        }
+        final DBObject lastError = new BasicDBObject("n", 0);
+        DBObject value = null;
+        if (!documents.isEmpty()) {
+            final DBObject document = documents.get(0);
+            lastError.put("n", 1);
+            if (remove) {
+                collection.remove(document);
+                value = document;
+            } else {
+                final DBObject updated = updateDocument(collection, document, update);
+                lastError.put("updatedExisting", true);
+                value = returnNew ? updated : document;
+            }
+        } else if (upsert && !remove) {
+            final DBObject inserted = upsertDocument(collection, query, update);
+            lastError.put("n", 1);
+            lastError.put("updatedExisting", false);
+            lastError.put("upserted", inserted.get("_id"));
+            value = returnNew ? inserted : null;
+        }
+        if (value != null) {
+            final DBObject projected = Documents.project(value, (DBObject) command.get("fields"));
+            value = projected == value ? Documents.copy(value) : projected;
+        }
+        return ok().append("value", value).append("lastErrorObject", lastError);
+    }
+
+    private DBObject updateDocument(final MemoryCollection collection, final DBObject document, final DBObject update) {
+        final DBObject updated;
+        if (DocumentUpdater.isOperatorUpdate(update)) {
+            updated = Documents.copy(document);
+            DocumentUpdater.apply(updated, update, false);
+        } else {
+            updated = DocumentUpdater.replace(document, update);
+        }
+        collection.replace(document, updated);
+        return updated;
+    }
+
+    private DBObject upsertDocument(final MemoryCollection collection, final DBObject selector, final DBObject update) {
+        DBObject document = new BasicDBObject();
+        if (DocumentUpdater.isOperatorUpdate(update)) {
+            if (selector != null) {
+                for (String key : selector.keySet()) {
+                    final Object value = selector.get(key);
+                    if (!key.startsWith("$") && !(value instanceof DBObject && DocumentUpdater.isOperatorUpdate((DBObject) value))) {
+                        Documents.set(document, key, Documents.copyValue(value));
+                    }
+                }
+            }
+            DocumentUpdater.apply(document, update, true);
+        } else {
+            document = DocumentUpdater.replace(document, update);
+            if (selector != null && selector.containsField("_id") && !(selector.get("_id") instanceof DBObject)) {
+                document.put("_id", selector.get("_id"));
+            }
+        }
+        final DBObject inserted = withId(document);
+        collection.insert(inserted);
+        return inserted;
+    }
+
+    private void createIndex(final DBObject specification) {
+        getCollection(String.valueOf(specification.get("ns")), true).createIndex(specification);
+    }
+
+    private void dropIndexes(final String namespace, final Object index) {
+        final MemoryCollection collection = getCollection(namespace, false);
+        if (collection == null) {
+            throw new ServerError(ServerError.BAD_VALUE, "ns not found");
+        }
+        for (DBObject current : new ArrayList<>(collection.indexes())) {
+            if ("*".equals(index) || current.get("name").equals(index) || index instanceof DBObject && BsonValues.equals(current.get("key"), index)) {
+                collection.dropIndex(String.valueOf(current.get("name")));
+            }
+        }
+    }
+
+    private static void filter(final List<DBObject> documents, final DBObject query) {
+        final Iterator<DBObject> iterator = documents.iterator();
+        while (iterator.hasNext()) {
+            if (!QueryMatcher.matches(iterator.next(), query)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean containsValue(final List<?> values, final Object value) {
+        for (Object element : values) {
+            if (BsonValues.equals(element, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static DBObject withId(final DBObject document) {
+        if (document.containsField("_id")) {
+            return document;
+        }
+        final DBObject result = new BasicDBObject("_id", new ObjectId());
+        result.putAll(document);
+        return result;
+    }
+
+    private Map<String, MemoryCollection> getDatabase(final String databaseName, final boolean create) {
+        Map<String, MemoryCollection> database = this.databases.get(databaseName);
+        if (database == null) {
+            database = new TreeMap<>();
+            if (create) {
+                this.databases.put(databaseName, database);
+            }
+        }
+        return database;
+    }
+
+    private MemoryCollection getCollection(final String namespace, final boolean create) {
+        final Map<String, MemoryCollection> database = getDatabase(getDatabaseName(namespace), create);
+        final String collectionName = getCollectionName(namespace);
+        MemoryCollection collection = database.get(collectionName);
+        if (collection == null && create) {
+            collection = new MemoryCollection(namespace);
+            database.put(collectionName, collection);
+        }
+        return collection;
+    }
+
+    private static String getDatabaseName(final String namespace) {
+        final int separator = namespace.indexOf('.');
+        return separator < 0 ? namespace : namespace.substring(0, separator);
+    }
+
+    private static String getCollectionName(final String namespace) {
+        final int separator = namespace.indexOf('.');
+        return separator < 0 ? "" : namespace.substring(separator + 1);
+    }
+
+    private static BasicDBObject ok() {
+        return new BasicDBObject("ok", 1.0);
+    }
+
+    private static BasicDBObject error(final String message) {
+        return new BasicDBObject("ok", 0.0).append("errmsg", message);
+    }
+}
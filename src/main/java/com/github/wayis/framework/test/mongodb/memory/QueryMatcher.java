@@ -0,0 +1,266 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import org.bson.BSON;
+import org.bson.BSONObject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluation of a mongo query on a document.<br/>
+ * Supported operators: $and, $or, $nor, $eq, $ne, $gt, $gte, $lt, $lte, $in, $nin, $exists, $size, $all, $elemMatch,
+ * $regex, $options, $not, $mod and $type. Other operators, like $where, are rejected.
+ */
+final class QueryMatcher {
+
+    private QueryMatcher() {
+    }
+
+    /**
+     * Indicates if a document matches a query.
+     *
+     * @param document The document.
+     * @param query    The query, null or empty to match all the documents.
+     * @return true if the document matches.
+     * @throws IllegalArgumentException If the query uses an unsupported operator.
+     */
+    static boolean matches(final Object document, final BSONObject query) {
+        if (query == null) {
+            return true;
+        }
+        for (String key : query.keySet()) {
+            final Object condition = query.get(key);
+            switch (key) {
+                case "$and":
+                    for (Object subQuery : asQueries(key, condition)) {
+                        if (!matches(document, (BSONObject) subQuery)) {
+                            return false;
+                        }
+                    }
+                    break;
+                case "$or":
+                    boolean any = false;
+                    for (Object subQuery : asQueries(key, condition)) {
+                        if (matches(document, (BSONObject) subQuery)) {
+                            any = true;
+                            break;
+                        }
+                    }
+                    if (!any) {
+                        return false;
+                    }
+                    break;
+                case "$nor":
+                    for (Object subQuery : asQueries(key, condition)) {
+                        if (matches(document, (BSONObject) subQuery)) {
+                            return false;
+                        }
+                    }
+                    break;
+                case "$comment":
+                    break;
+                default:
+                    if (key.startsWith("$")) {
+                        throw new IllegalArgumentException("unsupported query operator: " + key);
+                    }
+                    if (!matchesField(Documents.getValues(document, key), condition)) {
+                        return false;
+                    }
+            }
+        }
+        return true;
+    }
+
+    private static List<?> asQueries(final String operator, final Object condition) {
+        if (!(condition instanceof List) || ((List<?>) condition).isEmpty()) {
+            throw new IllegalArgumentException(operator + " requires a nonempty array");
+        }
+        return (List<?>) condition;
+    }
+
+    private static boolean matchesField(final List<Object> values, final Object condition) {
+        if (isOperatorDocument(condition)) {
+            final BSONObject operators = (BSONObject) condition;
+            for (String operator : operators.keySet()) {
+                if (!matchesOperator(values, operator, operators.get(operator), operators)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return matchesValue(values, condition);
+    }
+
+    private static boolean isOperatorDocument(final Object condition) {
+        if (!(condition instanceof BSONObject) || condition instanceof List) {
+            return false;
+        }
+        for (String key : ((BSONObject) condition).keySet()) {
+            return key.startsWith("$");
+        }
+        return false;
+    }
+
+    private static boolean matchesValue(final List<Object> values, final Object expected) {
+        if (expected == null && values.isEmpty()) {
+            return true;
+        }
+        for (Object value : Documents.expandArrays(values)) {
+            if (expected instanceof Pattern ? matchesPattern(value, (Pattern) expected) : BsonValues.equals(value, expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesOperator(final List<Object> values, final String operator, final Object argument, final BSONObject operators) {
+        switch (operator) {
+            case "$eq":
+                return matchesValue(values, argument);
+            case "$ne":
+                return !matchesValue(values, argument);
+            case "$gt":
+            case "$gte":
+            case "$lt":
+            case "$lte":
+                for (Object value : Documents.expandArrays(values)) {
+                    if (BsonValues.typeOrder(value) == BsonValues.typeOrder(argument) && matchesComparison(operator, BsonValues.compare(value, argument))) {
+                        return true;
+                    }
+                }
+                return false;
+            case "$in":
+                for (Object element : asArray(operator, argument)) {
+                    if (matchesValue(values, element)) {
+                        return true;
+                    }
+                }
+                return false;
+            case "$nin":
+                return !matchesOperator(values, "$in", argument, operators);
+            case "$exists":
+                return values.isEmpty() != Documents.isTrue(argument);
+            case "$size":
+                for (Object value : values) {
+                    if (value instanceof List && ((List<?>) value).size() == ((Number) argument).intValue()) {
+                        return true;
+                    }
+                }
+                return false;
+            case "$all":
+                final List<?> all = asArray(operator, argument);
+                if (all.isEmpty()) {
+                    return false;
+                }
+                for (Object element : all) {
+                    if (isOperatorDocument(element) ? !matchesField(values, element) : !matchesValue(values, element)) {
+                        return false;
+                    }
+                }
+                return true;
+            case "$elemMatch":
+                final BSONObject subQuery = (BSONObject) argument;
+                for (Object value : values) {
+                    if (value instanceof List) {
+                        for (Object element : (List<?>) value) {
+                            if (isOperatorDocument(subQuery) ? matchesField(Collections.singletonList(element), subQuery)
+                                    : element instanceof BSONObject && matches(element, subQuery)) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+                return false;
+            case "$regex":
+                final Object options = operators.get("$options");
+                final Pattern pattern = argument instanceof Pattern ? (Pattern) argument
+                        : Pattern.compile(String.valueOf(argument), options == null ? 0 : BSON.regexFlags(String.valueOf(options)));
+                return matchesValue(values, pattern);
+            case "$options":
+                return true;
+            case "$not":
+                return argument instanceof Pattern ? !matchesValue(values, argument) : !matchesField(values, argument);
+            case "$mod":
+                final List<?> mod = asArray(operator, argument);
+                final long divisor = ((Number) mod.get(0)).longValue();
+                final long remainder = ((Number) mod.get(1)).longValue();
+                for (Object value : Documents.expandArrays(values)) {
+                    if (value instanceof Number && ((Number) value).longValue() % divisor == remainder) {
+                        return true;
+                    }
+                }
+                return false;
+            case "$type":
+                final int type = ((Number) argument).intValue();
+                for (Object value : Documents.expandArrays(values)) {
+                    if (bsonType(value) == type) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                throw new IllegalArgumentException("unsupported query operator: " + operator);
+        }
+    }
+
+    private static boolean matchesComparison(final String operator, final int comparison) {
+        switch (operator) {
+            case "$gt":
+                return comparison > 0;
+            case "$gte":
+                return comparison >= 0;
+            case "$lt":
+                return comparison < 0;
+            default:
+                return comparison <= 0;
+        }
+    }
+
+    private static boolean matchesPattern(final Object value, final Pattern pattern) {
+        if (value instanceof Pattern) {
+            return ((Pattern) value).pattern().equals(pattern.pattern());
+        }
+        return value instanceof String && pattern.matcher((String) value).find();
+    }
+
+    private static List<?> asArray(final String operator, final Object argument) {
+        if (!(argument instanceof List)) {
+            throw new IllegalArgumentException(operator + " needs an array");
+        }
+        return (List<?>) argument;
+    }
+
+    private static int bsonType(final Object value) {
+        switch (BsonValues.typeOrder(value)) {
+            case BsonValues.TYPE_NULL:
+                return 10;
+            case BsonValues.TYPE_NUMBER:
+                return value instanceof Integer ? 16 : value instanceof Long ? 18 : 1;
+            case BsonValues.TYPE_STRING:
+                return 2;
+            case BsonValues.TYPE_DOCUMENT:
+                return 3;
+            case BsonValues.TYPE_ARRAY:
+                return 4;
+            case BsonValues.TYPE_BINARY:
+                return 5;
+            case BsonValues.TYPE_OBJECT_ID:
+                return 7;
+            case BsonValues.TYPE_BOOLEAN:
+                return 8;
+            case BsonValues.TYPE_DATE:
+                return 9;
+            case BsonValues.TYPE_TIMESTAMP:
+                return 17;
+            case BsonValues.TYPE_REGEX:
+                return 11;
+            case BsonValues.TYPE_MIN_KEY:
+                return -1;
+            case BsonValues.TYPE_MAX_KEY:
+                return 127;
+            default:
+                return 13;
+        }
+    }
+}
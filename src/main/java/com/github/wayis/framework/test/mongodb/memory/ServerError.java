@@ -0,0 +1,36 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+/**
+ * Error of an operation, returned to the client with the code mongod uses for it.
+ */
+final class ServerError extends RuntimeException {
+
+    static final int BAD_VALUE = 2;
+    static final int DUPLICATE_KEY = 11000;
+    static final int COMMAND_NOT_FOUND = 59;
+    static final int CURSOR_NOT_FOUND = 43;
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    /**
+     * Constructs an error.
+     *
+     * @param code    The error code of mongod.
+     * @param message The error message.
+     */
+    ServerError(final int code, final String message) {
+        super(message);
+        this.code = code;
+    }
+
+    /**
+     * Gets the error code of mongod.
+     *
+     * @return The error code.
+     */
+    int getCode() {
+        return this.code;
+    }
+}
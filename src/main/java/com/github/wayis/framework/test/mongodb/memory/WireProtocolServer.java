@@ -0,0 +1,416 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.github.wayis.framework.test.util.StreamUtils;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import org.bson.BasicBSONEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server of the legacy mongo wire protocol used by the 2.x drivers: OP_QUERY (including the commands), OP_GET_MORE, OP_INSERT,
+ * OP_UPDATE, OP_DELETE and OP_KILL_CURSORS.<br/>
+ * Each connection is served by its own thread and keeps its last error for the getlasterror command.
+ */
+final class WireProtocolServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WireProtocolServer.class);
+
+    private static final int OP_REPLY = 1;
+    private static final int OP_UPDATE = 2001;
+    private static final int OP_INSERT = 2002;
+    private static final int OP_QUERY = 2004;
+    private static final int OP_GET_MORE = 2005;
+    private static final int OP_DELETE = 2006;
+    private static final int OP_KILL_CURSORS = 2007;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int REPLY_HEADER_SIZE = 36;
+    private static final int REPLY_CURSOR_NOT_FOUND = 1;
+    private static final int REPLY_QUERY_FAILURE = 2;
+
+    private static final int DEFAULT_FIRST_BATCH_SIZE = 101;
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+
+    private static final String COMMAND_COLLECTION = ".$cmd";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MemoryStore store;
+    private final Map<Long, Cursor> cursors = new ConcurrentHashMap<>();
+    private final AtomicLong cursorIds = new AtomicLong();
+    private final AtomicInteger requestIds = new AtomicInteger();
+    private final AtomicInteger connectionIds = new AtomicInteger();
+    private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    /**
+     * Constructs a server on a store.
+     *
+     * @param store The store of the databases.
+     */
+    WireProtocolServer(final MemoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Starts to accept the connections.
+     *
+     * @param address The address to listen on.
+     * @param port    The port to listen on.
+     * @throws IOException If the port cannot be bound.
+     */
+    void start(final InetAddress address, final int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, address);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "mongodb-unit-test-memory-" + this.threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+        LOGGER.info("In-memory mongo backend listening on " + address.getHostAddress() + ":" + port);
+    }
+
+    /**
+     * Stops the server and closes all the connections.
+     */
+    void stop() {
+        StreamUtils.closeQuietly(this.serverSocket);
+        for (Socket socket : this.connections) {
+            StreamUtils.closeQuietly(socket);
+        }
+        this.executor.shutdownNow();
+        this.cursors.clear();
+    }
+
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                this.connections.add(socket);
+                this.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (IOException e) {
+                if (!this.serverSocket.isClosed()) {
+                    LOGGER.error("Unable to accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        final Connection connection = new Connection(this.connectionIds.incrementAndGet());
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            final byte[] header = new byte[HEADER_SIZE];
+            while (true) {
+                input.readFully(header);
+                final ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+                final int length = headerBuffer.getInt();
+                final int requestId = headerBuffer.getInt();
+                headerBuffer.getInt();
+                final int opCode = headerBuffer.getInt();
+                final byte[] body = new byte[length - HEADER_SIZE];
+                input.readFully(body);
+                if (!handle(connection, opCode, requestId, ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN), output)) {
+                    LOGGER.warn("Unsupported operation code " + opCode + ", the connection is closed");
+                    break;
+                }
+                output.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            LOGGER.debug("Connection closed: " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Connection failed: " + e.getMessage(), e);
+        } finally {
+            this.connections.remove(socket);
+            StreamUtils.closeQuietly(socket);
+        }
+    }
+
+    private boolean handle(final Connection connection, final int opCode, final int requestId, final ByteBuffer body, final OutputStream output)
+            throws IOException {
+        switch (opCode) {
+            case OP_QUERY:
+                query(connection, requestId, body, output);
+                return true;
+            case OP_GET_MORE:
+                body.getInt();
+                readCString(body);
+                final int numberToReturn = body.getInt();
+                getMore(requestId, body.getLong(), numberToReturn, output);
+                return true;
+            case OP_INSERT:
+                final boolean continueOnError = (body.getInt() & 1) != 0;
+                final String insertNamespace = readCString(body);
+                final List<DBObject> documents = new ArrayList<>();
+                while (body.hasRemaining()) {
+                    documents.add(readDocument(connection, body));
+                }
+                connection.setLastError(this.store.insert(insertNamespace, documents, continueOnError));
+                return true;
+            case OP_UPDATE:
+                body.getInt();
+                final String updateNamespace = readCString(body);
+                final int updateFlags = body.getInt();
+                final DBObject selector = readDocument(connection, body);
+                final DBObject update = readDocument(connection, body);
+                connection.setLastError(this.store.update(updateNamespace, selector, update, (updateFlags & 1) != 0, (updateFlags & 2) != 0));
+                return true;
+            case OP_DELETE:
+                body.getInt();
+                final String deleteNamespace = readCString(body);
+                final int deleteFlags = body.getInt();
+                connection.setLastError(this.store.delete(deleteNamespace, readDocument(connection, body), (deleteFlags & 1) != 0));
+                return true;
+            case OP_KILL_CURSORS:
+                body.getInt();
+                final int count = body.getInt();
+                for (int i = 0; i < count; i++) {
+                    this.cursors.remove(body.getLong());
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void query(final Connection connection, final int requestId, final ByteBuffer body, final OutputStream output) throws IOException {
+        body.getInt();
+        final String namespace = readCString(body);
+        final int numberToSkip = body.getInt();
+        final int numberToReturn = body.getInt();
+        DBObject query = readDocument(connection, body);
+        final DBObject fields = body.hasRemaining() ? readDocument(connection, body) : null;
+
+        DBObject orderBy = null;
+        final String firstKey = query.keySet().isEmpty() ? "" : query.keySet().iterator().next();
+        if ("$query".equals(firstKey) || "query".equals(firstKey)) {
+            orderBy = (DBObject) (query.containsField("$orderby") ? query.get("$orderby") : query.get("orderby"));
+            if (query.containsField("$explain")) {
+                reply(output, requestId, REPLY_QUERY_FAILURE, 0, 0, Collections.singletonList(encode(
+                        new BasicDBObject("$err", "$explain is not supported by the in-memory backend").append("code", ServerError.BAD_VALUE))));
+                return;
+            }
+            query = (DBObject) query.get(firstKey);
+        }
+
+        if (namespace.endsWith(COMMAND_COLLECTION)) {
+            final String databaseName = namespace.substring(0, namespace.length() - COMMAND_COLLECTION.length());
+            reply(output, requestId, 0, 0, 0, Collections.singletonList(encode(command(connection, databaseName, query))));
+            return;
+        }
+
+        final List<DBObject> documents;
+        try {
+            documents = this.store.query(namespace, query, fields, orderBy);
+        } catch (ServerError e) {
+            reply(output, requestId, REPLY_QUERY_FAILURE, 0, 0, Collections.singletonList(encode(
+                    new BasicDBObject("$err", e.getMessage()).append("code", e.getCode()))));
+            return;
+        }
+        final Cursor cursor = new Cursor(documents.subList(Math.min(numberToSkip, documents.size()), documents.size()));
+        final boolean singleBatch = numberToReturn < 0 || numberToReturn == 1;
+        final int batchSize = numberToReturn == 0 ? DEFAULT_FIRST_BATCH_SIZE : Math.abs(numberToReturn);
+        final List<byte[]> batch = cursor.next(batchSize);
+        long cursorId = 0;
+        if (!singleBatch && cursor.hasNext()) {
+            cursorId = this.cursorIds.incrementAndGet();
+            this.cursors.put(cursorId, cursor);
+        }
+        reply(output, requestId, 0, cursorId, 0, batch);
+    }
+
+    private void getMore(final int requestId, final long cursorId, final int numberToReturn, final OutputStream output) throws IOException {
+        final Cursor cursor = this.cursors.get(cursorId);
+        if (cursor == null) {
+            reply(output, requestId, REPLY_CURSOR_NOT_FOUND, 0, 0, Collections.<byte[]>emptyList());
+            return;
+        }
+        final int startingFrom = cursor.getPosition();
+        final List<byte[]> batch = cursor.next(numberToReturn == 0 ? Integer.MAX_VALUE : Math.abs(numberToReturn));
+        long nextCursorId = cursorId;
+        if (!cursor.hasNext()) {
+            this.cursors.remove(cursorId);
+            nextCursorId = 0;
+        }
+        reply(output, requestId, 0, nextCursorId, startingFrom, batch);
+    }
+
+    private DBObject command(final Connection connection, final String databaseName, final DBObject command) {
+        if (command.keySet().isEmpty()) {
+            return new BasicDBObject("ok", 0.0).append("errmsg", "no command");
+        }
+        final String name = command.keySet().iterator().next().toLowerCase(Locale.ENGLISH);
+        switch (name) {
+            case "getlasterror":
+            case "getpreverror":
+                final DBObject lastError = new BasicDBObject(connection.getLastError().toMap());
+                if (!lastError.containsField("err")) {
+                    lastError.put("err", null);
+                }
+                lastError.put("connectionId", connection.getId());
+                lastError.put("ok", 1.0);
+                return lastError;
+            case "reseterror":
+                connection.setLastError(new BasicDBObject("n", 0));
+                return new BasicDBObject("ok", 1.0);
+            case "whatsmyuri":
+                return new BasicDBObject("you", "127.0.0.1:" + connection.getId()).append("ok", 1.0);
+            default:
+                return this.store.command(databaseName, command);
+        }
+    }
+
+    private void reply(final OutputStream output, final int responseTo, final int flags, final long cursorId, final int startingFrom,
+                       final List<byte[]> documents) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] document : documents) {
+            body.write(document);
+        }
+        final ByteBuffer header = ByteBuffer.allocate(REPLY_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(REPLY_HEADER_SIZE + body.size());
+        header.putInt(this.requestIds.incrementAndGet());
+        header.putInt(responseTo);
+        header.putInt(OP_REPLY);
+        header.putInt(flags);
+        header.putLong(cursorId);
+        header.putInt(startingFrom);
+        header.putInt(documents.size());
+        output.write(header.array());
+        body.writeTo(output);
+    }
+
+    private static byte[] encode(final DBObject document) {
+        return new BasicBSONEncoder().encode(document);
+    }
+
+    private static String readCString(final ByteBuffer buffer) {
+        final int start = buffer.position();
+        while (buffer.get() != 0) {
+            // Reads up to the terminating zero.
+        }
+        return new String(buffer.array(), start, buffer.position() - start - 1, UTF_8);
+    }
+
+    private static DBObject readDocument(final Connection connection, final ByteBuffer buffer) {
+        final int length = buffer.getInt(buffer.position());
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return connection.getDecoder().decode(bytes, (DBCollection) null);
+    }
+
+    /**
+     * State of a client connection.
+     */
+    private static final class Connection {
+
+        private final int id;
+        private final DefaultDBDecoder decoder = new DefaultDBDecoder();
+        private DBObject lastError = new BasicDBObject("n", 0);
+
+        Connection(final int id) {
+            this.id = id;
+        }
+
+        int getId() {
+            return this.id;
+        }
+
+        DefaultDBDecoder getDecoder() {
+            return this.decoder;
+        }
+
+        DBObject getLastError() {
+            return this.lastError;
+        }
+
+        void setLastError(final DBObject lastError) {
+            this.lastError = lastError;
+        }
+    }
+
+    /**
+     * Results of a query not yet returned to the client.
+     */
+    private static final class Cursor {
+
+        private final List<DBObject> documents;
+        private int position;
+
+        Cursor(final List<DBObject> documents) {
+            this.documents = documents;
+        }
+
+        synchronized boolean hasNext() {
+            return this.position < this.documents.size();
+        }
+
+        synchronized int getPosition() {
+            return this.position;
+        }
+
+        /**
+         * Gets the next batch of documents, limited by a number of documents and by an approximate size.
+         *
+         * @param count The maximum number of documents.
+         * @return The encoded documents of the batch, at least one if some remain.
+         */
+        synchronized List<byte[]> next(final int count) {
+            final List<byte[]> batch = new ArrayList<>();
+            long size = 0;
+            while (this.position < this.documents.size() && batch.size() < count && size < MAX_BATCH_BYTES) {
+                final byte[] document = encode(this.documents.get(this.position));
+                this.documents.set(this.position++, null);
+                size += document.length;
+                batch.add(document);
+            }
+            return batch;
+        }
+    }
+}
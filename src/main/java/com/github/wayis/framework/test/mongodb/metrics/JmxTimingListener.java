@@ -0,0 +1,99 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listener updating a {@link PhaseStatisticsMXBean} per phase.
+ */
+final class JmxTimingListener implements TimingListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxTimingListener.class);
+
+    private static final String OBJECT_NAME = "com.github.wayis.framework.test.mongodb:type=Timings,phase=";
+
+    private final Map<Phase, PhaseStatistics> statistics = new EnumMap<>(Phase.class);
+
+    private JmxTimingListener() {
+        for (Phase phase : Phase.values()) {
+            this.statistics.put(phase, new PhaseStatistics());
+        }
+    }
+
+    /**
+     * Creates a listener and registers its counters in the platform MBean server.<br/>
+     * A registration failure, for example when the counters of another class loader are already registered, is logged.
+     *
+     * @return The listener.
+     */
+    static JmxTimingListener register() {
+        final JmxTimingListener listener = new JmxTimingListener();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<Phase, PhaseStatistics> entry : listener.statistics.entrySet()) {
+            try {
+                server.registerMBean(entry.getValue(), new ObjectName(OBJECT_NAME + entry.getKey()));
+            } catch (JMException e) {
+                LOGGER.warn("Unable to register the timing MBean of the phase " + entry.getKey(), e);
+            }
+        }
+        return listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void phaseCompleted(final PhaseTiming timing) {
+        this.statistics.get(timing.getPhase()).add(timing);
+    }
+
+    /**
+     * Thread-safe counters of a phase.
+     */
+    private static final class PhaseStatistics implements PhaseStatisticsMXBean {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong documents = new AtomicLong();
+
+        void add(final PhaseTiming timing) {
+            this.count.incrementAndGet();
+            this.totalNanos.addAndGet(timing.getDurationNanos());
+            this.documents.addAndGet(timing.getDocuments());
+            long max = this.maxNanos.get();
+            while (timing.getDurationNanos() > max && !this.maxNanos.compareAndSet(max, timing.getDurationNanos())) {
+                max = this.maxNanos.get();
+            }
+        }
+
+        @Override
+        public long getCount() {
+            return this.count.get();
+        }
+
+        @Override
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.totalNanos.get());
+        }
+
+        @Override
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get());
+        }
+
+        @Override
+        public long getDocuments() {
+            return this.documents.get();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+/**
+ * Phases of the work done by the runner and the rules around the tests.
+ *
+ * @see PhaseTiming
+ */
+public enum Phase {
+    /**
+     * Start of the backend by {@link com.github.wayis.framework.test.mongodb.MongoManager#runMongoDB()}.
+     */
+    START,
+    /**
+     * Stop of the backend by {@link com.github.wayis.framework.test.mongodb.MongoManager#shutdownMongoDB()}.
+     */
+    SHUTDOWN,
+    /**
+     * Read and parse of a JSON fixture.
+     */
+    PARSE,
+    /**
+     * Insertion of the documents of a fixture, parsing excluded.
+     */
+    INSERT,
+    /**
+     * Generation and insertion of the documents of a generated collection.
+     */
+    GENERATE,
+    /**
+     * Build of the indexes declared on a collection, after the insertion of its documents.
+     */
+    INDEX,
+    /**
+     * Drop of a collection.
+     */
+    CLEAR,
+    /**
+     * Comparison of a collection with the documents of a fixture, parsing excluded.
+     */
+    CHECK,
+    /**
+     * Snapshot of a collection.
+     */
+    SNAPSHOT,
+    /**
+     * Restore of a collection from its snapshot.
+     */
+    RESTORE
+}
@@ -0,0 +1,38 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+/**
+ * Counters of a phase, registered in the platform MBean server as
+ * <i>com.github.wayis.framework.test.mongodb:type=Timings,phase=&lt;PHASE&gt;</i> when the mongodb.timing.jmx property is <i>true</i>.
+ *
+ * @see Timings
+ */
+public interface PhaseStatisticsMXBean {
+
+    /**
+     * Gets the number of completed phases.
+     *
+     * @return The count.
+     */
+    long getCount();
+
+    /**
+     * Gets the total duration of the phases.
+     *
+     * @return The duration in milliseconds.
+     */
+    long getTotalMillis();
+
+    /**
+     * Gets the longest duration of a phase.
+     *
+     * @return The duration in milliseconds.
+     */
+    long getMaxMillis();
+
+    /**
+     * Gets the total number of documents.
+     *
+     * @return The number of documents.
+     */
+    long getDocuments();
+}
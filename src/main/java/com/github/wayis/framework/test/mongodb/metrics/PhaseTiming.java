@@ -0,0 +1,99 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+/**
+ * Duration of one phase, with the test, the collection and the fixture it worked on.
+ *
+ * @see TimingListener
+ */
+public final class PhaseTiming {
+
+    private final String test;
+    private final Phase phase;
+    private final String collection;
+    private final String fixture;
+    private final long documents;
+    private final long durationNanos;
+
+    /**
+     * Constructs a timing.
+     *
+     * @param test          The display name of the test or the test class, null for the start and the stop of the backend.
+     * @param phase         The phase.
+     * @param collection    The name of the collection, null if the phase works on no collection.
+     * @param fixture       The path of the fixture, null if the phase reads no fixture.
+     * @param documents     The number of documents read, inserted or checked, 0 if they are not counted.
+     * @param durationNanos The duration in nanoseconds.
+     */
+    public PhaseTiming(final String test, final Phase phase, final String collection, final String fixture, final long documents,
+                       final long durationNanos) {
+        this.test = test;
+        this.phase = phase;
+        this.collection = collection;
+        this.fixture = fixture;
+        this.documents = documents;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Gets the display name of the test.
+     *
+     * @return The test or the test class, null for the start and the stop of the backend.
+     */
+    public String getTest() {
+        return this.test;
+    }
+
+    /**
+     * Gets the phase.
+     *
+     * @return The phase.
+     */
+    public Phase getPhase() {
+        return this.phase;
+    }
+
+    /**
+     * Gets the name of the collection.
+     *
+     * @return The collection, null if the phase works on no collection.
+     */
+    public String getCollection() {
+        return this.collection;
+    }
+
+    /**
+     * Gets the path of the fixture.
+     *
+     * @return The fixture, null if the phase reads no fixture.
+     */
+    public String getFixture() {
+        return this.fixture;
+    }
+
+    /**
+     * Gets the number of documents.
+     *
+     * @return The number of documents read, inserted or checked, 0 if they are not counted.
+     */
+    public long getDocuments() {
+        return this.documents;
+    }
+
+    /**
+     * Gets the duration.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.phase + " " + (this.collection == null ? "" : "'" + this.collection + "' ") + (this.fixture == null ? "" : "'" + this.fixture + "' ")
+                + this.documents + " documents in " + this.durationNanos / 1000000 + " ms" + (this.test == null ? "" : " (" + this.test + ")");
+    }
+}
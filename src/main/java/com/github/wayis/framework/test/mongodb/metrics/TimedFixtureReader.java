@@ -0,0 +1,89 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+import com.github.wayis.framework.test.mongodb.fixture.FixtureReader;
+import com.mongodb.DBObject;
+
+import java.io.IOException;
+
+/**
+ * Reader of a fixture measuring the time spent to read its documents.<br/>
+ * The documents of a streamed fixture are parsed when they are read, so this time is the parsing time of the fixture,
+ * and the rest of the time of an insertion or a check is spent in mongo.
+ */
+public final class TimedFixtureReader implements FixtureReader {
+
+    private final FixtureReader reader;
+    private long documents;
+    private long nanos;
+
+    /**
+     * Constructs a reader.
+     *
+     * @param reader The reader to measure.
+     */
+    public TimedFixtureReader(final FixtureReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Gets the number of documents read.
+     *
+     * @return The number of documents.
+     */
+    public long getDocuments() {
+        return this.documents;
+    }
+
+    /**
+     * Gets the time spent to read the documents.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        final long start = System.nanoTime();
+        try {
+            return this.reader.hasNext();
+        } finally {
+            this.nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DBObject next() {
+        final long start = System.nanoTime();
+        try {
+            final DBObject document = this.reader.next();
+            this.documents++;
+            return document;
+        } finally {
+            this.nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove() {
+        this.reader.remove();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+}
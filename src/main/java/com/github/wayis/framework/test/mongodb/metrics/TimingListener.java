@@ -0,0 +1,19 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+/**
+ * Listener of the timings of the phases.<br/>
+ * Listeners are registered with {@link Timings#addListener(TimingListener)} or as a service: the classes listed in
+ * <i>META-INF/services/com.github.wayis.framework.test.mongodb.metrics.TimingListener</i> are loaded with the {@link java.util.ServiceLoader}.
+ * They are called on the thread of the test, possibly by several threads at a time.
+ *
+ * @see Timings
+ */
+public interface TimingListener {
+
+    /**
+     * Called when a phase is completed.
+     *
+     * @param timing The timing of the phase.
+     */
+    void phaseCompleted(PhaseTiming timing);
+}
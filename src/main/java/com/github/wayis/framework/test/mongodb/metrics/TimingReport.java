@@ -0,0 +1,220 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+import com.github.wayis.framework.test.util.StreamUtils;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.util.JSON;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Listener aggregating the timings of the run into a report.<br/>
+ * The report lists the total of each phase, the fixtures and the collections taking the most time over all their phases,
+ * and the slowest phases with their test.
+ */
+final class TimingReport implements TimingListener {
+
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String CSV_HEADER = "section,name,phase,test,count,totalMillis,maxMillis,documents";
+
+    private final int top;
+    private final Map<Phase, Statistics> phases = new EnumMap<>(Phase.class);
+    private final Map<String, Statistics> fixtures = new HashMap<>();
+    private final Map<String, Statistics> collections = new HashMap<>();
+    private final PriorityQueue<PhaseTiming> slowest;
+
+    /**
+     * Constructs an empty report.
+     *
+     * @param top The number of fixtures, collections and phases listed.
+     */
+    TimingReport(final int top) {
+        this.top = top;
+        this.slowest = new PriorityQueue<>(top + 1, new Comparator<PhaseTiming>() {
+            @Override
+            public int compare(final PhaseTiming first, final PhaseTiming second) {
+                return Long.compare(first.getDurationNanos(), second.getDurationNanos());
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void phaseCompleted(final PhaseTiming timing) {
+        statistics(this.phases, timing.getPhase()).add(timing);
+        if (timing.getFixture() != null) {
+            statistics(this.fixtures, timing.getFixture()).add(timing);
+        }
+        if (timing.getCollection() != null) {
+            statistics(this.collections, timing.getCollection()).add(timing);
+        }
+        this.slowest.add(timing);
+        if (this.slowest.size() > this.top) {
+            this.slowest.poll();
+        }
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @param file The report file, in CSV if its name ends with <i>.csv</i>, in JSON otherwise.
+     * @throws IOException If the file cannot be written.
+     */
+    synchronized void write(final File file) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the directory '" + directory + "'");
+        }
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            if (file.getName().toLowerCase().endsWith(CSV_EXTENSION)) {
+                writeCsv(writer);
+            } else {
+                writer.write(JSON.serialize(toDBObject()));
+            }
+        } finally {
+            StreamUtils.closeQuietly(writer);
+        }
+    }
+
+    /**
+     * Builds the JSON report.
+     *
+     * @return The report document.
+     */
+    synchronized BasicDBObject toDBObject() {
+        final BasicDBList phaseList = new BasicDBList();
+        for (Map.Entry<Phase, Statistics> entry : this.phases.entrySet()) {
+            phaseList.add(entry.getValue().toDBObject().append("documents", entry.getValue().documents));
+        }
+        final BasicDBList slowestList = new BasicDBList();
+        for (PhaseTiming timing : slowest()) {
+            slowestList.add(new BasicDBObject("test", timing.getTest()).append("phase", timing.getPhase().name())
+                    .append("collection", timing.getCollection()).append("fixture", timing.getFixture())
+                    .append("millis", millis(timing.getDurationNanos())).append("documents", timing.getDocuments()));
+        }
+        return new BasicDBObject("phases", phaseList).append("fixtures", toDBList(this.fixtures)).append("collections", toDBList(this.collections))
+                .append("slowest", slowestList);
+    }
+
+    private void writeCsv(final Writer writer) throws IOException {
+        writer.write(CSV_HEADER + "\n");
+        for (Map.Entry<Phase, Statistics> entry : this.phases.entrySet()) {
+            writeCsvLine(writer, "phase", entry.getKey().name(), entry.getKey().name(), null, entry.getValue().count, entry.getValue().totalNanos,
+                    entry.getValue().maxNanos, entry.getValue().documents);
+        }
+        for (Map.Entry<String, Statistics> entry : sorted(this.fixtures)) {
+            writeCsvLine(writer, "fixture", entry.getKey(), null, null, entry.getValue().count, entry.getValue().totalNanos, entry.getValue().maxNanos, 0);
+        }
+        for (Map.Entry<String, Statistics> entry : sorted(this.collections)) {
+            writeCsvLine(writer, "collection", entry.getKey(), null, null, entry.getValue().count, entry.getValue().totalNanos, entry.getValue().maxNanos, 0);
+        }
+        for (PhaseTiming timing : slowest()) {
+            writeCsvLine(writer, "slowest", timing.getCollection() == null ? timing.getFixture() : timing.getCollection(), timing.getPhase().name(),
+                    timing.getTest(), 1, timing.getDurationNanos(), timing.getDurationNanos(), timing.getDocuments());
+        }
+    }
+
+    private static void writeCsvLine(final Writer writer, final String section, final String name, final String phase, final String test,
+                                     final long count, final long totalNanos, final long maxNanos, final long documents) throws IOException {
+        writer.write(section + "," + csv(name) + "," + csv(phase) + "," + csv(test) + "," + count + "," + millis(totalNanos) + ","
+                + millis(maxNanos) + "," + documents + "\n");
+    }
+
+    private static String csv(final String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private BasicDBList toDBList(final Map<String, Statistics> statistics) {
+        final BasicDBList list = new BasicDBList();
+        for (Map.Entry<String, Statistics> entry : sorted(statistics)) {
+            list.add(entry.getValue().toDBObject());
+        }
+        return list;
+    }
+
+    /**
+     * Sorts aggregated statistics by total duration, the longest first, and keeps the top ones.
+     */
+    private List<Map.Entry<String, Statistics>> sorted(final Map<String, Statistics> statistics) {
+        final List<Map.Entry<String, Statistics>> entries = new ArrayList<>(statistics.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Statistics>>() {
+            @Override
+            public int compare(final Map.Entry<String, Statistics> first, final Map.Entry<String, Statistics> second) {
+                return Long.compare(second.getValue().totalNanos, first.getValue().totalNanos);
+            }
+        });
+        return entries.size() > this.top ? entries.subList(0, this.top) : entries;
+    }
+
+    /**
+     * Gets the slowest phases, the longest first.
+     */
+    private List<PhaseTiming> slowest() {
+        final List<PhaseTiming> timings = new ArrayList<>(this.slowest);
+        Collections.sort(timings, Collections.reverseOrder(this.slowest.comparator()));
+        return timings;
+    }
+
+    private static <K> Statistics statistics(final Map<K, Statistics> statistics, final K key) {
+        Statistics value = statistics.get(key);
+        if (value == null) {
+            value = new Statistics(String.valueOf(key));
+            statistics.put(key, value);
+        }
+        return value;
+    }
+
+    private static double millis(final long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    /**
+     * Aggregated timings.
+     */
+    private static final class Statistics {
+
+        private final String name;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long documents;
+
+        Statistics(final String name) {
+            this.name = name;
+        }
+
+        void add(final PhaseTiming timing) {
+            this.count++;
+            this.totalNanos += timing.getDurationNanos();
+            this.maxNanos = Math.max(this.maxNanos, timing.getDurationNanos());
+            this.documents += timing.getDocuments();
+        }
+
+        BasicDBObject toDBObject() {
+            return new BasicDBObject("name", this.name).append("count", this.count).append("totalMillis", millis(this.totalNanos))
+                    .append("maxMillis", millis(this.maxNanos));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+import com.github.wayis.framework.test.mongodb.MongoProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the {@link TimingListener}s, called by the runner, the rules and the MongoManager with the timing of each phase.<br/>
+ * Besides the listeners declared as services, the mongodb.properties file can enable:
+ * <ul>
+ * <li>mongodb.timing.report: the path of a report written when the JVM exits, in CSV if it ends with <i>.csv</i>, in JSON otherwise.
+ * It lists the total per phase and the slowest fixtures, collections and phases. See {@link TimingReport}.</li>
+ * <li>mongodb.timing.report.top (optional): the number of fixtures, collections and phases listed, 20 by default; a negative value lists none.</li>
+ * <li>mongodb.timing.jmx: <i>true</i> to register a {@link PhaseStatisticsMXBean} per phase in the platform MBean server.</li>
+ * </ul>
+ * Without listener, the timings are not recorded.
+ */
+public final class Timings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Timings.class);
+
+    private static final String MONGODB_TIMING_REPORT_PROPERTY = "mongodb.timing.report";
+    private static final String MONGODB_TIMING_REPORT_TOP_PROPERTY = "mongodb.timing.report.top";
+    private static final String MONGODB_TIMING_JMX_PROPERTY = "mongodb.timing.jmx";
+
+    private static final int DEFAULT_REPORT_TOP = 20;
+
+    private static final List<TimingListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
+
+    static {
+        for (TimingListener listener : ServiceLoader.load(TimingListener.class)) {
+            LISTENERS.add(listener);
+        }
+        final String report = MongoProperties.getValue(MONGODB_TIMING_REPORT_PROPERTY);
+        if (!report.isEmpty()) {
+            final int top = Math.max(0, MongoProperties.getInt(MONGODB_TIMING_REPORT_TOP_PROPERTY, DEFAULT_REPORT_TOP));
+            LISTENERS.add(createReport(new File(report), top));
+        }
+        if (MongoProperties.getBoolean(MONGODB_TIMING_JMX_PROPERTY, false)) {
+            LISTENERS.add(JmxTimingListener.register());
+        }
+    }
+
+    private Timings() {
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener The listener.
+     */
+    public static void addListener(final TimingListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener.
+     */
+    public static void removeListener(final TimingListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers a task run when the JVM exits, before the report is written, like the stop of a mongod process.<br/>
+     * The shutdown hooks of the JVM run concurrently: the task must also be registered as a hook of its own, and be idempotent.
+     * Running it first lets the report include its timing.
+     *
+     * @param task The task.
+     */
+    public static void addShutdownTask(final Runnable task) {
+        SHUTDOWN_TASKS.add(task);
+    }
+
+    /**
+     * Indicates if the timings are recorded.
+     *
+     * @return true if a listener is registered.
+     */
+    public static boolean isEnabled() {
+        return !LISTENERS.isEmpty();
+    }
+
+    /**
+     * Sends the timing of a phase to the listeners.<br/>
+     * A failure of a listener is logged, it never fails the test.
+     *
+     * @param test          The display name of the test or the test class, null for the start and the stop of the backend.
+     * @param phase         The phase.
+     * @param collection    The name of the collection, null if the phase works on no collection.
+     * @param fixture       The path of the fixture, null if the phase reads no fixture.
+     * @param documents     The number of documents, 0 if they are not counted.
+     * @param durationNanos The duration in nanoseconds.
+     */
+    public static void record(final String test, final Phase phase, final String collection, final String fixture, final long documents,
+                              final long durationNanos) {
+        if (LISTENERS.isEmpty()) {
+            return;
+        }
+        final PhaseTiming timing = new PhaseTiming(test, phase, collection, fixture, documents, durationNanos);
+        for (TimingListener listener : LISTENERS) {
+            try {
+                listener.phaseCompleted(timing);
+            } catch (RuntimeException e) {
+                LOGGER.warn("The timing listener " + listener + " failed on " + timing, e);
+            }
+        }
+    }
+
+    /**
+     * Creates a report written when the JVM exits, after the shutdown tasks.
+     *
+     * @param file The report file.
+     * @param top  The number of fixtures, collections and phases listed.
+     * @return The report.
+     */
+    private static TimingReport createReport(final File file, final int top) {
+        final TimingReport report = new TimingReport(top);
+        Runtime.getRuntime().addShutdownHook(new Thread("mongodb-unit-test-timing-report") {
+            @Override
+            public void run() {
+                for (Runnable task : SHUTDOWN_TASKS) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("The shutdown task " + task + " failed", e);
+                    }
+                }
+                try {
+                    report.write(file);
+                    LOGGER.info("Timing report written to '" + file.getAbsolutePath() + "'");
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to write the timing report '" + file.getAbsolutePath() + "'", e);
+                }
+            }
+        });
+        return report;
+    }
+}
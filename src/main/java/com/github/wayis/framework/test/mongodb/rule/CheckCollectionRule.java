@@ -1,25 +1,31 @@
 package com.github.wayis.framework.test.mongodb.rule;
 
-import com.mongodb.BasicDBList;
-import com.mongodb.util.JSON;
 import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection;
 import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureLoader;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.TimedFixtureReader;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
 import com.github.wayis.framework.test.util.StreamUtils;
-import org.apache.commons.io.IOUtils;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
- * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation.<br>
+ * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} and
+ * {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollections} annotations of the test method and of the test class.<br>
  * The unit test is evaluated before this test rule.<br>
- * This rule checks the ExpectedCollection annotation and calls the MongoManager to check if the given collection corresponds to the JSON file.
+ * This rule checks the ExpectedCollection annotations and calls the MongoManager to check if the given collections correspond to the JSON files.
+ * The collections are checked concurrently, and the failures of all of them are reported.<br>
+ * The parsing and the check times are sent to the {@link com.github.wayis.framework.test.mongodb.metrics.Timings} listeners.
  *
  * @see com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection
  * @see com.github.wayis.framework.test.mongodb.MongoManager
@@ -39,27 +45,45 @@ public final class CheckCollectionRule implements TestRule {
             public void evaluate() throws Throwable {
                 base.evaluate();
 
-                ExpectedCollection annotation = description.getAnnotation(ExpectedCollection.class);
-                if (annotation != null) {
-                    final String collectionName = annotation.name();
-                    final String fileName = annotation.file();
-                    final String[] ignoredProperties = annotation.ignoredProperties();
-                    LOGGER.info("@ExpectedCollection found -> collection '" + collectionName + "' will be checked with the file '" + fileName + "' with ignored properties: " + Arrays.toString(ignoredProperties));
-                    InputStream file = null;
-                    try {
-                        file = description.getTestClass().getResourceAsStream(fileName);
-                        if (file == null) {
-                            throw new FileNotFoundException("Unable to load file '" + fileName + "' from the classpath");
+                final List<Callable<Void>> tasks = new ArrayList<>();
+                for (final ExpectedCollection annotation : CollectionAnnotations.getExpectedCollections(description)) {
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            checkCollection(annotation, description);
+                            return null;
                         }
-                        String jsonFile = IOUtils.toString(file, "UTF-8");
-                        BasicDBList data = (BasicDBList) JSON.parse(jsonFile);
-                        MongoManager.getInstance().checkCollection(data, collectionName, ignoredProperties);
-                    } finally {
-                        StreamUtils.closeQuietly(file);
-                    }
+                    });
                 }
+                CollectionTasks.invokeAll(tasks);
             }
         };
     }
 
+    /**
+     * Checks the collection of an annotation with its JSON file.
+     *
+     * @param annotation  The annotation.
+     * @param description The description of the test.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void checkCollection(final ExpectedCollection annotation, final Description description) throws IOException {
+        final String collectionName = annotation.name();
+        final String fileName = annotation.file();
+        final String[] ignoredProperties = annotation.ignoredProperties();
+        LOGGER.info("@ExpectedCollection found -> collection '" + collectionName + "' will be checked with the file '" + fileName + "' with ignored properties: " + Arrays.toString(ignoredProperties));
+        final long start = System.nanoTime();
+        TimedFixtureReader documents = new TimedFixtureReader(FixtureLoader.open(description.getTestClass(), fileName));
+        final long opened = System.nanoTime();
+        try {
+            MongoManager.getInstance().checkCollection(documents, collectionName, ignoredProperties, annotation.mode());
+        } finally {
+            StreamUtils.closeQuietly(documents);
+            final long parsing = opened - start + documents.getNanos();
+            Timings.record(description.getDisplayName(), Phase.PARSE, collectionName, fileName, documents.getDocuments(), parsing);
+            Timings.record(description.getDisplayName(), Phase.CHECK, collectionName, fileName, documents.getDocuments(),
+                    System.nanoTime() - start - parsing);
+        }
+    }
+
 }
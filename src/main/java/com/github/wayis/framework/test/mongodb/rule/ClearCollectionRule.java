@@ -1,17 +1,28 @@
 package com.github.wayis.framework.test.mongodb.rule;
 
 import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.GenerateCollection;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
 import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 /**
- * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.ClearCollection} annotation.<br>
+ * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.ClearCollection} and
+ * {@link com.github.wayis.framework.test.mongodb.annotation.ClearCollections} annotations of the test method and of the test class.<br>
  * The unit test is evaluated after this test rule.<br>
- * This rule checks the ClearCollection annotation and calls the MongoManager to clear the given collection.
+ * This rule checks the ClearCollection annotations and calls the MongoManager to clear the given collections, concurrently, with the mode of each annotation.<br>
+ * When the test also initializes or generates the collection, the clear is left to the {@link InitCollectionRule} or to the
+ * {@link GenerateCollectionRule}, which skip both if the collection still holds the same documents.
  *
  * @see com.github.wayis.framework.test.mongodb.annotation.ClearCollection
  * @see com.github.wayis.framework.test.mongodb.MongoManager
@@ -29,15 +40,39 @@ public final class ClearCollectionRule implements TestRule {
         return new Statement() {
             @Override
             public void evaluate() throws Throwable {
-                ClearCollection annotation = description.getAnnotation(ClearCollection.class);
-                if (annotation != null) {
-                    final String collectionName = annotation.name();
-                    LOGGER.info("@ClearCollection found -> collection '" + collectionName + "' will be cleared");
-                    MongoManager.getInstance().clearCollection(collectionName);
+                final List<InitCollection> initCollections = CollectionAnnotations.getInitCollections(description);
+                final List<GenerateCollection> generateCollections = CollectionAnnotations.getGenerateCollections(description);
+                final List<Callable<Void>> tasks = new ArrayList<>();
+                for (final ClearCollection annotation : CollectionAnnotations.getClearCollections(description)) {
+                    if (CollectionAnnotations.findInitCollection(initCollections, annotation.name()) == null
+                            && CollectionAnnotations.findGenerateCollection(generateCollections, annotation.name()) == null) {
+                        tasks.add(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                clearCollection(annotation, description);
+                                return null;
+                            }
+                        });
+                    }
                 }
+                CollectionTasks.invokeAll(tasks);
                 base.evaluate();
             }
         };
     }
 
+    /**
+     * Clears the collection of an annotation.
+     *
+     * @param annotation  The annotation.
+     * @param description The description of the test.
+     */
+    static void clearCollection(final ClearCollection annotation, final Description description) {
+        final String collectionName = annotation.name();
+        LOGGER.info("@ClearCollection found -> collection '" + collectionName + "' will be cleared");
+        final long start = System.nanoTime();
+        MongoManager.getInstance().clearCollection(collectionName, annotation.mode());
+        Timings.record(description.getDisplayName(), Phase.CLEAR, collectionName, null, 0, System.nanoTime() - start);
+    }
+
 }
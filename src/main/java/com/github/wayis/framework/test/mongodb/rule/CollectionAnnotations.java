@@ -0,0 +1,187 @@
+package com.github.wayis.framework.test.mongodb.rule;
+
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollections;
+import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollections;
+import com.github.wayis.framework.test.mongodb.annotation.GenerateCollection;
+import com.github.wayis.framework.test.mongodb.annotation.GenerateCollections;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollections;
+import org.junit.runner.Description;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the collection annotations of a test.<br/>
+ * The annotations of the test class apply to every test method. A method annotation on the same collection replaces the class one.
+ * Single annotations and container annotations can be mixed.
+ */
+public final class CollectionAnnotations {
+
+    private CollectionAnnotations() {
+    }
+
+    /**
+     * Gets the collections to clear before a test.
+     *
+     * @param description The description of the test.
+     * @return The annotations, in declaration order, the class ones first.
+     */
+    public static List<ClearCollection> getClearCollections(final Description description) {
+        final Map<String, ClearCollection> collections = new LinkedHashMap<>();
+        final Class<?> testClass = description.getTestClass();
+        if (testClass != null) {
+            addClearCollections(collections, testClass.getAnnotation(ClearCollection.class), testClass.getAnnotation(ClearCollections.class));
+        }
+        addClearCollections(collections, description.getAnnotation(ClearCollection.class), description.getAnnotation(ClearCollections.class));
+        return new ArrayList<>(collections.values());
+    }
+
+    /**
+     * Gets the collections to initialize before a test.
+     *
+     * @param description The description of the test.
+     * @return The annotations, in declaration order, the class ones first.
+     */
+    public static List<InitCollection> getInitCollections(final Description description) {
+        final Map<String, InitCollection> collections = new LinkedHashMap<>();
+        final Class<?> testClass = description.getTestClass();
+        if (testClass != null) {
+            addInitCollections(collections, testClass.getAnnotation(InitCollection.class), testClass.getAnnotation(InitCollections.class));
+        }
+        addInitCollections(collections, description.getAnnotation(InitCollection.class), description.getAnnotation(InitCollections.class));
+        return new ArrayList<>(collections.values());
+    }
+
+    /**
+     * Gets the collections to generate before a test.
+     *
+     * @param description The description of the test.
+     * @return The annotations, in declaration order, the class ones first.
+     */
+    public static List<GenerateCollection> getGenerateCollections(final Description description) {
+        final Map<String, GenerateCollection> collections = new LinkedHashMap<>();
+        final Class<?> testClass = description.getTestClass();
+        if (testClass != null) {
+            addGenerateCollections(collections, testClass.getAnnotation(GenerateCollection.class), testClass.getAnnotation(GenerateCollections.class));
+        }
+        addGenerateCollections(collections, description.getAnnotation(GenerateCollection.class), description.getAnnotation(GenerateCollections.class));
+        return new ArrayList<>(collections.values());
+    }
+
+    /**
+     * Gets the collections to check after a test.
+     *
+     * @param description The description of the test.
+     * @return The annotations, in declaration order, the class ones first.
+     */
+    public static List<ExpectedCollection> getExpectedCollections(final Description description) {
+        final Map<String, ExpectedCollection> collections = new LinkedHashMap<>();
+        final Class<?> testClass = description.getTestClass();
+        if (testClass != null) {
+            addExpectedCollections(collections, testClass.getAnnotation(ExpectedCollection.class), testClass.getAnnotation(ExpectedCollections.class));
+        }
+        addExpectedCollections(collections, description.getAnnotation(ExpectedCollection.class), description.getAnnotation(ExpectedCollections.class));
+        return new ArrayList<>(collections.values());
+    }
+
+    /**
+     * Finds the clear annotation of a collection.
+     *
+     * @param annotations    The clear annotations of the test.
+     * @param collectionName The name of the collection.
+     * @return The annotation, or null if the collection is not cleared.
+     */
+    static ClearCollection findClearCollection(final List<ClearCollection> annotations, final String collectionName) {
+        for (ClearCollection annotation : annotations) {
+            if (annotation.name().equals(collectionName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the init annotation of a collection.
+     *
+     * @param annotations    The init annotations of the test.
+     * @param collectionName The name of the collection.
+     * @return The annotation, or null if the collection is not initialized.
+     */
+    static InitCollection findInitCollection(final List<InitCollection> annotations, final String collectionName) {
+        for (InitCollection annotation : annotations) {
+            if (annotation.name().equals(collectionName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the generate annotation of a collection.
+     *
+     * @param annotations    The generate annotations of the test.
+     * @param collectionName The name of the collection.
+     * @return The annotation, or null if the collection is not generated.
+     */
+    static GenerateCollection findGenerateCollection(final List<GenerateCollection> annotations, final String collectionName) {
+        for (GenerateCollection annotation : annotations) {
+            if (annotation.name().equals(collectionName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static void addClearCollections(final Map<String, ClearCollection> collections, final ClearCollection annotation,
+                                            final ClearCollections container) {
+        if (annotation != null) {
+            collections.put(annotation.name(), annotation);
+        }
+        if (container != null) {
+            for (ClearCollection element : container.value()) {
+                collections.put(element.name(), element);
+            }
+        }
+    }
+
+    private static void addInitCollections(final Map<String, InitCollection> collections, final InitCollection annotation,
+                                           final InitCollections container) {
+        if (annotation != null) {
+            collections.put(annotation.name(), annotation);
+        }
+        if (container != null) {
+            for (InitCollection element : container.value()) {
+                collections.put(element.name(), element);
+            }
+        }
+    }
+
+    private static void addGenerateCollections(final Map<String, GenerateCollection> collections, final GenerateCollection annotation,
+                                               final GenerateCollections container) {
+        if (annotation != null) {
+            collections.put(annotation.name(), annotation);
+        }
+        if (container != null) {
+            for (GenerateCollection element : container.value()) {
+                collections.put(element.name(), element);
+            }
+        }
+    }
+
+    private static void addExpectedCollections(final Map<String, ExpectedCollection> collections, final ExpectedCollection annotation,
+                                               final ExpectedCollections container) {
+        if (annotation != null) {
+            collections.put(annotation.name(), annotation);
+        }
+        if (container != null) {
+            for (ExpectedCollection element : container.value()) {
+                collections.put(element.name(), element);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.wayis.framework.test.mongodb.rule;
+
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.MongoProperties;
+import org.junit.runners.model.MultipleFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work of the rules on independent collections concurrently.<br/>
+ * The tasks run on a small pool of daemon threads whose size is set by the mongodb.annotations.threads property (4 by default, 1 to run
+ * them one after the other), so the setup of a test takes the time of its largest collection rather than the sum.
+ * Each task runs with the MongoManager and the database of the test thread.
+ */
+final class CollectionTasks {
+
+    private static final String MONGODB_ANNOTATIONS_THREADS_PROPERTY = "mongodb.annotations.threads";
+
+    private static final int DEFAULT_THREADS = 4;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final int THREADS = Math.max(1, MongoProperties.getInt(MONGODB_ANNOTATIONS_THREADS_PROPERTY, DEFAULT_THREADS));
+
+    private static ExecutorService executor = null;
+
+    private CollectionTasks() {
+    }
+
+    /**
+     * Runs tasks and waits for all of them.<br/>
+     * A single task runs on the current thread.
+     *
+     * @param tasks The tasks, one per collection.
+     * @throws Throwable The failure of a task, or a {@link MultipleFailureException} with the failures of several tasks.
+     */
+    static void invokeAll(final List<Callable<Void>> tasks) throws Throwable {
+        if (tasks.size() == 1 || THREADS == 1) {
+            for (Callable<Void> task : tasks) {
+                task.call();
+            }
+            return;
+        }
+        final MongoManager manager = MongoManager.getInstance();
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(getExecutor().submit(manager.withCurrentContext(task)));
+        }
+        final List<Throwable> failures = new ArrayList<>();
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        MultipleFailureException.assertEmpty(failures);
+    }
+
+    /**
+     * Gets the executor of the tasks.
+     *
+     * @return A pool of daemon threads.
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "mongodb-unit-test-collection-" + THREAD_COUNTER.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.wayis.framework.test.mongodb.rule;
+
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.GenerateCollection;
+import com.github.wayis.framework.test.mongodb.generator.DocumentTemplate;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.GenerateCollection} and
+ * {@link com.github.wayis.framework.test.mongodb.annotation.GenerateCollections} annotations of the test method and of the test class.<br>
+ * The unit test is evaluated after this test rule.<br>
+ * This rule checks the GenerateCollection annotations and calls the MongoManager to fill the given collections with generated documents.
+ * The collections are generated concurrently, and their declared indexes are built after the insertion of the documents.<br>
+ * When the test also clears a collection, the collection is cleared by this rule, and both are skipped if the collection
+ * still holds the documents generated by the same annotation. See {@link MongoManager#isSeeded(String, String, com.github.wayis.framework.test.mongodb.annotation.ClearMode)}.<br>
+ * The generation and the indexing times are sent to the {@link com.github.wayis.framework.test.mongodb.metrics.Timings} listeners.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.GenerateCollection
+ * @see com.github.wayis.framework.test.mongodb.MongoManager#generateCollection(String, DocumentTemplate, long, long,
+ * com.github.wayis.framework.test.mongodb.annotation.InsertMode, int, int)
+ * @see org.junit.rules.TestRule
+ */
+public final class GenerateCollectionRule implements TestRule {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GenerateCollectionRule.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                final List<ClearCollection> clearCollections = CollectionAnnotations.getClearCollections(description);
+                final List<Callable<Void>> tasks = new ArrayList<>();
+                for (final GenerateCollection annotation : CollectionAnnotations.getGenerateCollections(description)) {
+                    final ClearCollection clear = CollectionAnnotations.findClearCollection(clearCollections, annotation.name());
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            if (clear == null) {
+                                generateCollection(annotation, description);
+                            } else {
+                                regenerateCollection(clear, annotation, description);
+                            }
+                            return null;
+                        }
+                    });
+                }
+                CollectionTasks.invokeAll(tasks);
+                base.evaluate();
+            }
+        };
+    }
+
+    /**
+     * Clears a collection and fills it with generated documents, unless it still holds the documents generated by the same annotation.
+     *
+     * @param clear       The clear annotation of the collection.
+     * @param annotation  The generate annotation of the collection.
+     * @param description The description of the test.
+     */
+    private static void regenerateCollection(final ClearCollection clear, final GenerateCollection annotation, final Description description) {
+        final MongoManager manager = MongoManager.getInstance();
+        final String collectionName = annotation.name();
+        final String fixture = "generated:" + annotation.seed() + ":" + annotation.count() + ":" + annotation.template();
+        if (manager.isSeeded(collectionName, fixture, clear.mode())) {
+            LOGGER.info("@ClearCollection and @GenerateCollection found -> collection '" + collectionName + "' is unchanged since its generation");
+            return;
+        }
+        ClearCollectionRule.clearCollection(clear, description);
+        generateCollection(annotation, description);
+        manager.markSeeded(collectionName, fixture);
+    }
+
+    /**
+     * Fills the collection of an annotation with generated documents.
+     *
+     * @param annotation  The annotation.
+     * @param description The description of the test.
+     */
+    private static void generateCollection(final GenerateCollection annotation, final Description description) {
+        final MongoManager manager = MongoManager.getInstance();
+        final String collectionName = annotation.name();
+        LOGGER.info("@GenerateCollection found -> collection '" + collectionName + "' will be filled with " + annotation.count() + " documents");
+        final long start = System.nanoTime();
+        manager.generateCollection(collectionName, DocumentTemplate.compile(annotation.template()), annotation.count(), annotation.seed(),
+                annotation.mode(), annotation.batchSize(), annotation.threads());
+        Timings.record(description.getDisplayName(), Phase.GENERATE, collectionName, null, annotation.count(), System.nanoTime() - start);
+        if (annotation.indexes().length > 0) {
+            final long indexing = System.nanoTime();
+            manager.createIndexes(collectionName, annotation.indexes());
+            Timings.record(description.getDisplayName(), Phase.INDEX, collectionName, null, 0, System.nanoTime() - indexing);
+        }
+    }
+
+}
@@ -1,24 +1,33 @@
 package com.github.wayis.framework.test.mongodb.rule;
 
-import com.mongodb.BasicDBList;
-import com.mongodb.util.JSON;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
 import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
 import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureLoader;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.TimedFixtureReader;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
 import com.github.wayis.framework.test.util.StreamUtils;
-import org.apache.commons.io.IOUtils;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
- * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation.<br>
+ * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} and
+ * {@link com.github.wayis.framework.test.mongodb.annotation.InitCollections} annotations of the test method and of the test class.<br>
  * The unit test is evaluated after this test rule.<br>
- * This rule checks the InitCollection annotation and calls the MongoManager to initialize the given collection with a JSON file.
+ * This rule checks the InitCollection annotations and calls the MongoManager to initialize the given collections with their JSON files.
+ * The collections are parsed and initialized concurrently, and their declared indexes are built after the insertion of the documents.<br>
+ * When the test also clears a collection, the collection is cleared by this rule, and both are skipped if the collection
+ * still holds the documents of the fixture. See {@link MongoManager#isSeeded(String, String, com.github.wayis.framework.test.mongodb.annotation.ClearMode)}.<br>
+ * The parsing, the insertion and the indexing times are sent to the {@link com.github.wayis.framework.test.mongodb.metrics.Timings} listeners.
  *
  * @see com.github.wayis.framework.test.mongodb.annotation.InitCollection
  * @see com.github.wayis.framework.test.mongodb.MongoManager
@@ -36,28 +45,78 @@ public final class InitCollectionRule implements TestRule {
         return new Statement() {
             @Override
             public void evaluate() throws Throwable {
-                InitCollection annotation = description.getAnnotation(InitCollection.class);
-                if (annotation != null) {
-                    final String collectionName = annotation.name();
-                    final String fileName = annotation.file();
-                    LOGGER.info("@InitCollection found -> collection '" + collectionName + "' will be initialized with the file '" + fileName + "'");
-                    InputStream file = null;
-                    try {
-                        file = description.getTestClass().getResourceAsStream(fileName);
-                        if (file == null) {
-                            throw new FileNotFoundException("Unable to load file '" + fileName + "' from the classpath");
+                final List<ClearCollection> clearCollections = CollectionAnnotations.getClearCollections(description);
+                final List<Callable<Void>> tasks = new ArrayList<>();
+                for (final InitCollection annotation : CollectionAnnotations.getInitCollections(description)) {
+                    final ClearCollection clear = CollectionAnnotations.findClearCollection(clearCollections, annotation.name());
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            if (clear == null) {
+                                initCollection(annotation, description);
+                            } else {
+                                reseedCollection(clear, annotation, description);
+                            }
+                            return null;
                         }
-
-                        String jsonFile = IOUtils.toString(file, "UTF-8");
-                        BasicDBList data = (BasicDBList) JSON.parse(jsonFile);
-                        MongoManager.getInstance().initCollection(collectionName, data);
-                    } finally {
-                        StreamUtils.closeQuietly(file);
-                    }
+                    });
                 }
+                CollectionTasks.invokeAll(tasks);
                 base.evaluate();
             }
         };
     }
 
+    /**
+     * Clears a collection and initializes it with its JSON file, unless it still holds the documents of this file.
+     *
+     * @param clear       The clear annotation of the collection.
+     * @param annotation  The init annotation of the collection.
+     * @param description The description of the test.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void reseedCollection(final ClearCollection clear, final InitCollection annotation, final Description description) throws IOException {
+        final MongoManager manager = MongoManager.getInstance();
+        final String collectionName = annotation.name();
+        final String fixture = FixtureLoader.getLocation(description.getTestClass(), annotation.file());
+        if (manager.isSeeded(collectionName, fixture, clear.mode())) {
+            LOGGER.info("@ClearCollection and @InitCollection found -> collection '" + collectionName
+                    + "' is unchanged since its initialization with the file '" + annotation.file() + "'");
+            return;
+        }
+        ClearCollectionRule.clearCollection(clear, description);
+        initCollection(annotation, description);
+        manager.markSeeded(collectionName, fixture);
+    }
+
+    /**
+     * Initializes the collection of an annotation with its JSON file.
+     *
+     * @param annotation  The annotation.
+     * @param description The description of the test.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void initCollection(final InitCollection annotation, final Description description) throws IOException {
+        final String collectionName = annotation.name();
+        final String fileName = annotation.file();
+        LOGGER.info("@InitCollection found -> collection '" + collectionName + "' will be initialized with the file '" + fileName + "'");
+        final long start = System.nanoTime();
+        TimedFixtureReader documents = new TimedFixtureReader(FixtureLoader.open(description.getTestClass(), fileName));
+        final long opened = System.nanoTime();
+        try {
+            MongoManager.getInstance().initCollection(collectionName, documents, annotation.mode(), annotation.batchSize());
+        } finally {
+            StreamUtils.closeQuietly(documents);
+            final long parsing = opened - start + documents.getNanos();
+            Timings.record(description.getDisplayName(), Phase.PARSE, collectionName, fileName, documents.getDocuments(), parsing);
+            Timings.record(description.getDisplayName(), Phase.INSERT, collectionName, fileName, documents.getDocuments(),
+                    System.nanoTime() - start - parsing);
+        }
+        if (annotation.indexes().length > 0) {
+            final long indexing = System.nanoTime();
+            MongoManager.getInstance().createIndexes(collectionName, annotation.indexes());
+            Timings.record(description.getDisplayName(), Phase.INDEX, collectionName, null, 0, System.nanoTime() - indexing);
+        }
+    }
+
 }
@@ -0,0 +1,47 @@
+package com.github.wayis.framework.test.mongodb.rule;
+
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JUnit test rule to bind a generated database to each test, according to the mongodb.isolation property.<br>
+ * The unit test and the others rules are evaluated inside this test rule, so they all use the generated database.<br>
+ * When the isolation is disabled, this rule does nothing.
+ *
+ * @see com.github.wayis.framework.test.mongodb.MongoManager#openIsolatedDatabase()
+ * @see com.github.wayis.framework.test.mongodb.MongoManager#closeIsolatedDatabase()
+ * @see org.junit.rules.TestRule
+ */
+public final class IsolatedDatabaseRule implements TestRule {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsolatedDatabaseRule.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                final MongoManager manager = MongoManager.getInstance();
+                if (!manager.isDatabaseIsolated()) {
+                    base.evaluate();
+                    return;
+                }
+                manager.openIsolatedDatabase();
+                LOGGER.info("Test '" + description.getDisplayName() + "' runs on the isolated database '" + manager.getDB().getName() + "'");
+                try {
+                    base.evaluate();
+                } finally {
+                    manager.closeIsolatedDatabase();
+                }
+            }
+        };
+    }
+
+}
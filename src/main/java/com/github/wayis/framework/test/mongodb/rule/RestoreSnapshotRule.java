@@ -0,0 +1,66 @@
+package com.github.wayis.framework.test.mongodb.rule;
+
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.annotation.ClearMode;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
+import com.github.wayis.framework.test.mongodb.annotation.Snapshot;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureLoader;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JUnit test rule to manage the {@link com.github.wayis.framework.test.mongodb.annotation.Snapshot} annotation of the test class.<br>
+ * The unit test is evaluated after this test rule.<br>
+ * This rule calls the MongoManager to restore each collection of the Snapshot annotation from its snapshot.
+ * The snapshots are taken by the runner before the first test of the class.
+ * A collection unchanged since it was seeded or restored is not restored again.
+ * The restore drops the collection, so its declared indexes are built again after the copy of the documents.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.Snapshot
+ * @see com.github.wayis.framework.test.mongodb.MongoManager#restoreCollection(String)
+ * @see org.junit.rules.TestRule
+ */
+public final class RestoreSnapshotRule implements TestRule {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestoreSnapshotRule.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                final Snapshot annotation = description.getTestClass().getAnnotation(Snapshot.class);
+                if (annotation != null) {
+                    final MongoManager manager = MongoManager.getInstance();
+                    for (InitCollection collection : annotation.value()) {
+                        final String fixture = FixtureLoader.getLocation(description.getTestClass(), collection.file());
+                        if (manager.isSeeded(collection.name(), fixture, ClearMode.DEFAULT)) {
+                            LOGGER.info("@Snapshot found -> collection '" + collection.name() + "' is unchanged since its snapshot");
+                            continue;
+                        }
+                        LOGGER.info("@Snapshot found -> collection '" + collection.name() + "' will be restored");
+                        final long start = System.nanoTime();
+                        manager.restoreCollection(collection.name());
+                        Timings.record(description.getDisplayName(), Phase.RESTORE, collection.name(), null, 0, System.nanoTime() - start);
+                        if (collection.indexes().length > 0) {
+                            final long indexing = System.nanoTime();
+                            manager.createIndexes(collection.name(), collection.indexes());
+                            Timings.record(description.getDisplayName(), Phase.INDEX, collection.name(), null, 0, System.nanoTime() - indexing);
+                        }
+                        manager.markSeeded(collection.name(), fixture);
+                    }
+                }
+                base.evaluate();
+            }
+        };
+    }
+
+}
@@ -1,14 +1,31 @@
 package com.github.wayis.framework.test.mongodb.runner;
 
 import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.MongoProperties;
+import com.github.wayis.framework.test.mongodb.MongodPool;
+import com.github.wayis.framework.test.mongodb.annotation.ClearMode;
+import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
+import com.github.wayis.framework.test.mongodb.annotation.Snapshot;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureLoader;
+import com.github.wayis.framework.test.mongodb.metrics.Phase;
+import com.github.wayis.framework.test.mongodb.metrics.TimedFixtureReader;
+import com.github.wayis.framework.test.mongodb.metrics.Timings;
 import com.github.wayis.framework.test.mongodb.rule.CheckCollectionRule;
 import com.github.wayis.framework.test.mongodb.rule.ClearCollectionRule;
+import com.github.wayis.framework.test.mongodb.rule.CollectionAnnotations;
+import com.github.wayis.framework.test.mongodb.rule.GenerateCollectionRule;
 import com.github.wayis.framework.test.mongodb.rule.InitCollectionRule;
+import com.github.wayis.framework.test.mongodb.rule.IsolatedDatabaseRule;
+import com.github.wayis.framework.test.mongodb.rule.RestoreSnapshotRule;
+import com.github.wayis.framework.test.util.StreamUtils;
 import org.apache.openejb.junit.ApplicationComposer;
 import org.junit.internal.runners.model.EachTestNotifier;
 import org.junit.rules.RuleChain;
 import org.junit.rules.TestRule;
+import org.junit.runner.Description;
 import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 
 import java.io.IOException;
@@ -20,8 +37,15 @@ import java.util.List;
  * <ul>
  * <li>ClearCollectionRule: to clear a given collection. Used with the {@link com.github.wayis.framework.test.mongodb.annotation.ClearCollection} annotation.</li>
  * <li>InitCollectionRule: to initialize a given collection with a JSON file. Used with the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation.</li>
+ * <li>GenerateCollectionRule: to fill a given collection with generated documents. Used with the {@link com.github.wayis.framework.test.mongodb.annotation.GenerateCollection} annotation.</li>
  * <li>CheckCollectionRule: to check a JSON file with the given collection. Used with {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation.</li>
  * </ul>
+ * The collections of the {@link com.github.wayis.framework.test.mongodb.annotation.Snapshot} annotation of the test class are seeded once,
+ * and the RestoreSnapshotRule restores them before each test. A collection still holding the documents of its JSON file is not seeded again.<br/>
+ * The JSON files of the next tests, set by the mongodb.fixture.preload property (2 by default, 0 to disable it), are parsed in background
+ * while the current test runs, so a test only waits for the insertion of its documents.<br/>
+ * The time of each phase is sent to the {@link com.github.wayis.framework.test.mongodb.metrics.Timings} listeners.<br/>
+ * These rules are wrapped by the IsolatedDatabaseRule, which binds a generated database to each test when the mongodb.isolation property is set.<br/>
  * These rules will be executed before all others test rules declared by @Rule.
  * <p/>
  * This Runner extends the openejb {@link org.apache.openejb.junit.ApplicationComposer} Runner.
@@ -30,17 +54,30 @@ import java.util.List;
  * @see com.github.wayis.framework.test.mongodb.annotation.ClearCollection
  * @see com.github.wayis.framework.test.mongodb.rule.InitCollectionRule
  * @see com.github.wayis.framework.test.mongodb.annotation.InitCollection
+ * @see com.github.wayis.framework.test.mongodb.rule.GenerateCollectionRule
+ * @see com.github.wayis.framework.test.mongodb.annotation.GenerateCollection
  * @see com.github.wayis.framework.test.mongodb.rule.CheckCollectionRule
  * @see com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection
+ * @see com.github.wayis.framework.test.mongodb.rule.IsolatedDatabaseRule
+ * @see com.github.wayis.framework.test.mongodb.rule.RestoreSnapshotRule
+ * @see com.github.wayis.framework.test.mongodb.annotation.Snapshot
  * @see org.junit.rules.TestRule
  * @see org.junit.Rule
  * @see org.apache.openejb.junit.ApplicationComposer
  */
 public class MongoApplicationComposer extends ApplicationComposer {
 
+    private static final String MONGODB_FIXTURE_PRELOAD_PROPERTY = "mongodb.fixture.preload";
+    private static final int DEFAULT_PRELOAD = 2;
+
+    private TestRule isolatedDatabaseRule;
+    private TestRule restoreSnapshotRule;
     private TestRule clearCollectionRule;
     private TestRule initCollectionRule;
+    private TestRule generateCollectionRule;
     private TestRule checkCollectionRule;
+    private final int preload;
+    private volatile MongoManager leased;
 
     /**
      * Constructs the Runner and initializes all rules.<br/>
@@ -51,27 +88,166 @@ public class MongoApplicationComposer extends ApplicationComposer {
      */
     public MongoApplicationComposer(Class<?> klass) throws InitializationError {
         super(klass);
+        this.isolatedDatabaseRule = new IsolatedDatabaseRule();
+        this.restoreSnapshotRule = new RestoreSnapshotRule();
         this.clearCollectionRule = new ClearCollectionRule();
         this.initCollectionRule = new InitCollectionRule();
+        this.generateCollectionRule = new GenerateCollectionRule();
         this.checkCollectionRule = new CheckCollectionRule();
+        this.preload = MongoProperties.getInt(MONGODB_FIXTURE_PRELOAD_PROPERTY, DEFAULT_PRELOAD);
+        if (this.preload > 0) {
+            preloadSnapshot();
+            preloadFixtures(0);
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The JSON files of the next tests are preloaded before the test runs.
+     * The MongoDB instance leased for the test class is bound to the thread running the test, which is not the thread of the class
+     * when the test methods run in parallel.
+     */
+    @Override
+    protected void runChild(final FrameworkMethod method, final RunNotifier notifier) {
+        if (this.preload > 0) {
+            preloadFixtures(getChildren().indexOf(method) + 1);
+        }
+        MongodPool.runWith(this.leased, new Runnable() {
+            @Override
+            public void run() {
+                MongoApplicationComposer.super.runChild(method, notifier);
+            }
+        });
+    }
+
+    /**
+     * Preloads the JSON files of the {@link com.github.wayis.framework.test.mongodb.annotation.Snapshot} annotation of the test class.
+     */
+    private void preloadSnapshot() {
+        final Snapshot snapshot = getTestClass().getJavaClass().getAnnotation(Snapshot.class);
+        if (snapshot != null) {
+            for (InitCollection collection : snapshot.value()) {
+                FixtureLoader.preload(getTestClass().getJavaClass(), collection.file());
+            }
+        }
+    }
+
+    /**
+     * Preloads the JSON files of the collection annotations of the next tests.<br/>
+     * The preload is limited to a few tests, so the preloaded fixtures are not evicted from the cache before they are used.
+     *
+     * @param from The index of the first test to preload.
+     */
+    private void preloadFixtures(final int from) {
+        final List<FrameworkMethod> methods = getChildren();
+        final Class<?> testClass = getTestClass().getJavaClass();
+        for (int i = from; i < Math.min(methods.size(), from + this.preload); i++) {
+            final Description description = describeChild(methods.get(i));
+            for (InitCollection collection : CollectionAnnotations.getInitCollections(description)) {
+                FixtureLoader.preload(testClass, collection.file());
+            }
+            for (ExpectedCollection collection : CollectionAnnotations.getExpectedCollections(description)) {
+                FixtureLoader.preload(testClass, collection.file());
+            }
+        }
     }
 
     /**
      * {@inheritDoc}<br/>
-     * A MongoDB is instanciated once before any of the test methods in the class.<br/>
-     * The MongoDB is shutdowned after all the tests in the class have run.
+     * A MongoDB instance is leased from the {@link com.github.wayis.framework.test.mongodb.MongodPool} for the whole test class.<br/>
+     * The MongoDB is acquired before any of the test methods in the class: it is started only if it is not already running.<br/>
+     * The MongoDB is released after all the tests in the class have run. Depending on the mongodb.lifecycle property,
+     * it is shutdowned immediately (<i>class</i>) or when the JVM exits (<i>jvm</i>).
+     *
+     * @see com.github.wayis.framework.test.mongodb.MongodPool#lease()
+     * @see com.github.wayis.framework.test.mongodb.MongoManager#acquire()
+     * @see com.github.wayis.framework.test.mongodb.MongoManager#release()
      */
     @Override
     public void run(RunNotifier notifier) {
         EachTestNotifier testNotifier = new EachTestNotifier(notifier,
                 getDescription());
+        final MongodPool pool = MongodPool.getInstance();
+        final MongoManager manager;
         try {
-            MongoManager.getInstance().runMongoDB();
+            manager = pool.lease();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            testNotifier.addFailure(e);
+            return;
+        }
+        try {
+            manager.acquire();
+        } catch (IOException e) {
+            pool.giveBack(manager);
+            testNotifier.addFailure(e);
+            return;
+        }
+        this.leased = manager;
+        try {
+            seedSnapshot(manager);
+            super.run(notifier);
         } catch (IOException e) {
             testNotifier.addFailure(e);
+        } finally {
+            this.leased = null;
+            manager.release();
+            pool.giveBack(manager);
+        }
+    }
+
+    /**
+     * Seeds the collections of the {@link com.github.wayis.framework.test.mongodb.annotation.Snapshot} annotation of the test class
+     * and takes their snapshots.
+     *
+     * @param manager The MongoManager leased for the test class.
+     * @throws IOException If a JSON file cannot be read.
+     */
+    private void seedSnapshot(final MongoManager manager) throws IOException {
+        final Snapshot snapshot = getTestClass().getJavaClass().getAnnotation(Snapshot.class);
+        if (snapshot == null) {
+            return;
+        }
+        final String testClass = getTestClass().getName();
+        for (InitCollection collection : snapshot.value()) {
+            final String fixture = FixtureLoader.getLocation(getTestClass().getJavaClass(), collection.file());
+            if (!manager.isSeeded(collection.name(), fixture, ClearMode.DEFAULT)) {
+                seedCollection(manager, collection);
+                manager.markSeeded(collection.name(), fixture);
+            }
+            final long start = System.nanoTime();
+            manager.snapshotCollection(collection.name());
+            Timings.record(testClass, Phase.SNAPSHOT, collection.name(), null, 0, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Clears a collection of the {@link com.github.wayis.framework.test.mongodb.annotation.Snapshot} annotation, initializes it with its JSON file
+     * and builds its declared indexes.
+     *
+     * @param manager    The MongoManager leased for the test class.
+     * @param collection The collection and its JSON file.
+     * @throws IOException If the JSON file cannot be read.
+     */
+    private void seedCollection(final MongoManager manager, final InitCollection collection) throws IOException {
+        final String testClass = getTestClass().getName();
+        final long start = System.nanoTime();
+        final TimedFixtureReader documents = new TimedFixtureReader(FixtureLoader.open(getTestClass().getJavaClass(), collection.file()));
+        final long opened = System.nanoTime();
+        try {
+            manager.clearCollection(collection.name());
+            manager.initCollection(collection.name(), documents, collection.mode(), collection.batchSize());
+        } finally {
+            StreamUtils.closeQuietly(documents);
+        }
+        final long parsing = opened - start + documents.getNanos();
+        Timings.record(testClass, Phase.PARSE, collection.name(), collection.file(), documents.getDocuments(), parsing);
+        Timings.record(testClass, Phase.INSERT, collection.name(), collection.file(), documents.getDocuments(), System.nanoTime() - start - parsing);
+        if (collection.indexes().length > 0) {
+            final long indexing = System.nanoTime();
+            manager.createIndexes(collection.name(), collection.indexes());
+            Timings.record(testClass, Phase.INDEX, collection.name(), null, 0, System.nanoTime() - indexing);
         }
-        super.run(notifier);
-        MongoManager.getInstance().shutdownMongoDB();
     }
 
     /**
@@ -81,15 +257,19 @@ public class MongoApplicationComposer extends ApplicationComposer {
      * @param target the test case instance
      * @return a list of TestRules that should be applied when executing this
      * test.
+     * @see com.github.wayis.framework.test.mongodb.rule.IsolatedDatabaseRule
+     * @see com.github.wayis.framework.test.mongodb.rule.RestoreSnapshotRule
      * @see com.github.wayis.framework.test.mongodb.rule.ClearCollectionRule
      * @see com.github.wayis.framework.test.mongodb.rule.InitCollectionRule
+     * @see com.github.wayis.framework.test.mongodb.rule.GenerateCollectionRule
      * @see com.github.wayis.framework.test.mongodb.rule.CheckCollectionRule
      * @see org.junit.rules.RuleChain
      */
     @Override
     protected List<TestRule> getTestRules(Object target) {
         final List<TestRule> rules = new ArrayList<>();
-        rules.add(RuleChain.outerRule(checkCollectionRule).around(clearCollectionRule).around(initCollectionRule));
+        rules.add(RuleChain.outerRule(isolatedDatabaseRule).around(checkCollectionRule).around(restoreSnapshotRule).around(clearCollectionRule).around(initCollectionRule)
+                .around(generateCollectionRule));
         rules.addAll(super.getTestRules(target));
         return rules;
     }
@@ -0,0 +1,72 @@
+package com.github.wayis.framework.test.mongodb;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test of the {@link DataDirectoryTemplate}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.DataDirectoryTemplate
+ */
+public class DataDirectoryTemplateTest {
+
+    private static final int THREADS = 2;
+
+    /**
+     * Directory of the template.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the mongod processes of a pool can prepare their data directory from the same template at the same time.
+     */
+    @Test(timeout = 60000)
+    public void testPrepareFromTwoThreads() throws Exception {
+        final File template = folder.newFolder("template");
+        FileUtils.writeStringToFile(new File(template, "mongo-unit-test.0"), "data", "UTF-8");
+        FileUtils.writeStringToFile(new File(template, "mongod.lock"), "1234", "UTF-8");
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final Callable<File> prepare = new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                barrier.await();
+                return DataDirectoryTemplate.prepare(template, Collections.<String, String>emptyMap());
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<File> dbPaths = new ArrayList<>();
+        try {
+            for (int round = 0; round < 200; round++) {
+                final List<Future<File>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    futures.add(executor.submit(prepare));
+                }
+                for (Future<File> future : futures) {
+                    final File dbPath = future.get();
+                    dbPaths.add(dbPath);
+                    Assert.assertEquals("data", FileUtils.readFileToString(new File(dbPath, "mongo-unit-test.0"), "UTF-8"));
+                    Assert.assertFalse("The mongod lock file of the template is copied.", new File(dbPath, "mongod.lock").exists());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (File dbPath : dbPaths) {
+                FileUtils.deleteQuietly(dbPath);
+            }
+        }
+    }
+}
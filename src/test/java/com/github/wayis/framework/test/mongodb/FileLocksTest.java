@@ -0,0 +1,90 @@
+package com.github.wayis.framework.test.mongodb;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test of the {@link FileLocks}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.FileLocks
+ */
+public class FileLocksTest {
+
+    /**
+     * Directory of the lock files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a thread locking a file held by another thread of the JVM waits for it, instead of failing
+     * with an OverlappingFileLockException.
+     */
+    @Test(timeout = 30000)
+    public void testLockFromTwoThreads() throws Exception {
+        final File lockFile = new File(folder.getRoot(), "template.lock");
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    FileLocks.run(lockFile, new FileLocks.LockedAction() {
+                        @Override
+                        public void run() {
+                            locked.countDown();
+                            awaitQuietly(release);
+                        }
+                    });
+                    return null;
+                }
+            });
+            locked.await();
+            final Future<?> second = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    FileLocks.run(lockFile, new FileLocks.LockedAction() {
+                        @Override
+                        public void run() {
+                            // Nothing to do: the lock is taken.
+                        }
+                    });
+                    return null;
+                }
+            });
+            try {
+                second.get(500, TimeUnit.MILLISECONDS);
+                Assert.fail("The second thread does not wait for the lock.");
+            } catch (TimeoutException e) {
+                // Expected: the lock is held by the first thread.
+            }
+            release.countDown();
+            first.get();
+            second.get();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
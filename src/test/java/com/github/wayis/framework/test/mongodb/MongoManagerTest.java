@@ -0,0 +1,31 @@
+package com.github.wayis.framework.test.mongodb;
+
+import com.mongodb.WriteConcern;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the configuration of the {@link MongoManager}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.MongoManager
+ */
+public class MongoManagerTest {
+
+    /**
+     * Tests the names of the write concerns of the mongodb.client.writeConcern property, whatever their case.
+     */
+    @Test
+    public void testWriteConcern() {
+        Assert.assertEquals(WriteConcern.JOURNALED, MongoManager.parseWriteConcern("JOURNALED"));
+        Assert.assertEquals(WriteConcern.ACKNOWLEDGED, MongoManager.parseWriteConcern("acknowledged"));
+        Assert.assertEquals(WriteConcern.UNACKNOWLEDGED, MongoManager.parseWriteConcern("Unacknowledged"));
+    }
+
+    /**
+     * Tests the error of an unknown write concern.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownWriteConcern() {
+        MongoManager.parseWriteConcern("ALWAYS");
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.wayis.framework.test.mongodb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test of the {@link MongodPool}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.MongodPool
+ */
+public class MongodPoolTest {
+
+    /**
+     * Tests a task run with the instance leased by another thread, like a test method run in parallel: the instance is bound
+     * to the thread during the task only, and the previous one is bound again after it, even on failure.
+     */
+    @Test
+    public void testRunWith() throws InterruptedException {
+        final MongoManager leased = new MongoManager(0);
+        final MongoManager nested = new MongoManager(0);
+        final AtomicReference<Object> inside = new AtomicReference<>();
+        final AtomicReference<Object> inNested = new AtomicReference<>();
+        final AtomicReference<Object> afterNested = new AtomicReference<>();
+        final AtomicReference<Object> after = new AtomicReference<>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MongodPool.runWith(leased, new Runnable() {
+                    @Override
+                    public void run() {
+                        inside.set(MongoManager.getInstance());
+                        try {
+                            MongodPool.runWith(nested, new Runnable() {
+                                @Override
+                                public void run() {
+                                    inNested.set(MongoManager.getInstance());
+                                    throw new IllegalStateException("failure of the test");
+                                }
+                            });
+                        } catch (IllegalStateException e) {
+                            afterNested.set(MongoManager.getInstance());
+                        }
+                    }
+                });
+                after.set(MongodPool.current());
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertSame(leased, inside.get());
+        Assert.assertSame(nested, inNested.get());
+        Assert.assertSame(leased, afterNested.get());
+        Assert.assertNull(after.get());
+        Assert.assertNull(MongodPool.current());
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.wayis.framework.test.mongodb.check;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Test of the {@link CollectionDiff}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.check.CollectionDiff
+ */
+public class CollectionDiffTest {
+
+    /**
+     * Tests the missing and unexpected documents, and the field-level differences of the closest documents.
+     */
+    @Test
+    public void testCompare() {
+        final DocumentMultiset expected = multiset(user("WHITE", "Walt", 50), user("PINKMAN", "Jesse", 25), user("WHITE", "Skyler", 40));
+        final List<DBObject> actual = Arrays.asList(user("PINKMAN", "Jesse", 25), user("WHITE", "Skyler", 40), user("WHITE", "Walt", 51));
+
+        final CollectionDiff diff = CollectionDiff.compare(expected, actual.size(), actual.iterator(), 10);
+        Assert.assertFalse(diff.isEmpty());
+        Assert.assertFalse(diff.isStopped());
+        Assert.assertEquals(Collections.<Object>singletonList(user("WHITE", "Walt", 50)), diff.getMissing());
+        Assert.assertEquals(Collections.<Object>singletonList(user("WHITE", "Walt", 51)), diff.getUnexpected());
+        Assert.assertEquals(Collections.singletonList("age: expected <50> but was <51>"), diff.getDifferences());
+    }
+
+    /**
+     * Tests that the comparison stops at the limit of unexpected documents, without reading the rest of the stream.
+     */
+    @Test
+    public void testStopAtLimit() {
+        final DocumentMultiset expected = multiset(user("WHITE", "Walt", 50));
+        final List<DBObject> actual = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            actual.add(user("SCHRADER", "Hank", i));
+        }
+        final Iterator<DBObject> documents = actual.iterator();
+
+        final CollectionDiff diff = CollectionDiff.compare(expected, actual.size(), documents, 3);
+        Assert.assertTrue(diff.isStopped());
+        Assert.assertEquals(3, diff.getUnexpected().size());
+        Assert.assertTrue(diff.getMissing().isEmpty());
+        Assert.assertTrue(documents.hasNext());
+        Assert.assertEquals(user("SCHRADER", "Hank", 3), documents.next());
+    }
+
+    /**
+     * Tests that identical collections, in any order, have no difference.
+     */
+    @Test
+    public void testNoDifference() {
+        final DocumentMultiset expected = multiset(user("WHITE", "Walt", 50), user("PINKMAN", "Jesse", 25));
+        final List<DBObject> actual = Arrays.asList(new BasicDBObject("age", 25).append("firstname", "Jesse").append("lastname", "PINKMAN"),
+                user("WHITE", "Walt", 50));
+
+        final CollectionDiff diff = CollectionDiff.compare(expected, actual.size(), actual.iterator(), 10);
+        Assert.assertTrue(diff.isEmpty());
+    }
+
+    /**
+     * Tests that numbers are compared by value whatever their type, like the JSON fixtures parsed as int and the documents written as long or double.
+     */
+    @Test
+    public void testNumericTypes() {
+        final DocumentMultiset expected = multiset(user("WHITE", "Walt", 50), user("PINKMAN", "Jesse", 25), user("WHITE", "Skyler", 0));
+        final List<DBObject> actual = Arrays.<DBObject>asList(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse").append("age", 25.0),
+                new BasicDBObject("firstname", "Walt").append("lastname", "WHITE").append("age", 50L),
+                new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler").append("age", -0.0));
+
+        final CollectionDiff diff = CollectionDiff.compare(expected, actual.size(), actual.iterator(), 10);
+        Assert.assertTrue(diff.getReport(), diff.isEmpty());
+    }
+
+    private static DBObject user(final String lastname, final String firstname, final int age) {
+        return new BasicDBObject("lastname", lastname).append("firstname", firstname).append("age", age);
+    }
+
+    private static DocumentMultiset multiset(final DBObject... documents) {
+        final DocumentMultiset multiset = new DocumentMultiset();
+        for (DBObject document : documents) {
+            multiset.add(document);
+        }
+        return multiset;
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.wayis.framework.test.mongodb.check;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Test of the {@link FieldMask}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.check.FieldMask
+ */
+public class FieldMaskTest {
+
+    /**
+     * Tests the top-level and dotted paths, through sub-documents and arrays of documents.
+     */
+    @Test
+    public void testDottedPaths() {
+        final DBObject document = parse("{_id: 1, name: 'Walt', audit: {createdAt: 1, updatedAt: 2}, items: [{sku: 'a', price: 1}, {sku: 'b', price: 2}]}");
+        FieldMask.compile("_id", "audit.updatedAt", "items.price").apply(document);
+        Assert.assertEquals(parse("{name: 'Walt', audit: {createdAt: 1}, items: [{sku: 'a'}, {sku: 'b'}]}"), document);
+    }
+
+    /**
+     * Tests the wildcard on the fields of a document and on the elements of an array.
+     */
+    @Test
+    public void testWildcards() {
+        final DBObject document = parse("{name: 'Walt', audit: {updatedAt: 2}, address: {city: 'ABQ', updatedAt: 3}, items: [{sku: 'a', price: 1}]}");
+        final FieldMask mask = FieldMask.compile("*.updatedAt", "items.*.price");
+        Assert.assertTrue(mask.hasWildcards());
+        mask.apply(document);
+        Assert.assertEquals(parse("{name: 'Walt', audit: {}, address: {city: 'ABQ'}, items: [{sku: 'a'}]}"), document);
+    }
+
+    /**
+     * Tests a trailing wildcard on an array: all its elements are ignored, the scalars as well as the documents.
+     */
+    @Test
+    public void testTrailingWildcardOnArray() {
+        final FieldMask mask = FieldMask.compile("items.*");
+        final DBObject scalars = mask.apply(parse("{name: 'Walt', items: [1, 'a', [2]]}"));
+        final DBObject documents = mask.apply(parse("{name: 'Walt', items: [{sku: 'a'}, {}]}"));
+        Assert.assertEquals(parse("{name: 'Walt', items: []}"), scalars);
+        Assert.assertEquals(scalars, documents);
+        Assert.assertEquals(mask.apply(parse("{items: [1]}")), mask.apply(parse("{items: [{}]}")));
+        Assert.assertEquals(parse("{name: 'Walt'}"), mask.apply(parse("{name: 'Walt'}")));
+    }
+
+    /**
+     * Tests a trailing wildcard on a document: all its fields are ignored, but the field is kept with its type.
+     */
+    @Test
+    public void testTrailingWildcardOnDocument() {
+        final FieldMask mask = FieldMask.compile("items.*");
+        Assert.assertEquals(parse("{items: {}}"), mask.apply(parse("{items: {sku: 'a', price: {amount: 1}}}")));
+        Assert.assertEquals(parse("{items: 1}"), mask.apply(parse("{items: 1}")));
+        Assert.assertFalse(mask.apply(parse("{items: {sku: 'a'}}")).get("items") instanceof List);
+        Assert.assertTrue(mask.apply(parse("{items: [{sku: 'a'}]}")).get("items") instanceof List);
+    }
+
+    /**
+     * Tests the projection: the paths with a wildcard and the paths below an excluded path are left out.
+     */
+    @Test
+    public void testProjection() {
+        final FieldMask mask = FieldMask.compile("_id", "audit", "audit.updatedAt", "*.version", "items.price");
+        Assert.assertEquals(new BasicDBObject("_id", 0).append("audit", 0).append("items.price", 0), mask.getProjection());
+        Assert.assertSame(mask, FieldMask.compile("_id", "audit", "audit.updatedAt", "*.version", "items.price"));
+    }
+
+    private static DBObject parse(final String json) {
+        return (DBObject) JSON.parse(json);
+    }
+}
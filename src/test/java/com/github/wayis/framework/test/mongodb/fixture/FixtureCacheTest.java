@@ -0,0 +1,50 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.BasicDBList;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the {@link FixtureCache}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.fixture.FixtureCache
+ */
+public class FixtureCacheTest {
+
+    /**
+     * Tests that the least recently used fixtures are evicted when their total size exceeds the capacity.
+     */
+    @Test
+    public void testEvictionByWeight() {
+        final FixtureCache cache = new FixtureCache(100);
+        final BasicDBList users = new BasicDBList();
+        final BasicDBList orders = new BasicDBList();
+        final BasicDBList products = new BasicDBList();
+        cache.put("file:/users.json", users, 40);
+        cache.put("file:/orders.json", orders, 40);
+        Assert.assertEquals(80, cache.getWeight());
+
+        // users becomes the most recently used fixture, so orders is evicted first.
+        Assert.assertSame(users, cache.get("file:/users.json"));
+        cache.put("file:/products.json", products, 50);
+        Assert.assertEquals(90, cache.getWeight());
+        Assert.assertSame(users, cache.get("file:/users.json"));
+        Assert.assertNull(cache.get("file:/orders.json"));
+        Assert.assertSame(products, cache.get("file:/products.json"));
+    }
+
+    /**
+     * Tests that a fixture larger than the capacity is never cached, and that a replaced fixture does not count twice.
+     */
+    @Test
+    public void testSize() {
+        final FixtureCache cache = new FixtureCache(100);
+        cache.put("file:/large.json", new BasicDBList(), 101);
+        Assert.assertNull(cache.get("file:/large.json"));
+        Assert.assertEquals(0, cache.getWeight());
+
+        cache.put("file:/users.json", new BasicDBList(), 60);
+        cache.put("file:/users.json", new BasicDBList(), 30);
+        Assert.assertEquals(30, cache.getWeight());
+    }
+}
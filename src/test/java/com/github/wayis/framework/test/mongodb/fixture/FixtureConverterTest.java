@@ -0,0 +1,96 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.github.wayis.framework.test.util.StreamUtils;
+import com.mongodb.BasicDBList;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Test of the {@link FixtureConverter} and of the {@link BsonFixtureReader}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.fixture.FixtureConverter
+ * @see com.github.wayis.framework.test.mongodb.fixture.BsonFixtureReader
+ */
+public class FixtureConverterTest {
+
+    private File directory;
+
+    /**
+     * Creates a temporary directory for the converted fixtures.
+     */
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("fixture-converter").toFile();
+    }
+
+    /**
+     * Deletes the converted fixtures.
+     */
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    /**
+     * Tests the conversion of a JSON fixture into a BSON file: the BSON documents are the JSON ones.
+     */
+    @Test
+    public void testConvert() throws IOException {
+        final File target = new File(this.directory, "users_init.bson");
+        Assert.assertEquals(5, FixtureConverter.convert(getSource(), target));
+        Assert.assertEquals(FixtureLoader.load(getClass(), "/data/users_init.json"), read(new FileInputStream(target)));
+    }
+
+    /**
+     * Tests the conversion of a directory into compressed BSON files.
+     */
+    @Test
+    public void testConvertDirectoryCompressed() throws IOException {
+        FixtureConverter.convertDirectory(getSource().getParentFile(), this.directory, true);
+        final File target = new File(this.directory, "users_init.bson.gz");
+        Assert.assertTrue(target.isFile());
+        Assert.assertEquals(FixtureLoader.load(getClass(), "/data/users_init.json"), read(new GZIPInputStream(new FileInputStream(target))));
+    }
+
+    /**
+     * Tests the --gzip option of the command line with a single file: the target gets the .gz extension and is compressed.
+     */
+    @Test
+    public void testMainCompressedFile() throws IOException {
+        FixtureConverter.main(new String[]{"--gzip", getSource().getPath(), new File(this.directory, "users_init.bson").getPath()});
+        Assert.assertFalse(new File(this.directory, "users_init.bson").exists());
+        final File target = new File(this.directory, "users_init.bson.gz");
+        Assert.assertEquals(FixtureLoader.load(getClass(), "/data/users_init.json"), read(new GZIPInputStream(new FileInputStream(target))));
+
+        FixtureConverter.main(new String[]{"--gzip", getSource().getPath(), new File(this.directory, "copy.bson.gz").getPath()});
+        Assert.assertTrue(new File(this.directory, "copy.bson.gz").isFile());
+        Assert.assertFalse(new File(this.directory, "copy.bson.gz.gz").exists());
+    }
+
+    private File getSource() {
+        return FileUtils.toFile(getClass().getResource("/data/users_init.json"));
+    }
+
+    private static BasicDBList read(final InputStream input) throws IOException {
+        final BasicDBList documents = new BasicDBList();
+        final BsonFixtureReader reader = new BsonFixtureReader(input);
+        try {
+            while (reader.hasNext()) {
+                documents.add(reader.next());
+            }
+        } finally {
+            StreamUtils.closeQuietly(reader);
+        }
+        return documents;
+    }
+}
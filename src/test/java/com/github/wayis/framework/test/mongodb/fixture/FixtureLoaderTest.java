@@ -0,0 +1,102 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.github.wayis.framework.test.mongodb.check.DocumentKey;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+/**
+ * Test of the {@link FixtureLoader}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.fixture.FixtureLoader
+ */
+public class FixtureLoaderTest {
+
+    /**
+     * Temporary classpath of the fixtures modified by the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a relative file name is resolved against the package of each class, so two classes of different packages
+     * loading the same name get their own fixture from the cache.
+     */
+    @Test
+    public void testRelativeFileNames() throws IOException {
+        final BasicDBList fixture = FixtureLoader.load(FixtureLoader.class, "collision.json");
+        final BasicDBList check = FixtureLoader.load(DocumentKey.class, "collision.json");
+        Assert.assertEquals(1, fixture.size());
+        Assert.assertEquals(new BasicDBObject("name", "fixture"), fixture.get(0));
+        Assert.assertEquals(2, check.size());
+        Assert.assertEquals(new BasicDBObject("name", "check"), check.get(0));
+
+        // Both are now cached: each class still gets its own file.
+        Assert.assertEquals(fixture, FixtureLoader.load(FixtureLoader.class, "collision.json"));
+        Assert.assertEquals(check, FixtureLoader.load(DocumentKey.class, "collision.json"));
+        Assert.assertEquals(1, count(FixtureLoader.open(FixtureLoader.class, "collision.json")));
+        Assert.assertEquals(2, count(FixtureLoader.open(DocumentKey.class, "collision.json")));
+    }
+
+    /**
+     * Tests that a preloaded fixture is served from the cache: a change of its file after the preload is not seen.
+     */
+    @Test
+    public void testPreloadedFixture() throws IOException {
+        final TemporaryClasspath classpath = new TemporaryClasspath(folder.getRoot());
+        classpath.write("preloaded.json", "[{name: 'preloaded'}]");
+        FixtureLoader.preload(classpath.getTestClass(), "/preloaded.json");
+        Assert.assertEquals(new BasicDBObject("name", "preloaded"), FixtureLoader.load(classpath.getTestClass(), "/preloaded.json").get(0));
+
+        classpath.write("preloaded.json", "[{name: 'modified'}, {name: 'modified'}]");
+        final BasicDBList cached = FixtureLoader.load(classpath.getTestClass(), "/preloaded.json");
+        Assert.assertEquals(1, cached.size());
+        Assert.assertEquals(new BasicDBObject("name", "preloaded"), cached.get(0));
+        Assert.assertEquals(1, count(FixtureLoader.open(classpath.getTestClass(), "/preloaded.json")));
+    }
+
+    /**
+     * Tests that a failed preload falls back to a normal read: the error is reported by the read when the fixture is used,
+     * and the fixture is read once its file is fixed.
+     */
+    @Test
+    public void testFailedPreload() throws IOException {
+        final TemporaryClasspath classpath = new TemporaryClasspath(folder.getRoot());
+        final StringBuilder queued = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            queued.append("{index: ").append(i).append("}\n");
+        }
+        classpath.write("queued.json", queued.toString());
+        classpath.write("invalid.json", "[{name: 'invalid'");
+        // The preloads run one at a time: the invalid fixture is queued behind the other one when it is loaded.
+        FixtureLoader.preload(classpath.getTestClass(), "/queued.json");
+        FixtureLoader.preload(classpath.getTestClass(), "/invalid.json");
+        try {
+            FixtureLoader.load(classpath.getTestClass(), "/invalid.json");
+            Assert.fail("The invalid fixture is loaded.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Unexpected end of the JSON fixture: the last document is not complete", e.getMessage());
+        }
+
+        classpath.write("invalid.json", "[{name: 'fixed'}]");
+        Assert.assertEquals(new BasicDBObject("name", "fixed"), FixtureLoader.load(classpath.getTestClass(), "/invalid.json").get(0));
+    }
+
+    private static int count(final FixtureReader reader) throws IOException {
+        try {
+            int count = 0;
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+}
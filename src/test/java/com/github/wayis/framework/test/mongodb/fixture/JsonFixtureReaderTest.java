@@ -0,0 +1,145 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test of the {@link JsonFixtureReader}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.fixture.JsonFixtureReader
+ */
+public class JsonFixtureReaderTest {
+
+    /**
+     * Temporary classpath of the large fixtures.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests a JSON array, with brackets, braces and quotes inside the strings.
+     */
+    @Test
+    public void testArray() throws IOException {
+        final List<DBObject> documents = readAll(new StringReader(
+                " [ {name: 'Walt', note: 'a } and a ]'}, {\"name\": \"Jesse\", \"tags\": [\"a\", {\"b\": \"\\\"{\"}]} ] "));
+        Assert.assertEquals(2, documents.size());
+        Assert.assertEquals(new BasicDBObject("name", "Walt").append("note", "a } and a ]"), documents.get(0));
+        Assert.assertEquals("Jesse", documents.get(1).get("name"));
+    }
+
+    /**
+     * Tests newline-delimited JSON documents.
+     */
+    @Test
+    public void testNewlineDelimited() throws IOException {
+        final List<DBObject> documents = readAll(new StringReader("{name: 'Walt'}\n{name: 'Jesse'}\r\n\n{name: 'Skyler'}\n"));
+        Assert.assertEquals(3, documents.size());
+        Assert.assertEquals(new BasicDBObject("name", "Skyler"), documents.get(2));
+    }
+
+    /**
+     * Tests that the documents are read one at a time from a source never held in memory.
+     */
+    @Test
+    public void testStreaming() throws IOException {
+        final int count = 100000;
+        final JsonFixtureReader reader = new JsonFixtureReader(new GeneratedReader(count));
+        try {
+            int index = 0;
+            while (reader.hasNext()) {
+                Assert.assertEquals(index, reader.next().get("index"));
+                index++;
+            }
+            Assert.assertEquals(count, index);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Tests that a fixture larger than the fixture cache is streamed from its file by {@link FixtureLoader#open(Class, String)}.
+     * The cache of the tests is set to 1 MB by the mongodb.fixture.cache.size property.
+     */
+    @Test
+    public void testOpenLargeFixture() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        final int count = 10000;
+        for (int i = 0; i < count; i++) {
+            content.append("{index: ").append(i).append(", padding: '").append(String.format("%020d", i)).append("'}\n");
+        }
+        final TemporaryClasspath classpath = new TemporaryClasspath(folder.getRoot());
+        classpath.write("large.json", content.toString());
+
+        final FixtureReader reader = FixtureLoader.open(classpath.getTestClass(), "/large.json");
+        try {
+            Assert.assertTrue(reader instanceof JsonFixtureReader);
+            int index = 0;
+            while (reader.hasNext()) {
+                Assert.assertEquals(index, reader.next().get("index"));
+                index++;
+            }
+            Assert.assertEquals(count, index);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<DBObject> readAll(final Reader source) throws IOException {
+        final List<DBObject> documents = new ArrayList<>();
+        final JsonFixtureReader reader = new JsonFixtureReader(source);
+        try {
+            while (reader.hasNext()) {
+                documents.add(reader.next());
+            }
+        } finally {
+            reader.close();
+        }
+        return documents;
+    }
+
+    /**
+     * Source of a JSON array of documents, generated as it is read.
+     */
+    private static final class GeneratedReader extends Reader {
+
+        private final int count;
+        private int index = -1;
+        private String current = "[";
+        private int position;
+
+        private GeneratedReader(final int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) {
+            if (position == current.length()) {
+                index++;
+                if (index > count) {
+                    return -1;
+                }
+                current = index == count ? "]" : (index == 0 ? "" : ",") + "{index: " + index + "}";
+                position = 0;
+            }
+            final int read = Math.min(length, current.length() - position);
+            current.getChars(position, position + read, buffer, offset);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
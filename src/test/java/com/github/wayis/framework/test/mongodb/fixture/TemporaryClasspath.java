@@ -0,0 +1,61 @@
+package com.github.wayis.framework.test.mongodb.fixture;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Directory of fixtures written by a test and added to the classpath of a class, to load them with the {@link FixtureLoader}.
+ */
+final class TemporaryClasspath {
+
+    private final File directory;
+    private final Class<?> testClass;
+
+    /**
+     * Constructs a classpath.
+     *
+     * @param directory The directory of the fixtures.
+     * @throws IOException If the anchor class cannot be loaded.
+     */
+    TemporaryClasspath(final File directory) throws IOException {
+        this.directory = directory;
+        final URL classes = Anchor.class.getProtectionDomain().getCodeSource().getLocation();
+        // The anchor class is loaded again by a class loader that looks up its resources in the directory.
+        final ClassLoader classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL(), classes}, ClassLoader.getSystemClassLoader().getParent());
+        try {
+            this.testClass = classLoader.loadClass(Anchor.class.getName());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to load the anchor class from " + classes, e);
+        }
+    }
+
+    /**
+     * Writes a fixture.
+     *
+     * @param fileName The path of the fixture in the directory.
+     * @param content  The content of the fixture.
+     * @throws IOException If the fixture cannot be written.
+     */
+    void write(final String fileName, final String content) throws IOException {
+        FileUtils.writeStringToFile(new File(directory, fileName), content, "UTF-8");
+    }
+
+    /**
+     * Gets a class whose resources include the fixtures of the directory.
+     *
+     * @return The class to pass to the {@link FixtureLoader}.
+     */
+    Class<?> getTestClass() {
+        return testClass;
+    }
+
+    /**
+     * Class without dependencies, loaded by the class loader of the directory.
+     */
+    static final class Anchor {
+    }
+}
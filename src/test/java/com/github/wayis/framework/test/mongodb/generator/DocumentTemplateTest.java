@@ -0,0 +1,126 @@
+package com.github.wayis.framework.test.mongodb.generator;
+
+import com.mongodb.DBObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test of the {@link DocumentTemplate}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.generator.DocumentTemplate
+ */
+public class DocumentTemplateTest {
+
+    private static final String TEMPLATE = "{_id: '${sequence:1}', login: 'user${sequence}', age: '${int:18:80}', score: '${gaussian:50:10}',"
+            + " level: '${choice:GOLD=1,SILVER=3}', active: '${bool:0.9}', birth: '${date:1950-01-01:2000-01-01}', team: 'dev',"
+            + " address: {city: '${choice:ABQ,NYC}', zip: '${text:5}'}, tags: ['${zipf:100:1.2}']}";
+
+    /**
+     * Tests the types of the generated values and the constants.
+     */
+    @Test
+    public void testValues() {
+        final DBObject document = DocumentTemplate.compile(TEMPLATE).generate(42, 9);
+        Assert.assertEquals(10L, document.get("_id"));
+        Assert.assertEquals("user9", document.get("login"));
+        final int age = (Integer) document.get("age");
+        Assert.assertTrue(age >= 18 && age <= 80);
+        Assert.assertTrue(document.get("score") instanceof Double);
+        Assert.assertTrue("GOLD".equals(document.get("level")) || "SILVER".equals(document.get("level")));
+        Assert.assertTrue(document.get("active") instanceof Boolean);
+        Assert.assertTrue(document.get("birth") instanceof Date);
+        Assert.assertEquals("dev", document.get("team"));
+        Assert.assertEquals(5, ((String) ((DBObject) document.get("address")).get("zip")).length());
+        final int rank = (Integer) ((List<?>) document.get("tags")).get(0);
+        Assert.assertTrue(rank >= 1 && rank <= 100);
+    }
+
+    /**
+     * Tests that a document depends only on the seed and on its index.
+     */
+    @Test
+    public void testDeterministic() {
+        final DocumentTemplate template = DocumentTemplate.compile(TEMPLATE);
+        Assert.assertSame(template, DocumentTemplate.compile(TEMPLATE));
+        Assert.assertEquals(template.generate(42, 1000), template.generate(42, 1000));
+        Assert.assertNotEquals(template.generate(42, 1000), template.generate(43, 1000));
+        Assert.assertNotEquals(template.generate(42, 1000), template.generate(42, 1001));
+    }
+
+    /**
+     * Tests the weights of a choice and the skew of a Zipf distribution.
+     */
+    @Test
+    public void testDistributions() {
+        final DocumentTemplate template = DocumentTemplate.compile("{level: '${choice:GOLD=1,SILVER=3}', rank: '${zipf:10:1}'}");
+        final Map<Object, Integer> levels = new HashMap<>();
+        final Map<Object, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            final DBObject document = template.generate(0, i);
+            increment(levels, document.get("level"));
+            increment(ranks, document.get("rank"));
+        }
+        Assert.assertEquals(2500, levels.get("GOLD"), 250);
+        Assert.assertEquals(7500, levels.get("SILVER"), 250);
+        Assert.assertTrue(ranks.get(1) > ranks.get(2));
+        Assert.assertTrue(ranks.get(2) > ranks.get(10));
+    }
+
+    /**
+     * Tests the error of an unknown generator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownGenerator() {
+        DocumentTemplate.compile("{name: '${unknown:1}'}");
+    }
+
+    /**
+     * Tests the errors of the invalid ranges, which could otherwise never end the generation.
+     */
+    @Test(timeout = 10000)
+    public void testInvalidRanges() {
+        final String[] expressions = {"int:80:18", "long:2:1", "double:1:0", "zipf:0:1", "choice:GOLD=0,SILVER=1", "choice:GOLD=-1",
+                "date:2020-01-01:2020-01-01", "date:2020-01-02:2020-01-01", "text:-1"};
+        for (String expression : expressions) {
+            try {
+                ValueGenerators.parse(expression);
+                Assert.fail("The generator expression '" + expression + "' is accepted.");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains(expression));
+            }
+        }
+    }
+
+    /**
+     * Tests the bounds of a range, including a range too wide for its span to be computed.
+     */
+    @Test(timeout = 10000)
+    public void testRangeBounds() {
+        final SeededRandom random = new SeededRandom(0, 0);
+        Assert.assertEquals(7L, random.nextLong(7, 7));
+        Assert.assertEquals(Long.MIN_VALUE, random.nextLong(Long.MIN_VALUE, Long.MIN_VALUE));
+        for (int i = 0; i < 1000; i++) {
+            final long value = random.nextLong(-1, Long.MAX_VALUE);
+            Assert.assertTrue(value >= -1);
+        }
+        random.nextLong(Long.MIN_VALUE, Long.MAX_VALUE);
+        Assert.assertEquals("", DocumentTemplate.compile("{text: '${text:0}'}").generate(0, 0).get("text"));
+    }
+
+    /**
+     * Tests the error of a range whose lowest value is greater than its highest value.
+     */
+    @Test(expected = IllegalArgumentException.class, timeout = 10000)
+    public void testReversedRange() {
+        new SeededRandom(0, 0).nextLong(80, 18);
+    }
+
+    private static void increment(final Map<Object, Integer> counts, final Object value) {
+        counts.put(value, counts.containsKey(value) ? counts.get(value) + 1 : 1);
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the {@link DocumentUpdater}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.memory.DocumentUpdater
+ */
+public class DocumentUpdaterTest {
+
+    /**
+     * Tests the replacement of a document: the _id is kept and cannot be changed.
+     */
+    @Test
+    public void testReplace() {
+        final DBObject document = parse("{ _id: 1, name: 'Walt', age: 50 }");
+        Assert.assertEquals(parse("{ _id: 1, name: 'Heisenberg' }"), DocumentUpdater.replace(document, parse("{ name: 'Heisenberg' }")));
+        Assert.assertEquals(parse("{ _id: 1, age: 51 }"), DocumentUpdater.replace(document, parse("{ _id: 1, age: 51 }")));
+        Assert.assertFalse(DocumentUpdater.isOperatorUpdate(parse("{ name: 'Heisenberg' }")));
+        Assert.assertTrue(DocumentUpdater.isOperatorUpdate(parse("{ $set: { name: 'Heisenberg' } }")));
+        try {
+            DocumentUpdater.replace(document, parse("{ _id: 2 }"));
+            Assert.fail("The _id cannot be changed");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("_id"));
+        }
+    }
+
+    /**
+     * Tests the operators on fields: $set, $unset, $rename and $setOnInsert.
+     */
+    @Test
+    public void testFieldOperators() {
+        assertUpdate("{ _id: 1, name: 'Walt', address: { city: 'Albuquerque' } }", "{ _id: 1, name: 'Walt' }",
+                "{ $set: { 'address.city': 'Albuquerque' } }");
+        assertUpdate("{ _id: 1 }", "{ _id: 1, name: 'Walt' }", "{ $unset: { name: 1, missing: 1 } }");
+        assertUpdate("{ _id: 1, firstname: 'Walt' }", "{ _id: 1, name: 'Walt' }", "{ $rename: { name: 'firstname', missing: 'other' } }");
+        assertUpdate("{ _id: 1, name: 'Walt' }", "{ _id: 1, name: 'Walt' }", "{ $setOnInsert: { age: 50 } }");
+        final DBObject inserted = parse("{ _id: 1 }");
+        DocumentUpdater.apply(inserted, parse("{ $setOnInsert: { age: 50 } }"), true);
+        Assert.assertEquals(parse("{ _id: 1, age: 50 }"), inserted);
+    }
+
+    /**
+     * Tests the numeric operators: $inc, $mul, $min and $max keep the integer types until they overflow.
+     */
+    @Test
+    public void testNumericOperators() {
+        assertUpdate("{ _id: 1, age: 51, count: 2 }", "{ _id: 1, age: 50 }", "{ $inc: { age: 1, count: 2 } }");
+        assertUpdate("{ _id: 1, age: 50.5 }", "{ _id: 1, age: 50 }", "{ $inc: { age: 0.5 } }");
+        assertUpdate("{ _id: 1, age: 100 }", "{ _id: 1, age: 50 }", "{ $mul: { age: 2 } }");
+        assertUpdate("{ _id: 1, age: 40 }", "{ _id: 1, age: 50 }", "{ $min: { age: 40 } }");
+        assertUpdate("{ _id: 1, age: 50 }", "{ _id: 1, age: 50 }", "{ $max: { age: 40 } }");
+        assertUpdate("{ _id: 1, age: 60, score: 3 }", "{ _id: 1, age: 50 }", "{ $max: { age: 60, score: 3 } }");
+        final DBObject document = parse("{ _id: 1, count: 2147483647 }");
+        DocumentUpdater.apply(document, parse("{ $inc: { count: 1 } }"), false);
+        Assert.assertEquals(2147483648L, document.get("count"));
+    }
+
+    /**
+     * Tests the array operators: $push, $pushAll, $addToSet, $pull, $pullAll and $pop.
+     */
+    @Test
+    public void testArrayOperators() {
+        assertUpdate("{ _id: 1, tags: ['a', 'b'] }", "{ _id: 1, tags: ['a'] }", "{ $push: { tags: 'b' } }");
+        assertUpdate("{ _id: 1, tags: ['a', 'b', 'c'] }", "{ _id: 1 }", "{ $push: { tags: { $each: ['a', 'b', 'c'] } } }");
+        assertUpdate("{ _id: 1, tags: ['a', 'b', 'a'] }", "{ _id: 1, tags: ['a'] }", "{ $pushAll: { tags: ['b', 'a'] } }");
+        assertUpdate("{ _id: 1, tags: ['a', 'b'] }", "{ _id: 1, tags: ['a'] }", "{ $addToSet: { tags: { $each: ['a', 'b', 'b'] } } }");
+        assertUpdate("{ _id: 1, scores: [12, 7] }", "{ _id: 1, scores: [12, 18, 7] }", "{ $pull: { scores: 18 } }");
+        assertUpdate("{ _id: 1, scores: [7] }", "{ _id: 1, scores: [12, 18, 7] }", "{ $pull: { scores: { $gt: 10 } } }");
+        assertUpdate("{ _id: 1, cars: [{ brand: 'Pontiac' }] }", "{ _id: 1, cars: [{ brand: 'Pontiac' }, { brand: 'Chrysler' }] }",
+                "{ $pull: { cars: { brand: 'Chrysler' } } }");
+        assertUpdate("{ _id: 1, scores: [18] }", "{ _id: 1, scores: [12, 18, 7] }", "{ $pullAll: { scores: [7, 12] } }");
+        assertUpdate("{ _id: 1, scores: [12, 18] }", "{ _id: 1, scores: [12, 18, 7] }", "{ $pop: { scores: 1 } }");
+        assertUpdate("{ _id: 1, scores: [18, 7] }", "{ _id: 1, scores: [12, 18, 7] }", "{ $pop: { scores: -1 } }");
+    }
+
+    /**
+     * Tests the rejection of the updates mongod rejects.
+     */
+    @Test
+    public void testInvalidUpdates() {
+        assertRejected("{ _id: 1, name: 'Walt' }", "{ $inc: { name: 1 } }");
+        assertRejected("{ _id: 1, name: 'Walt' }", "{ $push: { name: 'Heisenberg' } }");
+        assertRejected("{ _id: 1, name: 'Walt' }", "{ $pull: { name: 'Walt' } }");
+        assertRejected("{ _id: 1 }", "{ $set: { _id: 2 } }");
+        assertRejected("{ _id: 1 }", "{ $bit: { flags: { and: 1 } } }");
+    }
+
+    /**
+     * Tests the positional operator: it is not supported and fails with an error returned to the client.
+     */
+    @Test
+    public void testPositionalOperator() {
+        final DBObject document = parse("{ _id: 1, scores: [12, 18, 7] }");
+        try {
+            DocumentUpdater.apply(document, parse("{ $set: { 'scores.$': 20 } }"), false);
+            Assert.fail("The positional operator is not supported");
+        } catch (ServerError e) {
+            Assert.assertEquals(ServerError.BAD_VALUE, e.getCode());
+            Assert.assertTrue(e.getMessage().contains("scores.$"));
+        }
+        Assert.assertEquals(parse("{ _id: 1, scores: [12, 18, 7] }"), document);
+    }
+
+    private static void assertUpdate(final String expected, final String document, final String update) {
+        final DBObject updated = parse(document);
+        DocumentUpdater.apply(updated, parse(update), false);
+        Assert.assertEquals(update, parse(expected), updated);
+    }
+
+    private static void assertRejected(final String document, final String update) {
+        try {
+            DocumentUpdater.apply(parse(document), parse(update), false);
+            Assert.fail(update + " must be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+    }
+
+    private static DBObject parse(final String json) {
+        return (DBObject) JSON.parse(json);
+    }
+}
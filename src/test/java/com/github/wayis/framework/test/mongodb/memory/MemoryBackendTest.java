@@ -0,0 +1,403 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandFailureException;
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.WriteResult;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test of the {@link MemoryBackend} through the mongo java driver.
+ *
+ * @see com.github.wayis.framework.test.mongodb.memory.MemoryBackend
+ */
+public class MemoryBackendTest {
+
+    private MemoryBackend backend;
+    private MongoClient client;
+    private DBCollection users;
+    private int port;
+
+    /**
+     * Starts the backend and connects a client.
+     */
+    @Before
+    public void setUp() throws IOException {
+        this.port = Network.getFreeServerPort();
+        this.backend = new MemoryBackend();
+        this.backend.start("127.0.0.1", this.port);
+        this.client = new MongoClient("127.0.0.1", this.port);
+        final DB db = this.client.getDB("mongo-unit-test");
+        this.users = db.getCollection("users");
+        this.users.insert(new BasicDBObject("lastname", "WHITE").append("firstname", "Walt").append("age", 50));
+        this.users.insert(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse").append("age", 25));
+        this.users.insert(new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler").append("age", 40));
+    }
+
+    /**
+     * Stops the client and the backend.
+     */
+    @After
+    public void tearDown() {
+        this.client.close();
+        this.backend.stop();
+    }
+
+    /**
+     * Tests the queries with operators, sort, projection and limit.
+     */
+    @Test
+    public void testQuery() {
+        Assert.assertEquals(2, this.users.count(new BasicDBObject("lastname", "WHITE")));
+        Assert.assertEquals(2, this.users.count(new BasicDBObject("age", new BasicDBObject("$gte", 40))));
+        final List<DBObject> sorted = this.users.find(null, new BasicDBObject("firstname", 1).append("_id", 0))
+                .sort(new BasicDBObject("age", 1)).limit(2).toArray();
+        Assert.assertEquals(2, sorted.size());
+        Assert.assertEquals(new BasicDBObject("firstname", "Jesse"), sorted.get(0));
+        Assert.assertEquals(new BasicDBObject("firstname", "Skyler"), sorted.get(1));
+    }
+
+    /**
+     * Tests the updates with operators and the upserts.
+     */
+    @Test
+    public void testUpdate() {
+        this.users.update(new BasicDBObject("lastname", "WHITE"), new BasicDBObject("$inc", new BasicDBObject("age", 1)), false, true);
+        Assert.assertEquals(51, this.users.findOne(new BasicDBObject("firstname", "Walt")).get("age"));
+        Assert.assertEquals(41, this.users.findOne(new BasicDBObject("firstname", "Skyler")).get("age"));
+        this.users.update(new BasicDBObject("lastname", "SCHRADER"), new BasicDBObject("$set", new BasicDBObject("firstname", "Hank")), true, false);
+        Assert.assertEquals("Hank", this.users.findOne(new BasicDBObject("lastname", "SCHRADER")).get("firstname"));
+    }
+
+    /**
+     * Tests the removal of documents and the drop of the collection.
+     */
+    @Test
+    public void testRemoveAndDrop() {
+        this.users.remove(new BasicDBObject("lastname", "WHITE"));
+        Assert.assertEquals(1, this.users.count());
+        this.users.drop();
+        Assert.assertEquals(0, this.users.count());
+        Assert.assertFalse(this.users.getDB().getCollectionNames().contains("users"));
+    }
+
+    /**
+     * Tests the iteration over a result larger than the first batch.
+     */
+    @Test
+    public void testCursor() {
+        final List<DBObject> documents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            documents.add(new BasicDBObject("index", i));
+        }
+        final DBCollection numbers = this.users.getDB().getCollection("numbers");
+        numbers.insert(documents);
+        Assert.assertEquals(1000, numbers.find().toArray().size());
+    }
+
+    /**
+     * Tests the dbHash command: the hash of a collection changes with its documents only.
+     */
+    @Test
+    public void testDbHash() {
+        final DBObject command = new BasicDBObject("dbHash", 1).append("collections", Collections.singletonList("users"));
+        final Object hash = ((DBObject) this.users.getDB().command(command).get("collections")).get("users");
+        Assert.assertNotNull(hash);
+        Assert.assertEquals(hash, ((DBObject) this.users.getDB().command(command).get("collections")).get("users"));
+        this.users.update(new BasicDBObject("firstname", "Jesse"), new BasicDBObject("$set", new BasicDBObject("age", 26)));
+        final Object updatedHash = ((DBObject) this.users.getDB().command(command).get("collections")).get("users");
+        Assert.assertNotEquals(hash, updatedHash);
+        this.users.update(new BasicDBObject("firstname", "Jesse"), new BasicDBObject("$set", new BasicDBObject("age", 25)));
+        Assert.assertEquals(hash, ((DBObject) this.users.getDB().command(command).get("collections")).get("users"));
+    }
+
+    /**
+     * Tests the duplicate key error on _id.
+     */
+    @Test(expected = MongoException.DuplicateKey.class)
+    public void testDuplicateKey() {
+        final DBObject document = this.users.findOne();
+        this.users.insert(document);
+    }
+
+    /**
+     * Tests the upserts: with operators, the equality fields of the selector are inserted; a replacement keeps the _id of the selector.
+     */
+    @Test
+    public void testUpsert() {
+        final WriteResult inserted = this.users.update(new BasicDBObject("lastname", "SCHRADER").append("age", new BasicDBObject("$gt", 30)),
+                set("firstname", "Hank").append("$setOnInsert", new BasicDBObject("age", 45)), true, false);
+        Assert.assertEquals(1, inserted.getN());
+        Assert.assertEquals(false, inserted.getField("updatedExisting"));
+        final DBObject hank = this.users.findOne(new BasicDBObject("lastname", "SCHRADER"), new BasicDBObject("_id", 0));
+        Assert.assertEquals(new BasicDBObject("lastname", "SCHRADER").append("firstname", "Hank").append("age", 45), hank);
+
+        final WriteResult updated = this.users.update(new BasicDBObject("lastname", "SCHRADER"),
+                set("firstname", "Henry").append("$setOnInsert", new BasicDBObject("age", 0)), true, false);
+        Assert.assertEquals(true, updated.getField("updatedExisting"));
+        Assert.assertEquals(45, this.users.findOne(new BasicDBObject("lastname", "SCHRADER")).get("age"));
+
+        this.users.update(new BasicDBObject("_id", "marie"), new BasicDBObject("lastname", "SCHRADER").append("firstname", "Marie"), true, false);
+        Assert.assertEquals("Marie", this.users.findOne(new BasicDBObject("_id", "marie")).get("firstname"));
+        Assert.assertEquals(5, this.users.count());
+    }
+
+    /**
+     * Tests the findAndModify command: sort, returned version, projection, removal and upsert.
+     */
+    @Test
+    public void testFindAndModify() {
+        final DBObject youngest = this.users.findAndModify(new BasicDBObject("lastname", "WHITE"), new BasicDBObject("firstname", 1),
+                new BasicDBObject("age", 1), false, new BasicDBObject("$inc", new BasicDBObject("age", 1)), false, false);
+        Assert.assertEquals(new BasicDBObject("firstname", "Skyler"), without(youngest, "_id"));
+        Assert.assertEquals(41, this.users.findOne(new BasicDBObject("firstname", "Skyler")).get("age"));
+
+        final DBObject newVersion = this.users.findAndModify(new BasicDBObject("firstname", "Walt"), null, null, false,
+                set("alias", "Heisenberg"), true, false);
+        Assert.assertEquals("Heisenberg", newVersion.get("alias"));
+
+        final DBObject removed = this.users.findAndModify(new BasicDBObject("firstname", "Jesse"), null, null, true, null, false, false);
+        Assert.assertEquals("PINKMAN", removed.get("lastname"));
+        Assert.assertEquals(2, this.users.count());
+
+        Assert.assertNull(this.users.findAndModify(new BasicDBObject("firstname", "Jesse"), null, null, false,
+                set("age", 26), false, false));
+        final DBObject upserted = this.users.findAndModify(new BasicDBObject("firstname", "Jesse"), null, null, false,
+                set("age", 26), true, true);
+        Assert.assertEquals(new BasicDBObject("firstname", "Jesse").append("age", 26), without(upserted, "_id"));
+    }
+
+    /**
+     * Tests the distinct command: the elements of the arrays are distinct values, and the query filters the documents.
+     */
+    @Test
+    public void testDistinct() {
+        Assert.assertEquals(Arrays.<Object>asList("WHITE", "PINKMAN"), this.users.distinct("lastname"));
+        Assert.assertEquals(Arrays.<Object>asList("Walt", "Skyler"), this.users.distinct("firstname", new BasicDBObject("lastname", "WHITE")));
+        this.users.update(new BasicDBObject("firstname", "Walt"), set("tags", Arrays.asList("cook", "teacher")));
+        this.users.update(new BasicDBObject("firstname", "Jesse"), set("tags", Arrays.asList("cook", "dealer")));
+        Assert.assertEquals(Arrays.<Object>asList("cook", "teacher", "dealer"), this.users.distinct("tags"));
+        Assert.assertTrue(this.users.getDB().getCollection("missing").distinct("tags").isEmpty());
+    }
+
+    /**
+     * Tests the cursors: batches fetched with getMore, skip and limit across the batches, and a closed cursor.
+     */
+    @Test
+    public void testCursorBatches() {
+        final DBCollection numbers = insertNumbers(250);
+        final DBCursor cursor = numbers.find().sort(new BasicDBObject("index", -1)).batchSize(7);
+        int expected = 249;
+        while (cursor.hasNext()) {
+            Assert.assertEquals(expected--, cursor.next().get("index"));
+        }
+        Assert.assertEquals(-1, expected);
+        Assert.assertTrue(cursor.numGetMores() > 0);
+
+        final List<DBObject> page = numbers.find().skip(95).limit(10).batchSize(3).toArray();
+        Assert.assertEquals(10, page.size());
+        Assert.assertEquals(95, page.get(0).get("index"));
+        Assert.assertEquals(104, page.get(9).get("index"));
+        Assert.assertEquals(5, numbers.find().limit(-5).toArray().size());
+
+        final DBCursor closed = numbers.find().batchSize(2);
+        closed.next();
+        closed.close();
+        Assert.assertEquals(250, numbers.find().toArray().size());
+    }
+
+    /**
+     * Tests the getMore of a cursor the server does not know: the reply has the CursorNotFound flag.
+     */
+    @Test
+    public void testCursorNotFound() throws IOException {
+        final byte[] namespace = "mongo-unit-test.users".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer message = ByteBuffer.allocate(16 + 4 + namespace.length + 1 + 4 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        message.putInt(message.capacity()).putInt(1).putInt(0).putInt(2005);
+        message.putInt(0).put(namespace).put((byte) 0).putInt(10).putLong(123456789L);
+        try (Socket socket = new Socket("127.0.0.1", this.port)) {
+            socket.getOutputStream().write(message.array());
+            final byte[] header = new byte[20];
+            new DataInputStream(socket.getInputStream()).readFully(header);
+            final ByteBuffer reply = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            Assert.assertEquals(1, reply.getInt(8));
+            Assert.assertEquals(1, reply.getInt(12));
+            Assert.assertEquals(1, reply.getInt(16) & 1);
+        }
+    }
+
+    /**
+     * Tests the commands and queries the backend does not support: they fail as on a mongod without the feature.
+     */
+    @Test
+    public void testUnsupported() {
+        final CommandResult eval = this.users.getDB().command(new BasicDBObject("$eval", "function() { return 1; }"));
+        Assert.assertFalse(eval.ok());
+        Assert.assertEquals(59, eval.get("code"));
+        Assert.assertFalse(this.users.getDB().command(new BasicDBObject("aggregate", "users")).ok());
+        try {
+            this.users.find(new BasicDBObject("$where", "this.age > 40")).toArray();
+            Assert.fail("$where is not supported");
+        } catch (MongoException e) {
+            Assert.assertEquals(2, e.getCode());
+        }
+        try {
+            this.users.find().explain();
+            Assert.fail("$explain is not supported");
+        } catch (MongoException e) {
+            Assert.assertEquals(2, e.getCode());
+        }
+    }
+
+    /**
+     * Tests the positional operator: the update fails with an error and leaves the documents unchanged.
+     */
+    @Test
+    public void testPositionalUpdate() {
+        this.users.update(new BasicDBObject("firstname", "Walt"), set("scores", Arrays.asList(12, 18)));
+        try {
+            this.users.update(new BasicDBObject("scores", 18), new BasicDBObject("$set", new BasicDBObject("scores.$", 20)));
+            Assert.fail("The positional operator is not supported");
+        } catch (MongoException e) {
+            Assert.assertEquals(2, e.getCode());
+            Assert.assertTrue(e.getMessage().contains("positional"));
+        }
+        Assert.assertEquals(Arrays.asList(12, 18), this.users.findOne(new BasicDBObject("firstname", "Walt")).get("scores"));
+    }
+
+    /**
+     * Tests the unique indexes: the duplicate keys are rejected on insert, update and upsert, and when the index is created.
+     */
+    @Test
+    public void testUniqueIndex() {
+        this.users.ensureIndex(new BasicDBObject("firstname", 1), unique("firstname_1"));
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.insert(new BasicDBObject("firstname", "Walt"));
+            }
+        });
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.update(new BasicDBObject("firstname", "Jesse"), set("firstname", "Walt"));
+            }
+        });
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.update(new BasicDBObject("lastname", "SCHRADER"), new BasicDBObject("firstname", "Skyler"), true, false);
+            }
+        });
+        Assert.assertEquals("Jesse", this.users.findOne(new BasicDBObject("lastname", "PINKMAN")).get("firstname"));
+        Assert.assertEquals(3, this.users.count());
+
+        this.users.update(new BasicDBObject("firstname", "Walt"), set("age", 51));
+        this.users.insert(new BasicDBObject("lastname", "SCHRADER"));
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.insert(new BasicDBObject("lastname", "SALAMANCA"));
+            }
+        });
+        this.users.remove(new BasicDBObject("firstname", "Walt"));
+        this.users.insert(new BasicDBObject("firstname", "Walt"));
+        this.users.dropIndex("firstname_1");
+        this.users.insert(new BasicDBObject("firstname", "Walt"));
+
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.ensureIndex(new BasicDBObject("firstname", 1), unique("firstname_1"));
+            }
+        });
+        Assert.assertEquals(1, this.users.getIndexInfo().size());
+    }
+
+    /**
+     * Tests the unique indexes on several fields, on arrays and with the sparse option.
+     */
+    @Test
+    public void testSparseCompoundUniqueIndex() {
+        this.users.ensureIndex(new BasicDBObject("lastname", 1).append("firstname", 1), unique("name"));
+        this.users.insert(new BasicDBObject("lastname", "WHITE").append("firstname", "Junior"));
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.insert(new BasicDBObject("lastname", "WHITE").append("firstname", "Junior"));
+            }
+        });
+
+        this.users.ensureIndex(new BasicDBObject("email", 1), unique("email_1").append("sparse", true));
+        this.users.update(new BasicDBObject("firstname", "Walt"), set("email", Arrays.asList("walt@a.com", "walt@b.com")));
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.update(new BasicDBObject("firstname", "Jesse"), set("email", "walt@b.com"));
+            }
+        });
+        this.users.update(new BasicDBObject("firstname", "Walt"), new BasicDBObject("$push", new BasicDBObject("email", "walt@c.com")));
+        Assert.assertEquals(4, this.users.count());
+        assertDuplicateKey(new Runnable() {
+            @Override
+            public void run() {
+                MemoryBackendTest.this.users.ensureIndex(new BasicDBObject("nickname", 1), unique("nickname_1"));
+            }
+        });
+    }
+
+    private DBCollection insertNumbers(final int count) {
+        final List<DBObject> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(new BasicDBObject("index", i));
+        }
+        final DBCollection numbers = this.users.getDB().getCollection("numbers");
+        numbers.insert(documents);
+        return numbers;
+    }
+
+    private static BasicDBObject set(final String field, final Object value) {
+        return new BasicDBObject("$set", new BasicDBObject(field, value));
+    }
+
+    private static BasicDBObject unique(final String name) {
+        return new BasicDBObject("name", name).append("unique", true);
+    }
+
+    private static DBObject without(final DBObject document, final String field) {
+        document.removeField(field);
+        return document;
+    }
+
+    private static void assertDuplicateKey(final Runnable write) {
+        try {
+            write.run();
+            Assert.fail("The duplicate key must be rejected");
+        } catch (MongoException.DuplicateKey e) {
+            Assert.assertEquals(11000, e.getCode());
+        } catch (CommandFailureException e) {
+            Assert.assertEquals(11000, e.getCode());
+        }
+    }
+}
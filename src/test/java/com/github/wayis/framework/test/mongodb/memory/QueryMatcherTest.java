@@ -0,0 +1,147 @@
+package com.github.wayis.framework.test.mongodb.memory;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+/**
+ * Test of the {@link QueryMatcher}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.memory.QueryMatcher
+ */
+public class QueryMatcherTest {
+
+    private static final DBObject DOCUMENT = (DBObject) JSON.parse("{ _id: 1, name: 'Walter White', age: 50, alias: null, "
+            + "tags: ['chemistry', 'teacher'], scores: [12, 18, 7], address: { city: 'Albuquerque', zip: '87104' }, "
+            + "cars: [{ brand: 'Pontiac', year: 2004 }, { brand: 'Chrysler', year: 2008 }] }");
+
+    /**
+     * Tests the equality on values, null, nested paths and arrays.
+     */
+    @Test
+    public void testEquality() {
+        assertMatches(true, "{}");
+        assertMatches(true, "{ age: 50, 'address.city': 'Albuquerque' }");
+        assertMatches(true, "{ age: 50.0 }");
+        assertMatches(false, "{ age: 51 }");
+        assertMatches(true, "{ alias: null }");
+        assertMatches(true, "{ missing: null }");
+        assertMatches(true, "{ tags: 'teacher' }");
+        assertMatches(true, "{ tags: ['chemistry', 'teacher'] }");
+        assertMatches(false, "{ tags: ['teacher', 'chemistry'] }");
+        assertMatches(true, "{ 'cars.brand': 'Chrysler' }");
+        assertMatches(true, "{ 'cars.1.year': 2008 }");
+        assertMatches(true, "{ address: { city: 'Albuquerque', zip: '87104' } }");
+        assertMatches(false, "{ address: { zip: '87104', city: 'Albuquerque' } }");
+    }
+
+    /**
+     * Tests the comparison operators: only the values of the same type are compared.
+     */
+    @Test
+    public void testComparison() {
+        assertMatches(true, "{ age: { $eq: 50 } }");
+        assertMatches(true, "{ age: { $ne: 40 } }");
+        assertMatches(false, "{ tags: { $ne: 'teacher' } }");
+        assertMatches(true, "{ age: { $gt: 40, $lte: 50 } }");
+        assertMatches(false, "{ age: { $gt: 50 } }");
+        assertMatches(true, "{ age: { $gte: 50, $lt: 60 } }");
+        assertMatches(false, "{ age: { $lt: '60' } }");
+        assertMatches(true, "{ scores: { $gt: 15 } }");
+        assertMatches(false, "{ scores: { $lt: 5 } }");
+    }
+
+    /**
+     * Tests the operators on sets and arrays: $in, $nin, $all, $size and $elemMatch.
+     */
+    @Test
+    public void testArrayOperators() {
+        assertMatches(true, "{ age: { $in: [40, 50] } }");
+        assertMatches(true, "{ tags: { $in: ['cook', 'teacher'] } }");
+        assertMatches(true, "{ missing: { $in: [null] } }");
+        assertMatches(false, "{ age: { $nin: [40, 50] } }");
+        assertMatches(true, "{ age: { $nin: [40] } }");
+        assertMatches(true, "{ tags: { $all: ['teacher', 'chemistry'] } }");
+        assertMatches(false, "{ tags: { $all: ['teacher', 'cook'] } }");
+        assertMatches(false, "{ tags: { $all: [] } }");
+        assertMatches(true, "{ scores: { $size: 3 } }");
+        assertMatches(false, "{ scores: { $size: 2 } }");
+        assertMatches(true, "{ cars: { $elemMatch: { brand: 'Chrysler', year: { $gt: 2005 } } } }");
+        assertMatches(false, "{ cars: { $elemMatch: { brand: 'Pontiac', year: { $gt: 2005 } } } }");
+        assertMatches(true, "{ scores: { $elemMatch: { $gt: 10, $lt: 15 } } }");
+        assertMatches(false, "{ scores: { $elemMatch: { $gt: 13, $lt: 15 } } }");
+    }
+
+    /**
+     * Tests the operators on the existence, the type and the content of the fields.
+     */
+    @Test
+    public void testElementOperators() {
+        assertMatches(true, "{ alias: { $exists: true } }");
+        assertMatches(true, "{ missing: { $exists: false } }");
+        assertMatches(false, "{ 'address.street': { $exists: true } }");
+        assertMatches(true, "{ age: { $type: 16 } }");
+        assertMatches(true, "{ name: { $type: 2 } }");
+        assertMatches(true, "{ alias: { $type: 10 } }");
+        assertMatches(false, "{ age: { $type: 2 } }");
+        assertMatches(true, "{ age: { $mod: [7, 1] } }");
+        assertMatches(false, "{ age: { $mod: [7, 0] } }");
+        assertMatches(true, "{ name: { $regex: '^walter', $options: 'i' } }");
+        assertMatches(false, "{ name: { $regex: '^walter' } }");
+        assertMatches(true, new BasicDBObject("name", Pattern.compile("White$")));
+        assertMatches(true, new BasicDBObject("tags", Pattern.compile("^chem")));
+        assertMatches(true, new BasicDBObject("name", new BasicDBObject("$not", Pattern.compile("^Jesse"))));
+        assertMatches(false, new BasicDBObject("name", new BasicDBObject("$not", Pattern.compile("^Walter"))));
+        assertMatches(false, "{ age: { $not: { $gte: 50 } } }");
+    }
+
+    /**
+     * Tests the logical operators.
+     */
+    @Test
+    public void testLogicalOperators() {
+        assertMatches(true, "{ $and: [{ age: 50 }, { tags: 'teacher' }] }");
+        assertMatches(false, "{ $and: [{ age: 50 }, { tags: 'cook' }] }");
+        assertMatches(true, "{ $or: [{ age: 40 }, { 'address.city': 'Albuquerque' }] }");
+        assertMatches(false, "{ $or: [{ age: 40 }, { 'address.city': 'Phoenix' }] }");
+        assertMatches(true, "{ $nor: [{ age: 40 }, { 'address.city': 'Phoenix' }] }");
+        assertMatches(false, "{ $nor: [{ age: 50 }] }");
+        assertMatches(true, "{ age: 50, $comment: 'ignored' }");
+    }
+
+    /**
+     * Tests the rejection of an unsupported operator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedOperator() {
+        QueryMatcher.matches(DOCUMENT, (DBObject) JSON.parse("{ $where: 'this.age > 40' }"));
+    }
+
+    /**
+     * Tests the rejection of an unsupported field operator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFieldOperator() {
+        QueryMatcher.matches(DOCUMENT, (DBObject) JSON.parse("{ address: { $near: [0, 0] } }"));
+    }
+
+    /**
+     * Tests the rejection of an empty logical operator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyLogicalOperator() {
+        QueryMatcher.matches(DOCUMENT, (DBObject) JSON.parse("{ $or: [] }"));
+    }
+
+    private static void assertMatches(final boolean expected, final String query) {
+        assertMatches(expected, (DBObject) JSON.parse(query));
+    }
+
+    private static void assertMatches(final boolean expected, final DBObject query) {
+        Assert.assertEquals(query.toString(), expected, QueryMatcher.matches(DOCUMENT, query));
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.wayis.framework.test.mongodb.metrics;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Test of the {@link TimingReport}.
+ *
+ * @see com.github.wayis.framework.test.mongodb.metrics.TimingReport
+ */
+public class TimingReportTest {
+
+    private static final long MILLISECOND = 1000000L;
+
+    /**
+     * Tests the aggregation by phase, fixture and collection, and the list of the slowest phases.
+     */
+    @Test
+    public void testAggregation() {
+        final TimingReport report = new TimingReport(2);
+        report.phaseCompleted(new PhaseTiming("testA", Phase.PARSE, "users", "/data/users.json", 5, 2 * MILLISECOND));
+        report.phaseCompleted(new PhaseTiming("testA", Phase.INSERT, "users", "/data/users.json", 5, 10 * MILLISECOND));
+        report.phaseCompleted(new PhaseTiming("testB", Phase.INSERT, "orders", "/data/orders.json", 3, 4 * MILLISECOND));
+        report.phaseCompleted(new PhaseTiming("testB", Phase.CLEAR, "orders", null, 0, MILLISECOND));
+
+        final BasicDBObject result = report.toDBObject();
+        final BasicDBList phases = (BasicDBList) result.get("phases");
+        Assert.assertEquals(3, phases.size());
+        final BasicDBObject insert = (BasicDBObject) phases.get(1);
+        Assert.assertEquals("INSERT", insert.get("name"));
+        Assert.assertEquals(2L, insert.get("count"));
+        Assert.assertEquals(14.0, insert.get("totalMillis"));
+        Assert.assertEquals(10.0, insert.get("maxMillis"));
+        Assert.assertEquals(8L, insert.get("documents"));
+
+        final BasicDBList fixtures = (BasicDBList) result.get("fixtures");
+        Assert.assertEquals("/data/users.json", ((BasicDBObject) fixtures.get(0)).get("name"));
+        Assert.assertEquals(12.0, ((BasicDBObject) fixtures.get(0)).get("totalMillis"));
+        final BasicDBList collections = (BasicDBList) result.get("collections");
+        Assert.assertEquals("users", ((BasicDBObject) collections.get(0)).get("name"));
+        Assert.assertEquals(5.0, ((BasicDBObject) collections.get(1)).get("totalMillis"));
+
+        final BasicDBList slowest = (BasicDBList) result.get("slowest");
+        Assert.assertEquals(2, slowest.size());
+        Assert.assertEquals("INSERT", ((BasicDBObject) slowest.get(0)).get("phase"));
+        Assert.assertEquals("testA", ((BasicDBObject) slowest.get(0)).get("test"));
+        Assert.assertEquals("testB", ((BasicDBObject) slowest.get(1)).get("test"));
+    }
+
+    /**
+     * Tests the CSV report.
+     */
+    @Test
+    public void testCsv() throws IOException {
+        final TimingReport report = new TimingReport(20);
+        report.phaseCompleted(new PhaseTiming("test(a, b)", Phase.CHECK, "users", "/data/users.json", 5, 3 * MILLISECOND));
+        final File file = File.createTempFile("timings", ".csv");
+        try {
+            report.write(file);
+            final List<String> lines = FileUtils.readLines(file, "UTF-8");
+            Assert.assertEquals(5, lines.size());
+            Assert.assertEquals("section,name,phase,test,count,totalMillis,maxMillis,documents", lines.get(0));
+            Assert.assertEquals("phase,CHECK,CHECK,,1,3.0,3.0,5", lines.get(1));
+            Assert.assertEquals("fixture,/data/users.json,,,1,3.0,3.0,0", lines.get(2));
+            Assert.assertEquals("collection,users,,,1,3.0,3.0,0", lines.get(3));
+            Assert.assertEquals("slowest,users,CHECK,\"test(a, b)\",1,3.0,3.0,5", lines.get(4));
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.github.wayis.framework.test.mongodb.MongoManager;
 import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ClearMode;
 import com.github.wayis.framework.test.mongodb.runner.application.ApplicationConfig;
 import com.github.wayis.framework.test.mongodb.runner.resource.UserResource;
 import org.apache.openejb.jee.WebApp;
@@ -39,10 +40,12 @@ public class ClearCollectionTest {
     }
 
     /**
-     * Initializes the user collection.
+     * Initializes the user collection.<br/>
+     * The mongod process is shared by all test classes, so the collection is emptied before the insertions.
      */
     private static void initializeUserCollection() {
         final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        users.drop();
         users.insert(new BasicDBObject("lastname", "DOE").append("firstname", "John"));
         users.insert(new BasicDBObject("lastname", "DAVIES").append("firstname", "Scott"));
         users.insert(new BasicDBObject("lastname", "NORRIS").append("firstname", "Chuck"));
@@ -72,4 +75,16 @@ public class ClearCollectionTest {
         Assert.assertEquals("The @ClearCollection does not clear the collection.", 0, users.count());
     }
 
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ClearCollection} annotation with the DROP mode.<br/>
+     * This method tests if the collection is dropped before the test.
+     */
+    @Test
+    @ClearCollection(name = COLLECTION_NAME, mode = ClearMode.DROP)
+    public void testClearCollectionAnnotationDrop() {
+        final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        Assert.assertEquals("The @ClearCollection does not clear the collection.", 0, users.count());
+        Assert.assertFalse("The @ClearCollection does not drop the collection.", users.getDB().getCollectionNames().contains(COLLECTION_NAME));
+    }
+
 }
@@ -5,6 +5,7 @@ import com.github.wayis.framework.javaee.extensions.mongodb.DBConnection;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import com.github.wayis.framework.test.mongodb.annotation.CheckMode;
 import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection;
 import com.github.wayis.framework.test.mongodb.runner.application.ApplicationConfig;
 import com.github.wayis.framework.test.mongodb.MongoManager;
@@ -109,6 +110,23 @@ public class ExpectedCollectionTest {
         addUser(new BasicDBObject("lastname", "SCHRADER").append("firstname", "Hank"));
     }
 
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation.<br/>
+     * This method tests if a duplicated expected document must be found twice in the mongodb collection.
+     */
+    @Test
+    @ExpectedCollection(name = COLLECTION_NAME, file = "/data/users_check_duplicates.json")
+    public void testExpectedCollectionAnnotationFailedDuplicatedDocument() {
+        expectedException.expect(AssertionError.class);
+        final DBObject expectedDuplicatedDocument = new BasicDBObject("lastname", "WHITE").append("firstname", "Walt");
+        expectedException.expectMessage("The expected document <" + expectedDuplicatedDocument + "> was not found in the mongodb collection.");
+
+        clearUserCollection();
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Walt"));
+        addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse"));
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler"));
+    }
+
     /**
      * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation.<br/>
      * This method tests if the annotation is called after the test and if ignored columns are taken into account.
@@ -135,6 +153,78 @@ public class ExpectedCollectionTest {
         addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse"));
     }
 
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation.<br/>
+     * This method tests if numbers are compared by value: the ints of the file match the longs and the doubles of the mongodb collection.
+     */
+    @Test
+    @ExpectedCollection(name = COLLECTION_NAME, file = "/data/users_check_numbers.json")
+    public void testExpectedCollectionAnnotationNumericTypes() {
+        clearUserCollection();
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Walt").append("age", 50L).append("balance", 1000.0));
+        addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse").append("age", 25.0).append("balance", 12.5));
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler").append("age", 40).append("balance", 0L));
+    }
+
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation.<br/>
+     * This method tests if a different number is still reported, whatever its type.
+     */
+    @Test
+    @ExpectedCollection(name = COLLECTION_NAME, file = "/data/users_check_numbers.json")
+    public void testExpectedCollectionAnnotationFailedBadNumber() {
+        expectedException.expect(AssertionError.class);
+        expectedException.expectMessage("age: expected <40> but was <41>");
+
+        clearUserCollection();
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Walt").append("age", 50L).append("balance", 1000.0));
+        addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse").append("age", 25.0).append("balance", 12.5));
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler").append("age", 41L).append("balance", 0L));
+    }
+
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation in the server mode.<br/>
+     * This method tests if the collection is compared with the file by the server-side function of the mongod backend.
+     */
+    @Test
+    @ExpectedCollection(name = COLLECTION_NAME, file = "/data/users_check.json", mode = CheckMode.SERVER)
+    public void testExpectedCollectionAnnotationServerMode() {
+        clearUserCollection();
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler"));
+        addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse"));
+        addUser(new BasicDBObject("firstname", "Walt").append("lastname", "WHITE"));
+    }
+
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation in the server mode.<br/>
+     * This method tests if the fail message is correct if there is a bad document.
+     */
+    @Test
+    @ExpectedCollection(name = COLLECTION_NAME, file = "/data/users_check.json", mode = CheckMode.SERVER)
+    public void testExpectedCollectionAnnotationServerModeFailedBadDocument() {
+        expectedException.expect(AssertionError.class);
+        final DBObject expectedBadDocument = new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler");
+        expectedException.expectMessage("The expected document <" + expectedBadDocument + "> was not found in the mongodb collection.");
+
+        clearUserCollection();
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Walt"));
+        addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse"));
+        addUser(new BasicDBObject("lastname", "SCHRADER").append("firstname", "Hank"));
+    }
+
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection} annotation in the server mode.<br/>
+     * This method tests if numbers are compared by value on the server side too: the ints of the file match the longs and the doubles.
+     */
+    @Test
+    @ExpectedCollection(name = COLLECTION_NAME, file = "/data/users_check_numbers.json", mode = CheckMode.SERVER)
+    public void testExpectedCollectionAnnotationServerModeNumericTypes() {
+        clearUserCollection();
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Walt").append("age", 50L).append("balance", 1000.0));
+        addUser(new BasicDBObject("lastname", "PINKMAN").append("firstname", "Jesse").append("age", 25.0).append("balance", 12.5));
+        addUser(new BasicDBObject("lastname", "WHITE").append("firstname", "Skyler").append("age", 40).append("balance", -0.0));
+    }
+
     /**
      * Adds an user into the user collection.
      *
@@ -0,0 +1,97 @@
+package com.github.wayis.framework.test.mongodb.runner;
+
+import com.github.wayis.framework.javaee.extensions.impl.config.ConfigPropertyProducer;
+import com.github.wayis.framework.javaee.extensions.mongodb.DBConnection;
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollections;
+import com.github.wayis.framework.test.mongodb.annotation.GenerateCollection;
+import com.github.wayis.framework.test.mongodb.annotation.GenerateCollections;
+import com.github.wayis.framework.test.mongodb.runner.application.ApplicationConfig;
+import com.github.wayis.framework.test.mongodb.runner.resource.UserResource;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ws.rs.core.Application;
+
+/**
+ * Test of the {@link com.github.wayis.framework.test.mongodb.annotation.GenerateCollection} annotation with the
+ * {@link com.github.wayis.framework.test.mongodb.runner.MongoApplicationComposer} runner.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.GenerateCollection
+ * @see com.github.wayis.framework.test.mongodb.rule.GenerateCollectionRule
+ */
+@EnableServices("jaxrs")
+@RunWith(MongoApplicationComposer.class)
+public class GenerateCollectionTest {
+
+    private static final String TEMPLATE = "{_id: '${sequence}', login: 'user${sequence}', age: '${int:18:80}', score: '${gaussian:50:10}',"
+            + " level: '${choice:GOLD=1,SILVER=3}', birth: '${date:1950-01-01:2000-01-01}'}";
+
+    private static final long COUNT = 5000;
+
+    /**
+     * Defines a Web ARchive (war) for deployment. It includes classes that the
+     * test will invoke.
+     */
+    @Module
+    @Classes(cdi = true, value = {UserResource.class, DBConnection.class, ConfigPropertyProducer.class})
+    public WebApp app() {
+        return new WebApp().contextRoot("test").addServlet("REST Application", Application.class.getName())
+                .addInitParam("REST Application", "javax.ws.rs.Application", ApplicationConfig.class.getName());
+    }
+
+    /**
+     * Tests that the same template and seed generate the same documents, whatever the number of threads and the size of the batches.
+     */
+    @Test
+    @ClearCollections({@ClearCollection(name = "products_single"), @ClearCollection(name = "products_parallel")})
+    @GenerateCollections({
+            @GenerateCollection(name = "products_single", template = TEMPLATE, count = COUNT, seed = 7, threads = 1, batchSize = 1000),
+            @GenerateCollection(name = "products_parallel", template = TEMPLATE, count = COUNT, seed = 7, threads = 4, batchSize = 300)})
+    public void testDeterministicGeneration() {
+        final DBCollection single = MongoManager.getInstance().getCollection("products_single");
+        final DBCollection parallel = MongoManager.getInstance().getCollection("products_parallel");
+        Assert.assertEquals("The @GenerateCollection does not insert every document.", COUNT, single.count());
+        Assert.assertEquals("The @GenerateCollection does not insert every document.", COUNT, parallel.count());
+
+        final DBCursor singleCursor = single.find().sort(new BasicDBObject("_id", 1));
+        final DBCursor parallelCursor = parallel.find().sort(new BasicDBObject("_id", 1));
+        try {
+            long index = 0;
+            while (singleCursor.hasNext()) {
+                Assert.assertTrue(parallelCursor.hasNext());
+                Assert.assertEquals("The documents depend on the threads or on the batches.", singleCursor.next(), parallelCursor.next());
+                index++;
+            }
+            Assert.assertEquals(COUNT, index);
+        } finally {
+            singleCursor.close();
+            parallelCursor.close();
+        }
+    }
+
+    /**
+     * Tests that another seed generates other documents from the same template.
+     */
+    @Test
+    @ClearCollections({@ClearCollection(name = "products_single"), @ClearCollection(name = "products_other")})
+    @GenerateCollections({
+            @GenerateCollection(name = "products_single", template = TEMPLATE, count = 100, seed = 7),
+            @GenerateCollection(name = "products_other", template = TEMPLATE, count = 100, seed = 8)})
+    public void testSeed() {
+        final DBCollection single = MongoManager.getInstance().getCollection("products_single");
+        final DBCollection other = MongoManager.getInstance().getCollection("products_other");
+        Assert.assertEquals(100, single.count());
+        Assert.assertNotEquals("Another seed generates the same documents.", single.findOne(new BasicDBObject("_id", 42L)),
+                other.findOne(new BasicDBObject("_id", 42L)));
+    }
+}
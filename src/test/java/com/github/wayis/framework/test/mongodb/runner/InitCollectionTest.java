@@ -3,7 +3,14 @@ package com.github.wayis.framework.test.mongodb.runner;
 import com.github.wayis.framework.javaee.extensions.impl.config.ConfigPropertyProducer;
 import com.github.wayis.framework.javaee.extensions.mongodb.DBConnection;
 import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ClearMode;
+import com.github.wayis.framework.test.mongodb.annotation.Index;
 import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
+import com.github.wayis.framework.test.mongodb.annotation.InsertMode;
+import com.github.wayis.framework.test.mongodb.fixture.FixtureLoader;
 import com.github.wayis.framework.test.mongodb.runner.application.ApplicationConfig;
 import com.github.wayis.framework.test.mongodb.MongoManager;
 import com.github.wayis.framework.test.mongodb.runner.resource.UserResource;
@@ -12,10 +19,13 @@ import org.apache.openejb.testing.Classes;
 import org.apache.openejb.testing.EnableServices;
 import org.apache.openejb.testing.Module;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 
 import javax.ws.rs.core.Application;
+import java.io.IOException;
 
 /**
  * Test of the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation to use in a test method with the {@link com.github.wayis.framework.test.mongodb.runner.MongoApplicationComposer} runner.<br/>
@@ -37,6 +47,12 @@ public class InitCollectionTest {
         clearUserCollection();
     }
 
+    /**
+     * Test rule to check the error of a failed initialization.
+     */
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
     /**
      * Ensures the user collection is empty.
      */
@@ -62,9 +78,114 @@ public class InitCollectionTest {
      * This method tests if the annotation is called before the test and if the collection is correctly initialized.
      */
     @Test
+    @ClearCollection(name = COLLECTION_NAME)
     @InitCollection(name = COLLECTION_NAME, file = "/data/users_init.json")
     public void testInitCollectionAnnotation() {
         final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
         Assert.assertEquals("The @InitCollection does not initialize the collection.", 5, users.count());
     }
+
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation with an unacknowledged batched insertion.<br/>
+     * This method tests if all documents are inserted before the test even if the batch size does not divide the number of documents.
+     */
+    @Test
+    @ClearCollection(name = COLLECTION_NAME)
+    @InitCollection(name = COLLECTION_NAME, file = "/data/users_init.json", mode = InsertMode.UNACKNOWLEDGED, batchSize = 2)
+    public void testInitCollectionAnnotationUnacknowledgedBatches() {
+        final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        Assert.assertEquals("The @InitCollection does not initialize the collection.", 5, users.count());
+    }
+
+    /**
+     * Tests an unacknowledged batched insertion, as done by the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation.<br/>
+     * This method tests if a document rejected by a batch before the last one fails the initialization, although the last batch succeeds.
+     */
+    @Test
+    @ClearCollection(name = COLLECTION_NAME)
+    public void testInitCollectionUnacknowledgedFailedDocument() throws IOException {
+        expectedException.expect(MongoException.class);
+        expectedException.expectMessage("The unacknowledged insertion of 6 documents into the collection users added 5 documents");
+
+        MongoManager.getInstance().initCollection(COLLECTION_NAME, FixtureLoader.load(InitCollectionTest.class, "/data/users_init_duplicate_id.json"),
+                InsertMode.UNACKNOWLEDGED, 2);
+    }
+
+    /**
+     * Tests the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation with a newline-delimited JSON file.<br/>
+     * This method tests if each line of the file is inserted as a document.
+     */
+    @Test
+    @ClearCollection(name = COLLECTION_NAME)
+    @InitCollection(name = COLLECTION_NAME, file = "/data/users_init.ndjson")
+    public void testInitCollectionAnnotationNewlineDelimited() {
+        final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        Assert.assertEquals("The @InitCollection does not initialize the collection.", 5, users.count());
+    }
+
+    /**
+     * Tests the indexes of the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation.<br/>
+     * This method tests if the indexes are built after the load of a collection dropped by the clear.
+     */
+    @Test
+    @ClearCollection(name = COLLECTION_NAME, mode = ClearMode.DROP)
+    @InitCollection(name = COLLECTION_NAME, file = "/data/users_init.json", indexes = {
+            @Index(keys = "{lastname: 1, firstname: 1}", name = "lastname_firstname", unique = true),
+            @Index(keys = "{firstname: 1}")})
+    public void testInitCollectionAnnotationIndexes() {
+        final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        Assert.assertEquals("The @InitCollection does not initialize the collection.", 5, users.count());
+        final DBObject index = findIndex(users, "lastname_firstname");
+        Assert.assertNotNull("The @Index is not built.", index);
+        Assert.assertEquals(Boolean.TRUE, index.get("unique"));
+        Assert.assertNotNull("The @Index without name is not built with the generated name.", findIndex(users, "firstname_1"));
+    }
+
+    /**
+     * Tests the indexes of the {@link com.github.wayis.framework.test.mongodb.annotation.InitCollection} annotation across the clear modes.<br/>
+     * This method clears and loads the collection again like the next tests: the indexes are kept by the REMOVE and REMOVE_IF_DIRTY
+     * modes and built again after a DROP.
+     */
+    @Test
+    @ClearCollection(name = COLLECTION_NAME, mode = ClearMode.DROP)
+    @InitCollection(name = COLLECTION_NAME, file = "/data/users_init.json", indexes = @Index(keys = "{lastname: 1, firstname: 1}", name = "lastname_firstname"))
+    public void testInitCollectionAnnotationIndexesAfterClear() throws NoSuchMethodException, IOException {
+        final MongoManager manager = MongoManager.getInstance();
+        final DBCollection users = manager.getCollection(COLLECTION_NAME);
+        final Index[] indexes = InitCollectionTest.class.getMethod("testInitCollectionAnnotationIndexesAfterClear")
+                .getAnnotation(InitCollection.class).indexes();
+        Assert.assertNotNull("The @Index is not built.", findIndex(users, "lastname_firstname"));
+
+        for (ClearMode mode : new ClearMode[]{ClearMode.REMOVE, ClearMode.REMOVE_IF_DIRTY}) {
+            manager.clearCollection(COLLECTION_NAME, mode);
+            Assert.assertEquals(0, users.count());
+            Assert.assertNotNull("The " + mode + " clear does not keep the index.", findIndex(users, "lastname_firstname"));
+            manager.initCollection(COLLECTION_NAME, FixtureLoader.load(InitCollectionTest.class, "/data/users_init.json"));
+            manager.createIndexes(COLLECTION_NAME, indexes);
+            Assert.assertEquals(5, users.count());
+            Assert.assertNotNull("The index kept by the " + mode + " clear is lost by the load.", findIndex(users, "lastname_firstname"));
+        }
+
+        manager.clearCollection(COLLECTION_NAME, ClearMode.DROP);
+        Assert.assertNull("The DROP clear does not drop the index.", findIndex(users, "lastname_firstname"));
+        manager.initCollection(COLLECTION_NAME, FixtureLoader.load(InitCollectionTest.class, "/data/users_init.json"));
+        manager.createIndexes(COLLECTION_NAME, indexes);
+        Assert.assertNotNull("The index is not built again after the DROP clear.", findIndex(users, "lastname_firstname"));
+    }
+
+    /**
+     * Finds an index of a collection.
+     *
+     * @param collection The collection.
+     * @param name       The name of the index.
+     * @return The description of the index, or null if the collection has no index of this name.
+     */
+    static DBObject findIndex(final DBCollection collection, final String name) {
+        for (DBObject index : collection.getIndexInfo()) {
+            if (name.equals(index.get("name"))) {
+                return index;
+            }
+        }
+        return null;
+    }
 }
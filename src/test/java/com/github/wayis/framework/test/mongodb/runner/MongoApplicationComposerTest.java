@@ -5,6 +5,9 @@ import com.github.wayis.framework.javaee.extensions.mongodb.DBConnection;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
 import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection;
 import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
@@ -127,4 +130,19 @@ public class MongoApplicationComposerTest {
         usersCollection.insert(new BasicDBObject("lastname", "FRING").append("firstname", "Gus"));
         usersCollection.insert(new BasicDBObject("lastname", "EHRMANTRAUT").append("firstname", "Mike"));
     }
+
+    /**
+     * Tests the MongoClient shared with the code under test.<br/>
+     * This method tests if the mongodb.client.* properties of the mongodb.properties file reach the options of the client.
+     */
+    @Test
+    public void testMongoClientOptions() {
+        final MongoClientOptions options = MongoManager.getInstance().getMongoClient().getMongoClientOptions();
+        Assert.assertEquals(5000, options.getConnectTimeout());
+        Assert.assertTrue(options.isSocketKeepAlive());
+        Assert.assertEquals(WriteConcern.ACKNOWLEDGED, options.getWriteConcern());
+        Assert.assertEquals(ReadPreference.primaryPreferred(), options.getReadPreference());
+        Assert.assertEquals("The options not set must keep the defaults of the driver.",
+                new MongoClientOptions.Builder().build().getConnectionsPerHost(), options.getConnectionsPerHost());
+    }
 }
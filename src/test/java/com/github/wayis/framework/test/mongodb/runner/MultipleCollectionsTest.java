@@ -0,0 +1,96 @@
+package com.github.wayis.framework.test.mongodb.runner;
+
+import com.github.wayis.framework.javaee.extensions.impl.config.ConfigPropertyProducer;
+import com.github.wayis.framework.javaee.extensions.mongodb.DBConnection;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ClearCollections;
+import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollection;
+import com.github.wayis.framework.test.mongodb.annotation.ExpectedCollections;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollections;
+import com.github.wayis.framework.test.mongodb.runner.application.ApplicationConfig;
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.runner.resource.UserResource;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ws.rs.core.Application;
+
+/**
+ * Test of the container annotations and of the class annotations with the {@link com.github.wayis.framework.test.mongodb.runner.MongoApplicationComposer} runner.<br/>
+ * The users collection is cleared and initialized by the class annotations before each test, unless the test redeclares it.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.ClearCollections
+ * @see com.github.wayis.framework.test.mongodb.annotation.InitCollections
+ * @see com.github.wayis.framework.test.mongodb.annotation.ExpectedCollections
+ * @see com.github.wayis.framework.test.mongodb.runner.MongoApplicationComposer
+ */
+@EnableServices("jaxrs")
+@RunWith(MongoApplicationComposer.class)
+@ClearCollection(name = MultipleCollectionsTest.USERS)
+@InitCollection(name = MultipleCollectionsTest.USERS, file = "/data/users_init.json")
+public class MultipleCollectionsTest {
+    /**
+     * Collection initialized by the class annotations.
+     */
+    static final String USERS = "users";
+
+    /**
+     * Collection initialized by the method annotations.
+     */
+    private static final String CUSTOMERS = "customers";
+
+    /**
+     * Defines a Web ARchive (war) for deployment. It includes classes that the
+     * test will invoke.
+     */
+    @Module
+    @Classes(cdi = true, value = {UserResource.class, DBConnection.class, ConfigPropertyProducer.class})
+    public WebApp app() {
+        return new WebApp().contextRoot("test").addServlet("REST Application", Application.class.getName())
+                .addInitParam("REST Application", "javax.ws.rs.Application", ApplicationConfig.class.getName());
+    }
+
+    /**
+     * Tests the class annotations: the users collection is initialized before the test.
+     */
+    @Test
+    public void testClassAnnotations() {
+        Assert.assertEquals("The class @InitCollection does not initialize the collection.", 5, MongoManager.getInstance().getCollection(USERS).count());
+    }
+
+    /**
+     * Tests the container annotations combined with the class annotations: both collections are initialized before the test
+     * and checked after it.
+     */
+    @Test
+    @ClearCollections(@ClearCollection(name = CUSTOMERS))
+    @InitCollections(@InitCollection(name = CUSTOMERS, file = "/data/users_init.json"))
+    @ExpectedCollections({
+            @ExpectedCollection(name = USERS, file = "/data/users_init.json"),
+            @ExpectedCollection(name = CUSTOMERS, file = "/data/users_check_insert.json")})
+    public void testContainerAnnotations() {
+        Assert.assertEquals("The class @InitCollection does not initialize the collection.", 5, MongoManager.getInstance().getCollection(USERS).count());
+        final DBCollection customers = MongoManager.getInstance().getCollection(CUSTOMERS);
+        Assert.assertEquals("The @InitCollections does not initialize the collection.", 5, customers.count());
+        customers.insert(new BasicDBObject("lastname", "FRING").append("firstname", "Gus"));
+        customers.insert(new BasicDBObject("lastname", "EHRMANTRAUT").append("firstname", "Mike"));
+    }
+
+    /**
+     * Tests a method annotation replacing the class annotation of the same collection.
+     */
+    @Test
+    @ClearCollection(name = USERS)
+    @InitCollection(name = USERS, file = "/data/users_check_insert.json")
+    public void testMethodAnnotationReplacesClassAnnotation() {
+        Assert.assertEquals("The method @InitCollection does not replace the class one.", 7, MongoManager.getInstance().getCollection(USERS).count());
+    }
+}
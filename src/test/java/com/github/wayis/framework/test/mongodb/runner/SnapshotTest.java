@@ -0,0 +1,81 @@
+package com.github.wayis.framework.test.mongodb.runner;
+
+import com.github.wayis.framework.javaee.extensions.impl.config.ConfigPropertyProducer;
+import com.github.wayis.framework.javaee.extensions.mongodb.DBConnection;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.github.wayis.framework.test.mongodb.MongoManager;
+import com.github.wayis.framework.test.mongodb.annotation.Index;
+import com.github.wayis.framework.test.mongodb.annotation.InitCollection;
+import com.github.wayis.framework.test.mongodb.annotation.Snapshot;
+import com.github.wayis.framework.test.mongodb.runner.application.ApplicationConfig;
+import com.github.wayis.framework.test.mongodb.runner.resource.UserResource;
+import org.apache.openejb.jee.WebApp;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.EnableServices;
+import org.apache.openejb.testing.Module;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ws.rs.core.Application;
+
+/**
+ * Test of the {@link com.github.wayis.framework.test.mongodb.annotation.Snapshot} annotation to use on a test class with the {@link com.github.wayis.framework.test.mongodb.runner.MongoApplicationComposer} runner.<br/>
+ * Each test modifies the collection and drops its index: the other one must still find the seeded documents and the declared index.
+ *
+ * @see com.github.wayis.framework.test.mongodb.annotation.Snapshot
+ * @see com.github.wayis.framework.test.mongodb.rule.RestoreSnapshotRule
+ * @see com.github.wayis.framework.test.mongodb.MongoManager
+ * @see com.github.wayis.framework.test.mongodb.runner.MongoApplicationComposer
+ */
+@EnableServices("jaxrs")
+@RunWith(MongoApplicationComposer.class)
+@Snapshot(@InitCollection(name = SnapshotTest.COLLECTION_NAME, file = "/data/users_init.json",
+        indexes = @Index(keys = "{lastname: 1, firstname: 1}", name = SnapshotTest.INDEX_NAME)))
+public class SnapshotTest {
+    /**
+     * Collection name to use for all tests.
+     */
+    static final String COLLECTION_NAME = "users";
+
+    /**
+     * Index declared on the collection.
+     */
+    static final String INDEX_NAME = "lastname_firstname";
+
+    /**
+     * Defines a Web ARchive (war) for deployment. It includes classes that the
+     * test will invoke.
+     */
+    @Module
+    @Classes(cdi = true, value = {UserResource.class, DBConnection.class, ConfigPropertyProducer.class})
+    public WebApp app() {
+        return new WebApp().contextRoot("test").addServlet("REST Application", Application.class.getName())
+                .addInitParam("REST Application", "javax.ws.rs.Application", ApplicationConfig.class.getName());
+    }
+
+    /**
+     * Tests if the collection and its index are restored before the test, then adds a document and drops the index.
+     */
+    @Test
+    public void testSnapshotRestoredBeforeInsert() {
+        final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        Assert.assertEquals("The @Snapshot does not restore the collection.", 5, users.count());
+        Assert.assertNotNull("The @Snapshot does not build the index again.", InitCollectionTest.findIndex(users, INDEX_NAME));
+        users.insert(new BasicDBObject("lastname", "FRING").append("firstname", "Gus"));
+        users.dropIndex(INDEX_NAME);
+    }
+
+    /**
+     * Tests if the collection and its index are restored before the test, then removes all documents and drops the index.
+     */
+    @Test
+    public void testSnapshotRestoredBeforeRemove() {
+        final DBCollection users = MongoManager.getInstance().getCollection(COLLECTION_NAME);
+        Assert.assertEquals("The @Snapshot does not restore the collection.", 5, users.count());
+        Assert.assertNotNull("The @Snapshot does not build the index again.", InitCollectionTest.findIndex(users, INDEX_NAME));
+        users.remove(new BasicDBObject());
+        users.dropIndex(INDEX_NAME);
+    }
+}